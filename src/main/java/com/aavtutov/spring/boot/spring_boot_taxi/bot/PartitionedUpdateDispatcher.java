@@ -0,0 +1,137 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.bot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
+import org.telegram.telegrambots.longpolling.util.LongPollingSingleThreadUpdateConsumer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.TelegramUpdatesProperties;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs Telegram updates in parallel while keeping the order of each user's updates.
+ *
+ * <p>
+ * Updates are partitioned by Telegram user id onto a fixed set of single-threaded
+ * lanes, so updates of one user are handled one after another and different
+ * users run concurrently. Each lane has a bounded queue; when it is full the
+ * polling thread waits, which slows down fetching instead of buffering without
+ * limit.
+ * </p>
+ */
+@Slf4j
+@Component
+public class PartitionedUpdateDispatcher implements LongPollingUpdateConsumer {
+
+	private final LongPollingSingleThreadUpdateConsumer delegate;
+	private final List<Lane> lanes = new ArrayList<>();
+
+	public PartitionedUpdateDispatcher(
+			LongPollingSingleThreadUpdateConsumer delegate,
+			TelegramUpdatesProperties properties) {
+		this.delegate = delegate;
+		for (int i = 0; i < properties.getWorkers(); i++) {
+			Lane lane = new Lane(properties.getQueueCapacity());
+			Thread worker = new Thread(lane, "TelegramUpdate-" + i);
+			worker.setDaemon(true);
+			lane.worker = worker;
+			lanes.add(lane);
+			worker.start();
+		}
+	}
+
+	@Override
+	public void consume(List<Update> updates) {
+		for (Update update : updates) {
+			dispatch(update);
+		}
+	}
+
+	/**
+     * Queues the update on its user's lane, waiting while the lane is full.
+     */
+	public void dispatch(Update update) {
+		try {
+			laneFor(update).queue.put(update);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.warn("Interrupted while queueing update {}", update.getUpdateId());
+		}
+	}
+
+	/**
+     * Queues the update without waiting.
+     * @return false if the lane is full and the update was not accepted.
+     */
+	public boolean tryDispatch(Update update) {
+		return laneFor(update).queue.offer(update);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		lanes.forEach(lane -> lane.worker.interrupt());
+	}
+
+	// Private Helpers
+
+	private Lane laneFor(Update update) {
+		return lanes.get(Math.floorMod(Long.hashCode(partitionKey(update)), lanes.size()));
+	}
+
+	/**
+     * Telegram user id of the update, or the update id for updates without a sender.
+     */
+	static long partitionKey(Update update) {
+		if (update.hasMessage() && update.getMessage().getFrom() != null) {
+			return update.getMessage().getFrom().getId();
+		}
+		if (update.hasEditedMessage() && update.getEditedMessage().getFrom() != null) {
+			return update.getEditedMessage().getFrom().getId();
+		}
+		if (update.hasCallbackQuery()) {
+			return update.getCallbackQuery().getFrom().getId();
+		}
+		if (update.hasInlineQuery()) {
+			return update.getInlineQuery().getFrom().getId();
+		}
+		return update.getUpdateId() != null ? update.getUpdateId() : 0L;
+	}
+
+	private final class Lane implements Runnable {
+
+		private final BlockingQueue<Update> queue;
+		private Thread worker;
+
+		private Lane(int capacity) {
+			this.queue = new ArrayBlockingQueue<>(capacity);
+		}
+
+		@Override
+		public void run() {
+			while (!Thread.currentThread().isInterrupted()) {
+				Update update;
+				try {
+					update = queue.poll(1, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (update == null) {
+					continue;
+				}
+				try {
+					delegate.consume(update);
+				} catch (Exception e) {
+					log.error("Failed to process update {}", update.getUpdateId(), e);
+				}
+			}
+		}
+	}
+}
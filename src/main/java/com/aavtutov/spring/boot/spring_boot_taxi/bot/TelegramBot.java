@@ -1,6 +1,7 @@
 package com.aavtutov.spring.boot.spring_boot_taxi.bot;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
 import org.telegram.telegrambots.longpolling.starter.SpringLongPollingBot;
@@ -8,17 +9,20 @@ import org.telegram.telegrambots.longpolling.starter.SpringLongPollingBot;
 /**
  * Entry point for the Telegram Bot integration.
  * This component registers the bot within the Spring context using Long Polling
- * and delegates update handling to the {@link UpdateConsumer} service.
+ * and hands updates to the {@link PartitionedUpdateDispatcher}, which runs the
+ * {@link UpdateConsumer} in parallel for different users.
+ * In webhook mode the {@code TelegramWebhookController} takes its place.
  */
 @Component
+@ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "LONG_POLLING", matchIfMissing = true)
 public class TelegramBot implements SpringLongPollingBot {
 
 	private final String botToken;
-	private final UpdateConsumer updateConsumer;
+	private final PartitionedUpdateDispatcher updateDispatcher;
 
-	public TelegramBot(@Value("${telegram.bot.token}") String botToken, UpdateConsumer updateConsumer) {
+	public TelegramBot(@Value("${telegram.bot.token}") String botToken, PartitionedUpdateDispatcher updateDispatcher) {
 		this.botToken = botToken;
-		this.updateConsumer = updateConsumer;
+		this.updateDispatcher = updateDispatcher;
 	}
 
 	@Override
@@ -28,7 +32,7 @@ public class TelegramBot implements SpringLongPollingBot {
 
 	@Override
 	public LongPollingUpdateConsumer getUpdatesConsumer() {
-		return updateConsumer;
+		return updateDispatcher;
 	}
 
 }
@@ -0,0 +1,60 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.bot;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.TelegramWebhookProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registers the webhook with Telegram once the application is ready to receive updates.
+ * Telegram stops long-polling delivery for the bot as soon as a webhook is set.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "WEBHOOK")
+public class TelegramWebhookRegistrar {
+
+	private final WebClient webClient;
+	private final String botToken;
+	private final TelegramWebhookProperties webhookProperties;
+
+	public TelegramWebhookRegistrar(
+			WebClient.Builder webClientBuilder,
+			@Value("${telegram.bot.token}") String botToken,
+			TelegramWebhookProperties webhookProperties) {
+		this.webClient = webClientBuilder.baseUrl("https://api.telegram.org").build();
+		this.botToken = botToken;
+		this.webhookProperties = webhookProperties;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void registerWebhook() {
+		Map<String, Object> body = new HashMap<>();
+		body.put("url", webhookProperties.getUrl());
+		body.put("secret_token", webhookProperties.getSecret());
+		body.put("max_connections", webhookProperties.getMaxConnections());
+
+		try {
+			webClient.post()
+					.uri(String.format("/bot%s/setWebhook", botToken))
+					.bodyValue(body)
+					.retrieve()
+					.bodyToMono(String.class)
+					.timeout(Duration.ofSeconds(10))
+					.block();
+			log.info("Telegram webhook registered at {}", webhookProperties.getUrl());
+		} catch (Exception e) {
+			log.error("Failed to register Telegram webhook at {}", webhookProperties.getUrl(), e);
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "client.cache")
+public class ClientCacheProperties {
+
+	/** Maximum number of cached clients. */
+	private long maximumSize = 10_000;
+
+	/** How long a cached client is trusted before it is read again. */
+	private Duration ttl = Duration.ofMinutes(10);
+}
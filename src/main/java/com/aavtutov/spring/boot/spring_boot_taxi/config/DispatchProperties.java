@@ -0,0 +1,51 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "dispatch")
+public class DispatchProperties {
+
+	/** OFFERS lets the nearest drivers race for each order; BATCH assigns orders to drivers in windows. */
+	private Mode mode = Mode.OFFERS;
+
+	/** Side of a driver location grid cell, in degrees (0.01 is roughly 1.1 km). */
+	private double gridCellDegrees = 0.01;
+
+	/** Maximum pickup distance for a driver to be considered suitable; also the widest offer round. */
+	private double searchRadiusKm = 5.0;
+
+	/** Maximum number of drivers returned by a proximity search. */
+	private int maxCandidates = 20;
+
+	/** Drivers a new order is offered to per round. */
+	private int offerBatchSize = 5;
+
+	/** How long an offer stays open before the next round goes out. */
+	private Duration offerTimeout = Duration.ofSeconds(15);
+
+	/** Radius of the first offer round. */
+	private double offerInitialRadiusKm = 1.5;
+
+	/** Factor the radius grows by after each unanswered round. */
+	private double offerRadiusGrowth = 2.0;
+
+	/** Offer rounds per order; afterwards the order is only in the open orders list. */
+	private int offerMaxRounds = 8;
+
+	/** Pause between two assignment windows (BATCH mode). */
+	private long batchWindowMs = 3000;
+
+	public enum Mode {
+		OFFERS,
+		BATCH
+	}
+}
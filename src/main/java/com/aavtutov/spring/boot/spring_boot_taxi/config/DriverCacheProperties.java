@@ -0,0 +1,29 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "driver.cache")
+public class DriverCacheProperties {
+
+	/** Maximum number of cached driver snapshots. */
+	private long maximumSize = 10_000;
+
+	/** How long a snapshot is trusted when no status change event drops it earlier. */
+	private Duration ttl = Duration.ofMinutes(10);
+
+	/**
+	 * TTL used instead of {@code ttl} when instances share the broker (RELAY mode).
+	 * Evictions are local, so this bounds how long another instance keeps serving
+	 * a snapshot after a ban or status change.
+	 */
+	private Duration relayTtl = Duration.ofSeconds(5);
+}
@@ -0,0 +1,23 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "driver.presence")
+public class DriverPresenceProperties {
+
+	/** Drivers without a heartbeat for this long are set INACTIVE. */
+	private long timeoutMs = 60_000;
+
+	/** Sweep interval, also the resolution of the timeout. */
+	private long tickMs = 1_000;
+
+	/** How long a driver whose last WebSocket closed stays online, e.g. while the next page connects. */
+	private long disconnectGraceMs = 15_000;
+}
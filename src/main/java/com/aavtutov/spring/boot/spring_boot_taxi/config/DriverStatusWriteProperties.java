@@ -0,0 +1,20 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "driver.status-write")
+public class DriverStatusWriteProperties {
+
+	/** Pause between flushes; also the longest a heartbeat status change stays unpersisted. */
+	private long flushIntervalMs = 500;
+
+	/** Status updates per JDBC batch. */
+	private int batchSize = 500;
+}
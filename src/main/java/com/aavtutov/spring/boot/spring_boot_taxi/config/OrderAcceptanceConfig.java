@@ -0,0 +1,31 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.OrderAcceptanceConditionalUpdate;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.OrderAcceptancePessimisticLock;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.OrderAcceptanceStrategy;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.validator.OrderValidator;
+
+/**
+ * Configuration for selecting how concurrent order acceptance is resolved.
+ * The implementation is picked at startup based on the 'order.accept.strategy' property.
+ */
+@Configuration
+public class OrderAcceptanceConfig {
+
+	@Bean
+	@ConditionalOnProperty(name = "order.accept.strategy", havingValue = "CONDITIONAL_UPDATE", matchIfMissing = true)
+	OrderAcceptanceStrategy conditionalUpdate(OrderRepository orderRepository) {
+		return new OrderAcceptanceConditionalUpdate(orderRepository);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "order.accept.strategy", havingValue = "PESSIMISTIC_LOCK")
+	OrderAcceptanceStrategy pessimisticLock(OrderRepository orderRepository, OrderValidator orderValidator) {
+		return new OrderAcceptancePessimisticLock(orderRepository, orderValidator);
+	}
+}
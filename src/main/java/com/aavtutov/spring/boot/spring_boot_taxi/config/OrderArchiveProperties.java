@@ -0,0 +1,25 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "order.archive")
+public class OrderArchiveProperties {
+
+	/** Completed and cancelled orders created longer ago than this are moved to {@code orders_archive}. */
+	private Duration olderThan = Duration.ofDays(90);
+
+	/** Orders moved per transaction. */
+	private int batchSize = 1000;
+
+	/** Pause between archiving runs. */
+	private long intervalMs = 3_600_000;
+}
@@ -0,0 +1,20 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "order.history")
+public class OrderHistoryProperties {
+
+	/** Orders per history page when the request does not ask for a size. */
+	private int pageSize = 20;
+
+	/** Upper bound for the {@code size} request parameter. */
+	private int maxPageSize = 100;
+}
@@ -0,0 +1,23 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "outbox.relay")
+public class OutboxProperties {
+
+	/** Pause between relay polls when the outbox is drained. */
+	private long pollIntervalMs = 100;
+
+	/** Entries claimed and delivered per transaction. */
+	private int batchSize = 100;
+
+	/** Delivery attempts before an entry is dropped. */
+	private int maxAttempts = 5;
+}
@@ -0,0 +1,66 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.routing.ReadReplicaDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sends read-only transactions to the replica when {@code datasource.replica.url} is set.
+ *
+ * <p>
+ * The primary pool is built from the regular {@code spring.datasource.*}
+ * settings. The application-wide {@link DataSource} is a
+ * {@link LazyConnectionDataSourceProxy}: it takes the physical connection only
+ * at the first statement, after {@code @Transactional(readOnly = true)} has
+ * marked the connection read-only, and then uses {@link ReadReplicaDataSource}.
+ * Everything else (writes, Flyway, schema validation) uses the primary.
+ * </p>
+ */
+@Configuration
+@ConditionalOnExpression("!'${datasource.replica.url:}'.isBlank()")
+public class ReadReplicaConfig {
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	@Bean
+	public HikariDataSource replicaDataSource(ReadReplicaProperties properties, DataSourceProperties primary) {
+		boolean ownCredentials = StringUtils.hasText(properties.getUsername());
+		HikariDataSource replica = new HikariDataSource();
+		replica.setPoolName("replica");
+		replica.setJdbcUrl(properties.getUrl());
+		replica.setUsername(ownCredentials ? properties.getUsername() : primary.determineUsername());
+		replica.setPassword(ownCredentials ? properties.getPassword() : primary.determinePassword());
+		replica.setMaximumPoolSize(properties.getMaximumPoolSize());
+		replica.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+		replica.setReadOnly(true);
+		// Start without the replica if it is down, reads fall back to the primary
+		replica.setInitializationFailTimeout(-1);
+		return replica;
+	}
+
+	@Bean
+	@Primary
+	public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource,
+			ReadReplicaProperties properties, MeterRegistry meterRegistry) {
+		LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+		dataSource.setReadOnlyDataSource(new ReadReplicaDataSource(
+				replicaDataSource, primaryDataSource, properties.getRetryInterval(), meterRegistry));
+		return dataSource;
+	}
+}
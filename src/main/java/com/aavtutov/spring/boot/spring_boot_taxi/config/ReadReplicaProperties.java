@@ -0,0 +1,36 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "datasource.replica")
+public class ReadReplicaProperties {
+
+	/** JDBC URL of the read replica; blank sends every query to the primary. */
+	private String url = "";
+
+	/** Blank uses the primary's credentials. */
+	private String username;
+
+	private String password;
+
+	/** Connections kept to the replica. */
+	private int maximumPoolSize = 10;
+
+	/** How long a read waits for a replica connection before falling back to the primary. */
+	private Duration connectionTimeout = Duration.ofSeconds(1);
+
+	/** After a failed replica connection, reads stay on the primary for this long. */
+	private Duration retryInterval = Duration.ofSeconds(10);
+
+	/** After a write request, the same user's reads stay on the primary for this long (covers replica lag). */
+	private Duration readYourWritesWindow = Duration.ofSeconds(5);
+}
@@ -0,0 +1,25 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "mapbox.route-cache")
+public class RouteCacheProperties {
+
+	/** Grid step coordinates are snapped to before lookup; nearby trips share a route. */
+	private double precisionMeters = 50;
+
+	/** How long a route stays valid (travel times change with traffic). */
+	private Duration ttl = Duration.ofMinutes(10);
+
+	/** Maximum number of cached routes. */
+	private long maximumSize = 10_000;
+}
@@ -0,0 +1,22 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "telegram.auth")
+public class TelegramAuthProperties {
+
+	/** How long initData stays valid after its auth_date. */
+	private Duration initDataMaxAge = Duration.ofHours(24);
+
+	/** Validated initData strings kept in memory; 0 disables the cache. */
+	private long cacheSize = 10_000;
+}
@@ -0,0 +1,40 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "telegram.outbound")
+public class TelegramOutboundProperties {
+
+	/** Messages per second the bot may send across all chats (Telegram allows about 30). */
+	private int globalPerSecond = 30;
+
+	/** Minimum gap between two messages to the same chat. */
+	private Duration perChatInterval = Duration.ofSeconds(1);
+
+	/** Messages waiting to be sent; new ones are dropped above this. */
+	private int maxQueueSize = 10_000;
+
+	/** Delivery attempts per message, including the first one. */
+	private int maxAttempts = 5;
+
+	/** Backoff after the first failed attempt, doubled on each retry. */
+	private Duration initialBackoff = Duration.ofSeconds(1);
+
+	/** Upper bound for the retry backoff. */
+	private Duration maxBackoff = Duration.ofSeconds(30);
+
+	/** Telegram message size limit; queued messages are merged up to it. */
+	private int maxMessageLength = 4096;
+
+	/** Timeout of a single sendMessage call. */
+	private Duration requestTimeout = Duration.ofSeconds(5);
+}
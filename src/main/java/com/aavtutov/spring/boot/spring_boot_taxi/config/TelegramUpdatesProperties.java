@@ -0,0 +1,20 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "telegram.updates")
+public class TelegramUpdatesProperties {
+
+	/** Worker threads; updates of one user always go to the same worker. */
+	private int workers = 8;
+
+	/** Updates waiting per worker before polling is slowed down. */
+	private int queueCapacity = 256;
+}
@@ -0,0 +1,23 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "telegram.webhook")
+public class TelegramWebhookProperties {
+
+	/** Public HTTPS URL Telegram delivers updates to (ends with /api/public/telegram/webhook). */
+	private String url;
+
+	/** Value Telegram sends in X-Telegram-Bot-Api-Secret-Token with every update. */
+	private String secret;
+
+	/** Parallel connections Telegram may open to the webhook (1-100). */
+	private int maxConnections = 40;
+}
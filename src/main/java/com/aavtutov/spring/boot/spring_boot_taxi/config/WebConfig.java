@@ -7,6 +7,7 @@ import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.routing.ReadRoutingInterceptor;
 import com.aavtutov.spring.boot.spring_boot_taxi.security.ClientArgumentResolver;
 import com.aavtutov.spring.boot.spring_boot_taxi.security.DriverArgumentResolver;
 import com.aavtutov.spring.boot.spring_boot_taxi.security.TelegramAuthInterceptor;
@@ -22,6 +23,7 @@ import lombok.RequiredArgsConstructor;
 public class WebConfig implements WebMvcConfigurer {
 	
 	private final TelegramAuthInterceptor authInterceptor;
+	private final ReadRoutingInterceptor readRoutingInterceptor;
 	private final TelegramUserArgumentResolver userResolver;
 	private final ClientArgumentResolver clientResolver;
 	private final DriverArgumentResolver driverResolver;
@@ -33,6 +35,12 @@ public class WebConfig implements WebMvcConfigurer {
                 .excludePathPatterns(
                 		"/api/public/**",
                 		"/loader");
+        // After authentication: needs the Telegram user for read-your-writes
+        registry.addInterceptor(readRoutingInterceptor)
+                .addPathPatterns("/", "/api/**", "/driver/**", "/client/**")
+                .excludePathPatterns(
+                		"/api/public/**",
+                		"/loader");
     }
 	
 	@Override
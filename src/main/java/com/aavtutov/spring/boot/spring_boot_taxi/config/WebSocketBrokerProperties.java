@@ -0,0 +1,34 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "websocket.broker")
+public class WebSocketBrokerProperties {
+
+	/** SIMPLE keeps topics in this instance; RELAY shares them through an external STOMP broker. */
+	private Mode mode = Mode.SIMPLE;
+
+	/** STOMP broker host (RELAY mode). */
+	private String relayHost = "localhost";
+
+	/** STOMP broker port (RELAY mode). */
+	private int relayPort = 61613;
+
+	/** Login used for the shared system connection and for client sessions. */
+	private String login = "guest";
+
+	/** Passcode used for the shared system connection and for client sessions. */
+	private String passcode = "guest";
+
+	public enum Mode {
+		SIMPLE,
+		RELAY
+	}
+}
@@ -2,22 +2,48 @@ package com.aavtutov.spring.boot.spring_boot_taxi.config;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.security.TelegramStompAuthInterceptor;
+
+import lombok.RequiredArgsConstructor;
+
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 	
+	private final TelegramStompAuthInterceptor telegramStompAuthInterceptor;
+	private final WebSocketBrokerProperties brokerProperties;
+	
 	@Value("${web.app.url}")
 	private String webAppUrl;
 	
 	@Override
 	public void configureMessageBroker(MessageBrokerRegistry config) {
-		config.enableSimpleBroker("/topic");
+		if (brokerProperties.getMode() == WebSocketBrokerProperties.Mode.RELAY) {
+			// Every instance forwards subscriptions and sends to one broker, so topics span the cluster
+			config.enableStompBrokerRelay("/topic", "/queue")
+					.setRelayHost(brokerProperties.getRelayHost())
+					.setRelayPort(brokerProperties.getRelayPort())
+					.setSystemLogin(brokerProperties.getLogin())
+					.setSystemPasscode(brokerProperties.getPasscode())
+					.setClientLogin(brokerProperties.getLogin())
+					.setClientPasscode(brokerProperties.getPasscode())
+					// Per-driver offers may be sent by an instance the driver is not connected to
+					.setUserDestinationBroadcast("/topic/unresolved-user-destination")
+					.setUserRegistryBroadcast("/topic/simp-user-registry");
+		} else {
+			config.enableSimpleBroker("/topic", "/queue");
+		}
 		config.setApplicationDestinationPrefixes("/app");
+		config.setUserDestinationPrefix("/user");
+		// Offers and their withdrawals must reach a driver in publish order
+		config.setPreservePublishOrder(true);
 	}
 	
 	@Override
@@ -26,4 +52,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 		.setAllowedOriginPatterns(webAppUrl)
 		.withSockJS();
 	}
+	
+	@Override
+	public void configureClientInboundChannel(ChannelRegistration registration) {
+		registration.interceptors(telegramStompAuthInterceptor);
+	}
 }
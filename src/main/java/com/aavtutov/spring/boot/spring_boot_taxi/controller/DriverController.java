@@ -13,7 +13,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverCreateDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverLocationDTO;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverResponseDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverSnapshot;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverUpdateDTO;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.mapper.DriverMapper;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
@@ -62,10 +64,17 @@ public class DriverController {
 	/**
      * Updates driver's last activity and sets status to ACTIVE.
      * Should be called periodically by the frontend to stay visible on the map.
+     * The optional body carries the current position used for proximity dispatch.
      */
 	@PostMapping("/heartbeat")
-	public ResponseEntity<Void> sendHeartbeat(DriverEntity driver) {
-		driverService.activateDriverByHeartbeat(driver);
+	public ResponseEntity<Void> sendHeartbeat(DriverSnapshot driver,
+			@RequestBody(required = false) @Valid DriverLocationDTO location) {
+		DriverSnapshot current = driverService.activateDriverByHeartbeat(driver);
+		if (location != null) {
+			driverService.updateDriverLocation(current,
+					location.getLatitude().doubleValue(),
+					location.getLongitude().doubleValue());
+		}
 		return ResponseEntity.ok().build();
 	}
 
@@ -74,8 +83,8 @@ public class DriverController {
      * Used when the driver chooses to stop receiving new order requests.
      */
 	@PostMapping("/deactivate")
-	public ResponseEntity<Void> deactivateDriver(DriverEntity driver) {
-		driverService.deactivateDriver(driver.getTelegramId());
+	public ResponseEntity<Void> deactivateDriver(DriverSnapshot driver) {
+		driverService.deactivateDriver(driver.telegramId());
 		return ResponseEntity.ok().build();
 	}
 	
@@ -84,8 +93,8 @@ public class DriverController {
      */
 	@PostMapping("/demo-auto-approve")
 	@Profile("!prod")
-	public ResponseEntity<String> demoAutoApprove(DriverEntity driver) {
-	    driverService.adminUpdateDriverStatus(driver.getId(), DriverStatus.ACTIVE);
+	public ResponseEntity<String> demoAutoApprove(DriverSnapshot driver) {
+	    driverService.adminUpdateDriverStatus(driver.id(), DriverStatus.ACTIVE);
 	    return ResponseEntity.ok("Demo-mode: Driver status activated");
 	}
 	
@@ -0,0 +1,47 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.controller;
+
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Controller;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverLocationDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverSnapshot;
+import com.aavtutov.spring.boot.spring_boot_taxi.security.TelegramPrincipal;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.DriverService;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.presence.DriverSessionRegistry;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Driver frames on the STOMP connection. The session was authenticated at
+ * CONNECT, so a heartbeat costs no initData check and no driver query.
+ */
+@Controller
+@RequiredArgsConstructor
+public class DriverSocketController {
+
+	private final DriverService driverService;
+	private final DriverSessionRegistry driverSessionRegistry;
+
+	/**
+	 * WebSocket variant of {@code POST /api/drivers/heartbeat}; the optional body
+	 * carries the current position.
+	 */
+	@MessageMapping("/driver/heartbeat")
+	public void heartbeat(@Payload(required = false) @Valid DriverLocationDTO location,
+			TelegramPrincipal principal,
+			@Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+
+		DriverSnapshot driver = driverService.findSnapshotByTelegramId(principal.telegramId());
+		DriverSnapshot current = driverService.activateDriverByHeartbeat(driver);
+		if (location != null) {
+			driverService.updateDriverLocation(current,
+					location.getLatitude().doubleValue(),
+					location.getLongitude().doubleValue());
+		}
+		driverSessionRegistry.register(principal.telegramId(), sessionId);
+	}
+}
@@ -6,9 +6,9 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverSnapshot;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.mapper.OrderMapper;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
-import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
 import com.aavtutov.spring.boot.spring_boot_taxi.service.DriverService;
 import com.aavtutov.spring.boot.spring_boot_taxi.service.OrderService;
@@ -49,9 +49,9 @@ public class DriverWebController {
      * Displays the current active order assigned to the driver.
      */
 	@GetMapping("/active-order")
-	public String getActiveOrdersPage(DriverEntity driver, Model model) {
+	public String getActiveOrdersPage(DriverSnapshot driver, Model model) {
 		
-		orderService.findActiveOrderByDriver(driver.getId()).ifPresentOrElse(
+		orderService.findActiveOrderByDriver(driver.id()).ifPresentOrElse(
 				order -> {
 					model.addAttribute("order", orderMapper.toResponseDto(order));
 					model.addAttribute("mapboxToken", mapboxAccessToken);
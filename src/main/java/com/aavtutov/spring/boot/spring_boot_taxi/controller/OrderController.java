@@ -8,17 +8,24 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.config.OrderHistoryProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverSnapshot;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderCreateDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderHistoryCursor;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderHistoryPageDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderOfferDTO;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderResponseDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderRow;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderUpdateDTO;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.mapper.OrderMapper;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.telegram.TelegramUserDTO;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
-import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.service.OrderService;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.offer.OrderOfferDispatcher;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -33,6 +40,8 @@ public class OrderController {
 
 	private final OrderService orderService;
 	private final OrderMapper orderMapper;
+	private final OrderOfferDispatcher orderOfferDispatcher;
+	private final OrderHistoryProperties orderHistoryProperties;
 
 	@PostMapping
 	public OrderResponseDTO placeOrder(@RequestBody @Valid OrderCreateDTO orderCreateDTO,
@@ -61,22 +70,46 @@ public class OrderController {
         return orderMapper.toResponseDto(updatedOrder);
 	}
 
+	/**
+     * All PENDING orders. The driver page lists them while the driver holds no
+     * offer, e.g. without a shared location or once an order ran out of offer rounds.
+     */
 	@GetMapping
-	public List<OrderResponseDTO> findAvailableOrders(DriverEntity driver) {
-		List<OrderEntity> availableOrders = orderService.findAvailableOrders();
+	public List<OrderResponseDTO> findAvailableOrders(DriverSnapshot driver) {
+		List<OrderRow> availableOrders = orderService.findAvailableOrders();
 		return availableOrders.stream().map(orderMapper::toResponseDto).toList();
 	}
 
+	/**
+     * Offers the driver currently holds; later offers arrive on {@code /user/queue/offers}.
+     * Best effort with several instances: only offers sent by the instance that
+     * serves the request are listed (see {@link OrderOfferDispatcher#findOpenOffers}).
+     */
+	@GetMapping("/offers")
+	public List<OrderOfferDTO> getOpenOffers(DriverSnapshot driver) {
+		return orderOfferDispatcher.findOpenOffers(driver);
+	}
+
+	/**
+     * One page of the client's orders, newest first. Pass the returned
+     * {@code nextCursor} as {@code cursor} to get the following page.
+     */
 	@GetMapping("/client-history")
-	public List<OrderResponseDTO> getClientOrderHistory(ClientEntity client) {
-		List<OrderEntity> orders = orderService.findOrdersByClientId(client.getId());
-		return orders.stream().map(orderMapper::toResponseDto).toList();
+	public OrderHistoryPageDTO getClientOrderHistory(ClientEntity client,
+			@RequestParam(name = "cursor", required = false) String cursor,
+			@RequestParam(name = "size", required = false) Integer size) {
+		int pageSize = resolvePageSize(size);
+		List<OrderRow> orders = orderService.findClientHistory(client.getId(), decodeCursor(cursor), pageSize + 1);
+		return toHistoryPage(orders, pageSize);
 	}
 
 	@GetMapping("/driver-history")
-	public List<OrderResponseDTO> getDriverOrderHistory(DriverEntity driver) {
-		List<OrderEntity> orders = orderService.findOrdersByDriverId(driver.getId());
-		return orders.stream().map(orderMapper::toResponseDto).toList();
+	public OrderHistoryPageDTO getDriverOrderHistory(DriverSnapshot driver,
+			@RequestParam(name = "cursor", required = false) String cursor,
+			@RequestParam(name = "size", required = false) Integer size) {
+		int pageSize = resolvePageSize(size);
+		List<OrderRow> orders = orderService.findDriverHistory(driver.id(), decodeCursor(cursor), pageSize + 1);
+		return toHistoryPage(orders, pageSize);
 	}
 	
 	/**
@@ -85,8 +118,28 @@ public class OrderController {
      */
 	@GetMapping("/{id}")
 	public OrderResponseDTO findOrderById(@PathVariable("id") Long orderId, TelegramUserDTO tgUser) {
-		OrderEntity order = orderService.findOrderById(orderId);
+		OrderRow order = orderService.findOrderById(orderId);
 		return orderMapper.toResponseDto(order);
 	}
 
+	// Private Helpers
+
+	private int resolvePageSize(Integer size) {
+		int pageSize = size == null ? orderHistoryProperties.getPageSize() : size;
+		return Math.max(1, Math.min(pageSize, orderHistoryProperties.getMaxPageSize()));
+	}
+
+	private static OrderHistoryCursor decodeCursor(String cursor) {
+		return cursor == null || cursor.isBlank() ? null : OrderHistoryCursor.decode(cursor);
+	}
+
+	// One extra order is read to tell whether another page follows
+	private OrderHistoryPageDTO toHistoryPage(List<OrderRow> orders, int pageSize) {
+		List<OrderRow> page = orders.size() > pageSize ? orders.subList(0, pageSize) : orders;
+		String nextCursor = orders.size() > pageSize
+				? OrderHistoryCursor.of(page.get(page.size() - 1)).encode()
+				: null;
+		return new OrderHistoryPageDTO(page.stream().map(orderMapper::toResponseDto).toList(), nextCursor);
+	}
+
 }
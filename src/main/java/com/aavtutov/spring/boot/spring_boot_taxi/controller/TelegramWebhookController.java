@@ -0,0 +1,67 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.bot.PartitionedUpdateDispatcher;
+import com.aavtutov.spring.boot.spring_boot_taxi.config.TelegramWebhookProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Receives Telegram updates in webhook mode ({@code telegram.bot.mode=WEBHOOK}).
+ *
+ * <p>
+ * Requests must carry the configured secret token. Accepted updates are queued on
+ * the {@link PartitionedUpdateDispatcher} without waiting; when the user's lane is
+ * full the request is answered with 429 and Telegram delivers it again later.
+ * </p>
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/public/telegram")
+@ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "WEBHOOK")
+public class TelegramWebhookController {
+
+	static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+	private final PartitionedUpdateDispatcher updateDispatcher;
+	private final byte[] secret;
+
+	public TelegramWebhookController(
+			PartitionedUpdateDispatcher updateDispatcher,
+			TelegramWebhookProperties webhookProperties) {
+		if (webhookProperties.getSecret() == null || webhookProperties.getSecret().isBlank()) {
+			throw new IllegalStateException("telegram.webhook.secret must be set in WEBHOOK mode");
+		}
+		this.updateDispatcher = updateDispatcher;
+		this.secret = webhookProperties.getSecret().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@PostMapping("/webhook")
+	public ResponseEntity<Void> receiveUpdate(
+			@RequestHeader(name = SECRET_HEADER, required = false) String secretToken,
+			@RequestBody Update update) {
+
+		// Constant-time comparison, so the secret can't be guessed byte by byte
+		if (secretToken == null || !MessageDigest.isEqual(secret, secretToken.getBytes(StandardCharsets.UTF_8))) {
+			log.warn("Rejected webhook call with a missing or wrong secret token");
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+		}
+
+		if (!updateDispatcher.tryDispatch(update)) {
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+		}
+		return ResponseEntity.ok().build();
+	}
+}
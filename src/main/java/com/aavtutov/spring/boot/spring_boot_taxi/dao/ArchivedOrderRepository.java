@@ -0,0 +1,56 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dao;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderRow;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.ArchivedOrderEntity;
+
+/**
+ * Reads of {@code orders_archive}, mirroring the history queries of
+ * {@link OrderRepository} so both tables can be paged with the same cursor.
+ */
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrderEntity, Long> {
+
+	String ARCHIVED_ORDER_ROW = OrderRepository.ORDER_ROW_SELECT +
+		       "FROM ArchivedOrderEntity o JOIN o.client c LEFT JOIN o.driver d ";
+
+	@Query(ARCHIVED_ORDER_ROW + "WHERE o.id = :id")
+	Optional<OrderRow> findRowById(@Param("id") Long orderId);
+
+	/** Served by idx_orders_archive_client_history. */
+	@Query(ARCHIVED_ORDER_ROW + "WHERE o.client.id = :clientId " +
+		       "ORDER BY o.createdAt DESC, o.id DESC")
+	List<OrderRow> findClientHistory(@Param("clientId") Long clientId, Limit limit);
+
+	@Query(ARCHIVED_ORDER_ROW + "WHERE o.client.id = :clientId " +
+		       "AND o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+		       "ORDER BY o.createdAt DESC, o.id DESC")
+	List<OrderRow> findClientHistoryAfter(
+			@Param("clientId") Long clientId,
+			@Param("createdAt") Instant createdAt,
+			@Param("id") Long id,
+			Limit limit);
+
+	/** Served by idx_orders_archive_driver_history. */
+	@Query(ARCHIVED_ORDER_ROW + "WHERE o.driver.id = :driverId " +
+		       "ORDER BY o.createdAt DESC, o.id DESC")
+	List<OrderRow> findDriverHistory(@Param("driverId") Long driverId, Limit limit);
+
+	@Query(ARCHIVED_ORDER_ROW + "WHERE o.driver.id = :driverId " +
+		       "AND o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+		       "ORDER BY o.createdAt DESC, o.id DESC")
+	List<OrderRow> findDriverHistoryAfter(
+			@Param("driverId") Long driverId,
+			@Param("createdAt") Instant createdAt,
+			@Param("id") Long id,
+			Limit limit);
+}
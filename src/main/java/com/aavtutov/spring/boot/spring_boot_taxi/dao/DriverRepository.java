@@ -1,10 +1,15 @@
 package com.aavtutov.spring.boot.spring_boot_taxi.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
@@ -15,4 +20,18 @@ public interface DriverRepository extends JpaRepository<DriverEntity, Long> {
 	Optional<DriverEntity> findByTelegramId(Long telegramId);
 
 	List<DriverEntity> findByStatus(DriverStatus driverStatus);
+
+	/**
+	 * Switches the status of many drivers in one statement, skipping those whose
+	 * status is no longer the expected one.
+	 * @return Number of drivers that were still in the expected status.
+	 */
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE DriverEntity d SET d.status = :newStatus " +
+		       "WHERE d.telegramId IN :telegramIds AND d.status = :expectedStatus")
+	int updateStatusIfCurrent(
+			@Param("telegramIds") Collection<Long> telegramIds,
+			@Param("newStatus") DriverStatus newStatus,
+			@Param("expectedStatus") DriverStatus expectedStatus);
 }
@@ -0,0 +1,31 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dao;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderOutboxEntity;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEntity, Long> {
+
+	/**
+	 * Locks the oldest undelivered entry of each order (SELECT ... FOR UPDATE SKIP LOCKED).
+	 * Later entries of an order wait until the earlier ones are gone, which keeps
+	 * per-order ordering across relays; rows locked by another relay are skipped.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2")})
+	@Query("SELECT e FROM OrderOutboxEntity e WHERE NOT EXISTS " +
+		       "(SELECT 1 FROM OrderOutboxEntity p WHERE p.orderId = e.orderId AND p.id < e.id) " +
+		       "ORDER BY e.id")
+	List<OrderOutboxEntity> lockNextPerOrder(Pageable pageable);
+}
@@ -1,16 +1,23 @@
 package com.aavtutov.spring.boot.spring_boot_taxi.dao;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderRow;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
 
@@ -24,6 +31,33 @@ public interface OrderRepository extends JpaRepository<OrderEntity, Long> {
 	@QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000")})
 	@Query("SELECT o FROM OrderEntity o WHERE o.id = :id")
 	Optional<OrderEntity> findByIdWithLock(@Param("id") Long id);
+	
+	/**
+	 * Conditional update used for lock-free acceptance.
+	 * @return Number of updated rows: 0 if the order is not in the expected status.
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("UPDATE OrderEntity o SET o.driver = :driver, o.status = :newStatus, o.acceptedAt = :acceptedAt " +
+		       "WHERE o.id = :id AND o.status = :expectedStatus")
+	int updateDriverAndStatusIfCurrent(
+			@Param("id") Long orderId,
+			@Param("driver") DriverEntity driver,
+			@Param("newStatus") OrderStatus newStatus,
+			@Param("acceptedAt") Instant acceptedAt,
+			@Param("expectedStatus") OrderStatus expectedStatus);
+
+	/**
+	 * Stores the route estimate unless one is already present.
+	 * @return Number of updated rows: 0 if the order is gone or already estimated.
+	 */
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE OrderEntity o SET o.aproximateDistance = :distance, o.aproximateDuration = :duration " +
+		       "WHERE o.id = :id AND o.aproximateDistance IS NULL")
+	int updateRouteEstimateIfMissing(
+			@Param("id") Long orderId,
+			@Param("distance") BigDecimal distanceKm,
+			@Param("duration") BigDecimal durationMinutes);
 
 	List<OrderEntity> findAllByStatus(OrderStatus status);
 	
@@ -33,10 +67,21 @@ public interface OrderRepository extends JpaRepository<OrderEntity, Long> {
 	@Query("SELECT o FROM OrderEntity o JOIN FETCH o.client LEFT JOIN FETCH o.driver WHERE o.id = :id")
 	Optional<OrderEntity> findByIdWithClientAndDriver(@Param("id") Long orderId);
 	
+	@Query("SELECT o.driver.id FROM OrderEntity o WHERE o.driver.id IN :driverIds AND o.status IN :statuses")
+	List<Long> findDriverIdsWithOrderStatusIn(
+			@Param("driverIds") Collection<Long> driverIds,
+			@Param("statuses") List<OrderStatus> statuses);
+	
+	/**
+	 * The Telegram id is resolved to client / driver ids first, so the order rows
+	 * are found through ux_orders_client_active / ux_orders_driver_active instead
+	 * of joining every active order to both tables.
+	 */
 	@Query("SELECT o FROM OrderEntity o " +
 		       "LEFT JOIN FETCH o.client " +
 		       "LEFT JOIN FETCH o.driver " +
-		       "WHERE (o.client.telegramId = :tgId OR o.driver.telegramId = :tgId) " +
+		       "WHERE (o.client.id = (SELECT c.id FROM ClientEntity c WHERE c.telegramId = :tgId) " +
+		       "OR o.driver.id = (SELECT d.id FROM DriverEntity d WHERE d.telegramId = :tgId)) " +
 		       "AND o.status IN (:statuses)")
 	Optional<OrderEntity> findActiveOrderForChat(
 		    @Param("tgId") Long telegramId, 
@@ -44,15 +89,66 @@ public interface OrderRepository extends JpaRepository<OrderEntity, Long> {
 
 	List<OrderEntity> findByDriverIdAndStatusIn(Long driverId, List<OrderStatus> statuses);
 
-	@EntityGraph(attributePaths = {"driver", "client"})
-	List<OrderEntity> findAllByClientIdOrderByCreatedAtDesc(Long clientId);
+	/**
+	 * Select list of {@link OrderRow}: the order columns plus the client and
+	 * (optional) driver columns shown in {@code OrderResponseDTO}. Expects the
+	 * order as {@code o}, its client as {@code c} and its driver as {@code d};
+	 * {@link ArchivedOrderRepository} reads archived orders with the same list.
+	 */
+	String ORDER_ROW_SELECT = "SELECT new com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderRow(" +
+		       "o.id, o.status, c.id, c.telegramId, c.fullName, " +
+		       "d.id, d.telegramId, d.fullName, d.carModel, d.carColor, d.licensePlate, " +
+		       "o.startAddress, o.endAddress, o.startLatitude, o.startLongitude, o.endLatitude, o.endLongitude, " +
+		       "o.aproximateDistance, o.aproximateDuration, o.actualDuration, o.price, o.bonusFare, o.totalPrice, " +
+		       "o.cancellationSource, o.notes, o.createdAt, o.acceptedAt, o.startedAt, o.completedAt, o.cancelledAt) ";
+
+	String ORDER_ROW = ORDER_ROW_SELECT + "FROM OrderEntity o JOIN o.client c LEFT JOIN o.driver d ";
+
+	@Query(ORDER_ROW + "WHERE o.id = :id")
+	Optional<OrderRow> findRowById(@Param("id") Long orderId);
+
+	@Query(ORDER_ROW + "WHERE o.status = :status ORDER BY o.createdAt")
+	List<OrderRow> findRowsByStatus(@Param("status") OrderStatus status);
+
+	@Query(ORDER_ROW + "WHERE o.driver.id = :driverId AND o.status IN (:statuses)")
+	List<OrderRow> findDriverRowsWithStatusIn(
+			@Param("driverId") Long driverId,
+			@Param("statuses") List<OrderStatus> statuses,
+			Limit limit);
+
+	/**
+	 * First page of the client's history, newest first.
+	 * Served by idx_orders_client_history, reads only {@code limit} rows.
+	 */
+	@Query(ORDER_ROW + "WHERE o.client.id = :clientId " +
+		       "ORDER BY o.createdAt DESC, o.id DESC")
+	List<OrderRow> findClientHistory(@Param("clientId") Long clientId, Limit limit);
 
-	@EntityGraph(attributePaths = {"driver", "client"})
-	List<OrderEntity> findAllByDriverIdOrderByCreatedAtDesc(Long driverId);
+	/**
+	 * Next page of the client's history: orders strictly after ({@code createdAt}, {@code id}).
+	 * The redundant {@code createdAt <=} bound lets the index range scan start at the cursor.
+	 */
+	@Query(ORDER_ROW + "WHERE o.client.id = :clientId " +
+		       "AND o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+		       "ORDER BY o.createdAt DESC, o.id DESC")
+	List<OrderRow> findClientHistoryAfter(
+			@Param("clientId") Long clientId,
+			@Param("createdAt") Instant createdAt,
+			@Param("id") Long id,
+			Limit limit);
 
-	Optional<OrderEntity> findTopByClientIdOrderByCreatedAtDesc(Long clientId);
+	@Query(ORDER_ROW + "WHERE o.driver.id = :driverId " +
+		       "ORDER BY o.createdAt DESC, o.id DESC")
+	List<OrderRow> findDriverHistory(@Param("driverId") Long driverId, Limit limit);
 
-	Optional<OrderEntity> findFirstByDriverIdAndStatusIn(Long driverId, List<OrderStatus> statuses);
+	@Query(ORDER_ROW + "WHERE o.driver.id = :driverId " +
+		       "AND o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+		       "ORDER BY o.createdAt DESC, o.id DESC")
+	List<OrderRow> findDriverHistoryAfter(
+			@Param("driverId") Long driverId,
+			@Param("createdAt") Instant createdAt,
+			@Param("id") Long id,
+			Limit limit);
 
 	boolean existsByClientIdAndStatusIn(Long clientId, List<OrderStatus> statuses);
 
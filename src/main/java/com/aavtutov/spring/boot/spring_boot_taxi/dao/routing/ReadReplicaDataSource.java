@@ -0,0 +1,74 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dao.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Connections for read-only transactions: the replica when the current thread
+ * may use it ({@link ReadRouting}), the primary otherwise.
+ *
+ * <p>
+ * Used as the read-only target of a {@code LazyConnectionDataSourceProxy}, which
+ * asks for a connection only after the transaction marked it read-only. When the
+ * replica cannot be reached the read falls back to the primary, and the replica
+ * is not tried again for {@code retryInterval}, so requests don't queue up on
+ * its connection timeout.
+ * </p>
+ */
+@Slf4j
+public class ReadReplicaDataSource extends DelegatingDataSource {
+
+	private final DataSource primary;
+	private final long retryIntervalNanos;
+	private final Counter replicaConnections;
+	private final Counter fallbacks;
+
+	private volatile boolean replicaDown;
+	private volatile long retryAt;
+
+	public ReadReplicaDataSource(DataSource replica, DataSource primary, Duration retryInterval,
+			MeterRegistry meterRegistry) {
+		super(replica);
+		this.primary = primary;
+		this.retryIntervalNanos = retryInterval.toNanos();
+		this.replicaConnections = Counter.builder("taxi.datasource.replica.connections")
+				.description("Read-only transactions served by the replica")
+				.register(meterRegistry);
+		this.fallbacks = Counter.builder("taxi.datasource.replica.fallbacks")
+				.description("Replica connections that failed and were replaced by a primary connection")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (!ReadRouting.isReplicaAllowed() || isReplicaDown()) {
+			return primary.getConnection();
+		}
+
+		try {
+			Connection connection = super.getConnection();
+			replicaDown = false;
+			replicaConnections.increment();
+			return connection;
+		} catch (SQLException e) {
+			retryAt = System.nanoTime() + retryIntervalNanos;
+			replicaDown = true;
+			fallbacks.increment();
+			log.warn("Read replica unavailable, reading from the primary: {}", e.getMessage());
+			return primary.getConnection();
+		}
+	}
+
+	private boolean isReplicaDown() {
+		return replicaDown && System.nanoTime() - retryAt < 0;
+	}
+}
@@ -0,0 +1,50 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dao.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread permission to read from the replica.
+ *
+ * <p>
+ * Only web requests opt in (see {@link ReadRoutingInterceptor}). Event
+ * listeners, the outbox relay and the dispatchers typically react to a write
+ * that was just committed, so their read-only transactions stay on the primary.
+ * The decision is taken when a transaction obtains its connection.
+ * </p>
+ */
+public final class ReadRouting {
+
+	private static final ThreadLocal<Boolean> REPLICA_ALLOWED = new ThreadLocal<>();
+
+	private ReadRouting() {
+	}
+
+	public static void allowReplica() {
+		REPLICA_ALLOWED.set(Boolean.TRUE);
+	}
+
+	public static void reset() {
+		REPLICA_ALLOWED.remove();
+	}
+
+	public static boolean isReplicaAllowed() {
+		return REPLICA_ALLOWED.get() != null;
+	}
+
+	/**
+	 * Runs a lookup on the primary even inside a web request, for reads that
+	 * decide a write (e.g. get-or-create). Has no effect on a transaction that
+	 * already holds a connection.
+	 */
+	public static <T> T onPrimary(Supplier<T> lookup) {
+		Boolean previous = REPLICA_ALLOWED.get();
+		REPLICA_ALLOWED.remove();
+		try {
+			return lookup.get();
+		} finally {
+			if (previous != null) {
+				REPLICA_ALLOWED.set(previous);
+			}
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dao.routing;
+
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.telegram.TelegramUserDTO;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Lets authenticated web requests read from the replica, unless the user sent
+ * a write request within the read-your-writes window. Runs after
+ * {@code TelegramAuthInterceptor}, which puts the user on the request.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadRoutingInterceptor implements HandlerInterceptor {
+
+	private static final Set<String> WRITE_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+	private final ReadYourWritesTracker readYourWritesTracker;
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		TelegramUserDTO user = (TelegramUserDTO) request.getAttribute("tgUser");
+		if (user != null && !readYourWritesTracker.wroteRecently(user.getId())) {
+			ReadRouting.allowReplica();
+		}
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		ReadRouting.reset();
+
+		TelegramUserDTO user = (TelegramUserDTO) request.getAttribute("tgUser");
+		if (user != null && WRITE_METHODS.contains(request.getMethod()) && response.getStatus() < 400) {
+			readYourWritesTracker.recordWrite(user.getId());
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dao.routing;
+
+import org.springframework.stereotype.Component;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.ReadReplicaProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Telegram ids that wrote within the read-your-writes window. Their requests
+ * read from the primary until the replica has caught up with the write.
+ *
+ * <p>
+ * Kept per instance: behind a balancer without sticky sessions a request on
+ * another instance may still read the replica inside the window.
+ * </p>
+ */
+@Component
+public class ReadYourWritesTracker {
+
+	private static final long MAXIMUM_SIZE = 100_000;
+
+	private final Cache<Long, Boolean> recentWriters;
+
+	public ReadYourWritesTracker(ReadReplicaProperties properties) {
+		this.recentWriters = Caffeine.newBuilder()
+				.maximumSize(MAXIMUM_SIZE)
+				.expireAfterWrite(properties.getReadYourWritesWindow())
+				.build();
+	}
+
+	public void recordWrite(Long telegramId) {
+		recentWriters.put(telegramId, Boolean.TRUE);
+	}
+
+	public boolean wroteRecently(Long telegramId) {
+		return recentWriters.getIfPresent(telegramId) != null;
+	}
+}
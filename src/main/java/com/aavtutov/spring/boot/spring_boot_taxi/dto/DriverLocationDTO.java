@@ -0,0 +1,28 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dto;
+
+import java.math.BigDecimal;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Current driver position reported together with the heartbeat.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DriverLocationDTO {
+
+	@DecimalMin("-90.0") @DecimalMax("90.0")
+	@NotNull(message = "Driver location: Latitude is required")
+	private BigDecimal latitude;
+
+	@DecimalMin("-180.0") @DecimalMax("180.0")
+	@NotNull(message = "Driver location: Longitude is required")
+	private BigDecimal longitude;
+
+}
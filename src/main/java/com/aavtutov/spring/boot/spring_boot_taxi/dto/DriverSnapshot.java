@@ -0,0 +1,23 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dto;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
+
+/**
+ * Immutable view of the driver fields needed on the request path (identity,
+ * status, chat). Cached by Telegram id, see {@code DriverService#findSnapshotByTelegramId}.
+ */
+public record DriverSnapshot(Long id, Long telegramId, DriverStatus status, String telegramChatId) {
+
+	public static DriverSnapshot of(DriverEntity driver) {
+		return new DriverSnapshot(
+				driver.getId(),
+				driver.getTelegramId(),
+				driver.getStatus(),
+				driver.getTelegramChatId());
+	}
+
+	public DriverSnapshot withStatus(DriverStatus newStatus) {
+		return new DriverSnapshot(id, telegramId, newStatus, telegramChatId);
+	}
+}
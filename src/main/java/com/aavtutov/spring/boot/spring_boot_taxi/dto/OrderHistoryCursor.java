@@ -0,0 +1,43 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position in an order history, ordered by {@code (createdAt, id)} descending.
+ * A page continues with the orders strictly after the last one it returned;
+ * the id breaks ties between orders created in the same instant.
+ *
+ * <p>
+ * Sent to clients as an opaque URL-safe token, see {@link #encode()}.
+ * </p>
+ */
+public record OrderHistoryCursor(Instant createdAt, Long id) {
+
+	public static OrderHistoryCursor of(OrderRow order) {
+		return new OrderHistoryCursor(order.createdAt(), order.id());
+	}
+
+	public String encode() {
+		String raw = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+	 */
+	public static OrderHistoryCursor decode(String token) {
+		try {
+			String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII).split(":");
+			if (parts.length != 3) {
+				throw new IllegalArgumentException("Invalid history cursor");
+			}
+			Instant createdAt = Instant.ofEpochSecond(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+			return new OrderHistoryCursor(createdAt, Long.valueOf(parts[2]));
+		} catch (IllegalArgumentException | DateTimeException e) {
+			throw new IllegalArgumentException("Invalid history cursor", e);
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of an order history, newest first.
+ * {@code nextCursor} is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryPageDTO {
+
+	private List<OrderResponseDTO> orders;
+
+	private String nextCursor;
+
+}
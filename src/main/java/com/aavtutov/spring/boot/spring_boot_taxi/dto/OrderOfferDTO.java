@@ -0,0 +1,26 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Order offer pushed to a single driver.
+ * The order payload and expiry are only present for OFFERED messages.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderOfferDTO {
+
+	private OrderOfferType type;
+
+	private Long orderId;
+
+	private OrderResponseDTO order;
+
+	private Instant expiresAt;
+
+}
@@ -0,0 +1,24 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dto;
+
+/**
+ * Kind of message sent to a driver on the offers queue.
+ */
+public enum OrderOfferType {
+
+	/**
+	 * The order is offered to this driver until the offer expires. Sent again
+	 * with the same expiry when the order changes (e.g. route estimates).
+	 */
+	OFFERED,
+
+	/**
+	 * The order is no longer available (accepted or cancelled).
+	 */
+	WITHDRAWN,
+
+	/**
+	 * The order was assigned to this driver by the batch dispatcher.
+	 */
+	ASSIGNED;
+
+}
@@ -46,6 +46,9 @@ public class OrderResponseDTO {
 	private BigDecimal aproximateDistance;
 
 	private BigDecimal aproximateDuration;
+
+	/** True while the route estimate for a pending order has not arrived yet. */
+	private boolean routeEstimating;
 	
 	private BigDecimal actualDuration;
 
@@ -0,0 +1,47 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderCancellationSource;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
+
+/**
+ * Flat, read-only view of an order with the client and driver columns that
+ * {@link OrderResponseDTO} shows. Selected straight from the query
+ * ({@code SELECT new ...}, see {@code OrderRepository#ORDER_ROW}), so no
+ * entities, proxies or persistence context snapshots are created on read paths.
+ * The driver columns are null while no driver is assigned.
+ */
+public record OrderRow(
+		Long id,
+		OrderStatus status,
+		Long clientId,
+		Long clientTelegramId,
+		String clientFullName,
+		Long driverId,
+		Long driverTelegramId,
+		String driverFullName,
+		String driverCarModel,
+		String driverCarColor,
+		String driverLicensePlate,
+		String startAddress,
+		String endAddress,
+		BigDecimal startLatitude,
+		BigDecimal startLongitude,
+		BigDecimal endLatitude,
+		BigDecimal endLongitude,
+		BigDecimal aproximateDistance,
+		BigDecimal aproximateDuration,
+		BigDecimal actualDuration,
+		BigDecimal price,
+		BigDecimal bonusFare,
+		BigDecimal totalPrice,
+		OrderCancellationSource cancellationSource,
+		String notes,
+		Instant createdAt,
+		Instant acceptedAt,
+		Instant startedAt,
+		Instant completedAt,
+		Instant cancelledAt) {
+}
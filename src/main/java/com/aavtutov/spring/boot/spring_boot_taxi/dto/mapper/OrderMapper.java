@@ -4,15 +4,61 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.ReportingPolicy;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.ClientResponseDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverResponseDTO;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderCreateDTO;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderResponseDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderRow;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
 
-@Mapper(uses = {ClientMapper.class, DriverMapper.class}, unmappedTargetPolicy = ReportingPolicy.IGNORE)
+@Mapper(uses = {ClientMapper.class, DriverMapper.class}, imports = OrderStatus.class,
+		unmappedTargetPolicy = ReportingPolicy.IGNORE)
 public interface OrderMapper {
 	
+	@Mapping(target = "routeEstimating",
+			expression = "java(entity.getStatus() == OrderStatus.PENDING && entity.getAproximateDistance() == null)")
 	OrderResponseDTO toResponseDto(OrderEntity entity);
 	
+	/**
+	 * Same shape as {@link #toResponseDto(OrderEntity)}, built from a projection.
+	 */
+	default OrderResponseDTO toResponseDto(OrderRow row) {
+		if (row == null) {
+			return null;
+		}
+		ClientResponseDTO client = new ClientResponseDTO(row.clientId(), row.clientTelegramId(), row.clientFullName());
+		DriverResponseDTO driver = row.driverId() == null ? null : new DriverResponseDTO(
+				row.driverId(), row.driverTelegramId(), row.driverFullName(),
+				row.driverCarModel(), row.driverCarColor(), row.driverLicensePlate());
+
+		return new OrderResponseDTO(
+				row.id(),
+				client,
+				driver,
+				row.status(),
+				row.startAddress(),
+				row.endAddress(),
+				row.startLatitude(),
+				row.startLongitude(),
+				row.endLatitude(),
+				row.endLongitude(),
+				row.aproximateDistance(),
+				row.aproximateDuration(),
+				row.status() == OrderStatus.PENDING && row.aproximateDistance() == null,
+				row.actualDuration(),
+				row.price(),
+				row.bonusFare(),
+				row.createdAt(),
+				row.acceptedAt(),
+				row.startedAt(),
+				row.completedAt(),
+				row.cancelledAt(),
+				row.cancellationSource(),
+				row.totalPrice(),
+				row.notes());
+	}
+
 	OrderEntity fromResponseDto(OrderResponseDTO dto);
 	
 	@Mapping(target = "bonusFare", source = "bonusFare", defaultValue = "0")
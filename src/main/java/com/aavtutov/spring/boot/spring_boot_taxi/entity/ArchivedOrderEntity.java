@@ -0,0 +1,103 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.entity;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Completed or cancelled order moved out of {@code orders} by {@code OrderArchiver}.
+ * Same columns and id as the original row; read-only, only read back for the histories.
+ */
+@Entity
+@Immutable
+@Table(name = "orders_archive", indexes = {
+		@Index(name = "idx_orders_archive_client_history", columnList = "client_id, created_at DESC, id DESC"),
+		@Index(name = "idx_orders_archive_driver_history", columnList = "driver_id, created_at DESC, id DESC")
+})
+@Getter
+@NoArgsConstructor
+public class ArchivedOrderEntity {
+
+	@Id
+	private Long id;
+
+	// Relationships
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "client_id", nullable = false)
+	private ClientEntity client;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "driver_id")
+	private DriverEntity driver;
+
+	// Status and Cancellation
+	@Enumerated(EnumType.STRING)
+	private OrderStatus status;
+
+	@Enumerated(EnumType.STRING)
+	private OrderCancellationSource cancellationSource;
+
+	// Route Details
+	@Column(nullable = false)
+	private String startAddress;
+
+	@Column(nullable = false)
+	private String endAddress;
+
+	@Column(nullable = false, precision = 10, scale = 8)
+	private BigDecimal startLatitude;
+
+	@Column(nullable = false, precision = 11, scale = 8)
+	private BigDecimal startLongitude;
+
+	@Column(nullable = false, precision = 10, scale = 8)
+	private BigDecimal endLatitude;
+
+	@Column(nullable = false, precision = 11, scale = 8)
+	private BigDecimal endLongitude;
+
+	// Estimation and Pricing
+	@Column(precision = 10, scale = 3)
+	private BigDecimal aproximateDistance;
+
+	@Column(precision = 10, scale = 2)
+	private BigDecimal aproximateDuration;
+
+	@Column(precision = 10, scale = 2)
+	private BigDecimal actualDuration;
+
+	@Column(nullable = false)
+	private BigDecimal price;
+
+	@Column(nullable = false)
+	private BigDecimal bonusFare;
+
+	@Column(nullable = false)
+	private BigDecimal totalPrice;
+
+	private String notes;
+
+	// Lifecycle Timestamps
+	@Column(nullable = false)
+	private Instant createdAt;
+
+	private Instant acceptedAt;
+	private Instant startedAt;
+	private Instant completedAt;
+	private Instant cancelledAt;
+
+}
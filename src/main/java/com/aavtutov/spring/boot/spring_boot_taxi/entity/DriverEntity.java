@@ -11,6 +11,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -30,7 +31,8 @@ import lombok.Setter;
 public class DriverEntity {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "drivers_seq")
+	@SequenceGenerator(name = "drivers_seq", sequenceName = "drivers_seq", allocationSize = 50)
 	private Long id;
 
 	@Column(name = "telegram_user_id", unique = true, nullable = false)
@@ -13,8 +13,10 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -26,7 +28,11 @@ import lombok.Setter;
  * Manages route coordinates, pricing, and status transitions from creation to completion.
  */
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+		// Keyset pagination of the order histories, see OrderRepository#findClientHistoryAfter
+		@Index(name = "idx_orders_client_history", columnList = "client_id, created_at DESC, id DESC"),
+		@Index(name = "idx_orders_driver_history", columnList = "driver_id, created_at DESC, id DESC")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -34,7 +40,8 @@ import lombok.Setter;
 public class OrderEntity {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+	@SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
 	private Long id;
 
 	// Relationships
@@ -72,12 +79,12 @@ public class OrderEntity {
 	@Column(nullable = false, precision = 11, scale = 8)
 	private BigDecimal endLongitude;
 
-	// Estimation and Pricing
+	// Estimation and Pricing (null while the route is still being estimated)
 	@Column(precision = 10, scale = 3)
-	private BigDecimal aproximateDistance = BigDecimal.ZERO;
+	private BigDecimal aproximateDistance;
 
 	@Column(precision = 10, scale = 2)
-	private BigDecimal aproximateDuration = BigDecimal.ZERO;
+	private BigDecimal aproximateDuration;
 
 	@Column(precision = 10, scale = 2)
 	private BigDecimal actualDuration;
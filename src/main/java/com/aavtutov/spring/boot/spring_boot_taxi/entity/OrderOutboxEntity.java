@@ -0,0 +1,56 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.entity;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Order status change waiting to be delivered to the event listeners.
+ * Written in the transaction that changes the order, deleted once delivered.
+ * The table is created by the Flyway migration V2 (id sequence: V3).
+ */
+@Entity
+@Table(name = "order_outbox", indexes = @Index(name = "idx_order_outbox_order_id", columnList = "order_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderOutboxEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_outbox_seq")
+	@SequenceGenerator(name = "order_outbox_seq", sequenceName = "order_outbox_seq", allocationSize = 50)
+	private Long id;
+
+	@Column(name = "order_id", nullable = false)
+	private Long orderId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private OrderStatus status;
+
+	@Enumerated(EnumType.STRING)
+	private OrderCancellationSource cancellationSource;
+
+	/** Failed delivery attempts so far. */
+	@Column(nullable = false)
+	private int attempts;
+
+	@CreationTimestamp
+	@Column(updatable = false, nullable = false)
+	private Instant createdAt;
+
+}
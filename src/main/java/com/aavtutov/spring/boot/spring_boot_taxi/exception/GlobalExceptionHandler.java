@@ -2,6 +2,7 @@ package com.aavtutov.spring.boot.spring_boot_taxi.exception;
 
 import java.time.Instant;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -44,6 +45,14 @@ public class GlobalExceptionHandler {
     	return buildErrorResponse(exception, HttpStatus.CONFLICT, request);
     }
     
+    // 409 Conflict raised by a database constraint (e.g. a second active order slipping past the validator)
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<IncorrectData> handleDataIntegrityViolation(DataIntegrityViolationException exception,
+    		HttpServletRequest request) {
+    	log.warn("Constraint violation at path: {}: {}", request.getRequestURI(), exception.getMostSpecificCause().getMessage());
+    	return buildErrorResponse("The request conflicts with the current state of the data", HttpStatus.CONFLICT, request);
+    }
+    
     // 400 Bad Request
     @ExceptionHandler({
             IllegalArgumentException.class,
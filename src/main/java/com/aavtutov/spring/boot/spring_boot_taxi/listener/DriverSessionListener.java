@@ -0,0 +1,38 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.listener;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.security.TelegramPrincipal;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.DriverService;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.presence.DriverSessionRegistry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Takes a driver offline shortly after their last heartbeat WebSocket closes,
+ * instead of waiting for the presence timeout. The grace period
+ * ({@code driver.presence.disconnectGraceMs}) covers the reconnect of the next
+ * page; drivers on a trip are never taken offline this way.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DriverSessionListener {
+
+	private final DriverService driverService;
+	private final DriverSessionRegistry driverSessionRegistry;
+
+	@EventListener
+	public void handleSessionDisconnect(SessionDisconnectEvent event) {
+		if (!(event.getUser() instanceof TelegramPrincipal principal)) {
+			return;
+		}
+		if (driverSessionRegistry.unregister(principal.telegramId(), event.getSessionId())) {
+			log.debug("Driver {} disconnected, going offline unless they reconnect", principal.telegramId());
+			driverService.deactivateAfterDisconnect(principal.telegramId());
+		}
+	}
+}
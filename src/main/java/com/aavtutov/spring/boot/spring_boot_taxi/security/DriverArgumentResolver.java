@@ -8,12 +8,18 @@ import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.ModelAndViewContainer;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverSnapshot;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.telegram.TelegramUserDTO;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.service.DriverService;
 
 import lombok.RequiredArgsConstructor;
 
+/**
+ * Resolves the authenticated driver for controller methods. {@link DriverSnapshot}
+ * parameters are served from the driver cache; {@link DriverEntity} parameters
+ * still load the full entity.
+ */
 @Component
 @RequiredArgsConstructor
 public class DriverArgumentResolver implements HandlerMethodArgumentResolver {
@@ -22,7 +28,8 @@ public class DriverArgumentResolver implements HandlerMethodArgumentResolver {
 	
 	@Override
     public boolean supportsParameter(MethodParameter parameter) {
-        return parameter.getParameterType().equals(DriverEntity.class);
+        Class<?> type = parameter.getParameterType();
+        return type.equals(DriverSnapshot.class) || type.equals(DriverEntity.class);
     }
 	
 	@Override
@@ -37,6 +44,9 @@ public class DriverArgumentResolver implements HandlerMethodArgumentResolver {
             throw new IllegalStateException("TelegramUserDTO missing in request.");
         }
 
+        if (parameter.getParameterType().equals(DriverSnapshot.class)) {
+            return driverService.findSnapshotByTelegramId(tgUser.getId());
+        }
         return driverService.findDriverByTelegramId(tgUser.getId());
     }
 }
@@ -0,0 +1,21 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.security;
+
+import java.security.Principal;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.telegram.TelegramUserDTO;
+
+/**
+ * WebSocket session user, authenticated once at STOMP CONNECT.
+ * The name is the Telegram id, which is what user destinations are keyed by.
+ */
+public record TelegramPrincipal(TelegramUserDTO user) implements Principal {
+
+	public Long telegramId() {
+		return user.getId();
+	}
+
+	@Override
+	public String getName() {
+		return String.valueOf(user.getId());
+	}
+}
@@ -0,0 +1,77 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.security;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.telegram.TelegramUserDTO;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * STOMP counterpart of {@link TelegramAuthInterceptor}: validates the initData
+ * sent with CONNECT once and binds a {@link TelegramPrincipal} to the session,
+ * so later frames need no further checks.
+ *
+ * <p>
+ * A CONNECT without initData stays anonymous (public order status topics);
+ * invalid initData rejects the connection. Anonymous sessions cannot send to
+ * the driver destinations ({@code /app/driver/**}).
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TelegramStompAuthInterceptor implements ChannelInterceptor {
+
+	public static final String INIT_DATA_HEADER = "X-Telegram-Init-Data";
+
+	private static final String DRIVER_DESTINATION_PREFIX = "/app/driver/";
+
+	private final TelegramWebAppAuthValidator authValidator;
+
+	@Override
+	public Message<?> preSend(Message<?> message, MessageChannel channel) {
+		StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+		if (accessor == null) {
+			return message;
+		}
+		if (accessor.getCommand() == StompCommand.SEND) {
+			return requirePrincipalForDriverFrames(message, accessor);
+		}
+		if (accessor.getCommand() != StompCommand.CONNECT) {
+			return message;
+		}
+
+		String initData = accessor.getFirstNativeHeader(INIT_DATA_HEADER);
+		if (initData == null || initData.isBlank()) {
+			return message;
+		}
+
+		try {
+			TelegramUserDTO user = authValidator.validate(initData);
+			accessor.setUser(new TelegramPrincipal(user));
+			return message;
+		} catch (Exception e) {
+			log.warn("WebSocket authentication failed: {}", e.getMessage());
+			throw new MessageDeliveryException(message, "Invalid Telegram Init Data");
+		}
+	}
+
+	// Private Helpers
+
+	private Message<?> requirePrincipalForDriverFrames(Message<?> message, StompHeaderAccessor accessor) {
+		String destination = accessor.getDestination();
+		if (destination != null && destination.startsWith(DRIVER_DESTINATION_PREFIX)
+				&& !(accessor.getUser() instanceof TelegramPrincipal)) {
+			throw new MessageDeliveryException(message, "Driver frames require an authenticated session");
+		}
+		return message;
+	}
+}
@@ -2,19 +2,29 @@ package com.aavtutov.spring.boot.spring_boot_taxi.security;
 
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.Map;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.config.TelegramAuthProperties;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.telegram.TelegramUserDTO;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 /**
  * Component responsible for validating the authenticity and integrity of the
@@ -24,64 +34,148 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * This process follows the Telegram documentation for cryptographic
  * verification using HMAC-SHA256 hash calculation and the bot's token.
  * </p>
+ *
+ * <p>
+ * The secret key is derived from the bot token once. Successfully validated
+ * initData strings are cached with the user they carry until their
+ * {@code auth_date} is older than {@code telegram.auth.initDataMaxAge}, so the
+ * same WebApp session (e.g. driver heartbeats) is verified only once. The cache
+ * is keyed by the whole initData string: any changed byte is a miss.
+ * </p>
  */
 @Component
 public class TelegramWebAppAuthValidator {
 
-	private final String botToken;
-	private final ObjectMapper objectMapper;
-	
 	private static final String HMAC_SHA256 = "HmacSHA256";
+	private static final int HASH_BYTES = 32;
+
+	private final ObjectMapper objectMapper;
+	private final SecretKeySpec secretKey;
+	private final ThreadLocal<Mac> macs;
+	private final long maxAgeSeconds;
+	private final Cache<String, ValidatedInitData> validatedCache;
+	private final Clock clock;
 
+	@Autowired
 	public TelegramWebAppAuthValidator(
 			@Value("${telegram.bot.token}") String botToken,
-			ObjectMapper objectMapper) {
-		this.botToken = botToken.trim();
+			ObjectMapper objectMapper,
+			TelegramAuthProperties authProperties,
+			MeterRegistry meterRegistry) {
+		this(botToken, objectMapper, authProperties, meterRegistry, Clock.systemUTC());
+	}
+
+	TelegramWebAppAuthValidator(
+			String botToken,
+			ObjectMapper objectMapper,
+			TelegramAuthProperties authProperties,
+			MeterRegistry meterRegistry,
+			Clock clock) {
 		this.objectMapper = objectMapper;
+		this.secretKey = deriveSecretKey(botToken.trim());
+		this.macs = ThreadLocal.withInitial(this::newMac);
+		this.maxAgeSeconds = authProperties.getInitDataMaxAge().toSeconds();
+		this.clock = clock;
+
+		if (authProperties.getCacheSize() > 0) {
+			this.validatedCache = Caffeine.newBuilder()
+					.maximumSize(authProperties.getCacheSize())
+					.expireAfter(new ExpireAtAuthDateLimit())
+					.recordStats()
+					.build();
+			CaffeineCacheMetrics.monitor(meterRegistry, validatedCache, "telegram.initdata");
+		} else {
+			this.validatedCache = null;
+		}
 	}
 
 	/**
      * Verifies Telegram WebApp initData and returns authenticated user details.
      */
 	public TelegramUserDTO validate(String initData) throws SecurityException {
+		if (validatedCache != null) {
+			ValidatedInitData cached = validatedCache.getIfPresent(initData);
+			if (cached != null && !isExpired(cached.expiresAtEpochSecond())) {
+				return cached.user();
+			}
+		}
+
+		ValidatedInitData validated = verify(initData);
+		if (validatedCache != null) {
+			validatedCache.put(initData, validated);
+		}
+		return validated.user();
+	}
 
-		// 1. Parse into sorted map. TreeMap ensures lexicographical sorting.
-		Map<String, String> dataMap = Arrays.stream(initData.split("&"))
-				.map(s -> s.split("=", 2))
-				.collect(Collectors.toMap(
-						a -> a[0],
-						a -> a.length > 1 ? URLDecoder.decode(a[1], StandardCharsets.UTF_8) : "",
-						(a, b) -> a,
-						TreeMap::new
-				));
-
-		String receivedHash = dataMap.remove("hash");
+	// Private Helpers
+
+	private ValidatedInitData verify(String initData) {
+
+		// 1. Split into decoded key/value pairs, keeping the hash apart
+		List<String[]> pairs = new ArrayList<>(8);
+		String receivedHash = null;
+		int start = 0;
+		while (start <= initData.length()) {
+			int end = initData.indexOf('&', start);
+			if (end < 0) {
+				end = initData.length();
+			}
+			int eq = initData.indexOf('=', start);
+			if (eq < 0 || eq > end) {
+				eq = end;
+			}
+			String key = initData.substring(start, eq);
+			String value = eq < end ? decode(initData.substring(eq + 1, end)) : "";
+			if ("hash".equals(key)) {
+				receivedHash = value;
+			} else if (!key.isEmpty()) {
+				pairs.add(new String[] {key, value});
+			}
+			start = end + 1;
+		}
 		if (receivedHash == null) throw new SecurityException("Hash not found in initData");
 
-		// 2. Prepare data check string
-		String dataCheckString = dataMap.entrySet().stream()
-				.map(entry -> entry.getKey() + "=" + entry.getValue())
-				.collect(Collectors.joining("\n"));
+		// 2. Prepare data check string (keys in lexicographical order)
+		pairs.sort(Comparator.comparing(pair -> pair[0]));
+		StringBuilder dataCheckString = new StringBuilder(initData.length());
+		String user = null;
+		String authDate = null;
+		for (String[] pair : pairs) {
+			if (dataCheckString.length() > 0) {
+				dataCheckString.append('\n');
+			}
+			dataCheckString.append(pair[0]).append('=').append(pair[1]);
+			if ("user".equals(pair[0])) {
+				user = pair[1];
+			} else if ("auth_date".equals(pair[0])) {
+				authDate = pair[1];
+			}
+		}
 
 		// 3. Verify Signature
-		if (!verifyHash(dataCheckString, receivedHash)) {
+		if (!verifyHash(dataCheckString.toString(), receivedHash)) {
 			throw new SecurityException("Data integrity violation: Hash mismatch");
 		}
-		
-		// 4. Extract User
-		return parseUser(dataMap.get("user"));
+
+		// 4. Check freshness
+		long expiresAt = parseAuthDate(authDate) + maxAgeSeconds;
+		if (isExpired(expiresAt)) {
+			throw new SecurityException("Init data expired");
+		}
+
+		// 5. Extract User
+		return new ValidatedInitData(parseUser(user), expiresAt);
 	}
-	
+
 	private boolean verifyHash(String data, String receivedHash) {
-        try {
-            Mac mac = Mac.getInstance(HMAC_SHA256);
-            mac.init(getSecretKeySpec());
-            byte[] calculatedHashBytes = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return hex(calculatedHashBytes).equalsIgnoreCase(receivedHash);
-        } catch (Exception e) {
-            throw new SecurityException("Auth algorithm failure", e);
-        }
-    }
+		byte[] expected = decodeHex(receivedHash);
+		if (expected == null) {
+			return false;
+		}
+		byte[] calculated = macs.get().doFinal(data.getBytes(StandardCharsets.UTF_8));
+		// Constant-time comparison of the raw bytes
+		return MessageDigest.isEqual(calculated, expected);
+	}
 
     private TelegramUserDTO parseUser(String json) {
         if (json == null) throw new SecurityException("User data missing");
@@ -92,31 +186,95 @@ public class TelegramWebAppAuthValidator {
         }
     }
 
-	private SecretKeySpec getSecretKeySpec() throws Exception {
-		Mac mac = Mac.getInstance(HMAC_SHA256);
-		mac.init(new SecretKeySpec("WebAppData".getBytes(StandardCharsets.UTF_8), HMAC_SHA256));
-		return new SecretKeySpec(mac.doFinal(this.botToken.getBytes(StandardCharsets.UTF_8)), HMAC_SHA256);
+	private long parseAuthDate(String authDate) {
+		if (authDate == null) throw new SecurityException("auth_date missing");
+		try {
+			return Long.parseLong(authDate);
+		} catch (NumberFormatException e) {
+			throw new SecurityException("Invalid auth_date", e);
+		}
+	}
+
+	private boolean isExpired(long expiresAtEpochSecond) {
+		return clock.millis() / 1000 >= expiresAtEpochSecond;
+	}
+
+	private static String decode(String value) {
+		return (value.indexOf('%') < 0 && value.indexOf('+') < 0)
+				? value
+				: URLDecoder.decode(value, StandardCharsets.UTF_8);
+	}
+
+	private static byte[] decodeHex(String hex) {
+		if (hex.length() != HASH_BYTES * 2) {
+			return null;
+		}
+		byte[] bytes = new byte[HASH_BYTES];
+		for (int i = 0; i < HASH_BYTES; i++) {
+			int high = Character.digit(hex.charAt(2 * i), 16);
+			int low = Character.digit(hex.charAt(2 * i + 1), 16);
+			if (high < 0 || low < 0) {
+				return null;
+			}
+			bytes[i] = (byte) ((high << 4) | low);
+		}
+		return bytes;
+	}
+
+	private static SecretKeySpec deriveSecretKey(String botToken) {
+		try {
+			Mac mac = Mac.getInstance(HMAC_SHA256);
+			mac.init(new SecretKeySpec("WebAppData".getBytes(StandardCharsets.UTF_8), HMAC_SHA256));
+			return new SecretKeySpec(mac.doFinal(botToken.getBytes(StandardCharsets.UTF_8)), HMAC_SHA256);
+		} catch (Exception e) {
+			throw new IllegalStateException("Auth algorithm failure", e);
+		}
 	}
 
-	private String hex(byte[] bytes) {
-		StringBuilder sb = new StringBuilder();
-		for (byte b : bytes) sb.append(String.format("%02x", b));
-		return sb.toString();
+	private Mac newMac() {
+		try {
+			Mac mac = Mac.getInstance(HMAC_SHA256);
+			mac.init(secretKey);
+			return mac;
+		} catch (Exception e) {
+			throw new SecurityException("Auth algorithm failure", e);
+		}
 	}
-	
+
 	/**
      * Warms up CPU-intensive libraries (Crypto and JSON) to eliminate "cold start"
      * latency on the first request.
      */
 	public void warmup() {
 		try {
-			Mac hmac = Mac.getInstance(HMAC_SHA256);
-			byte[] key = "warmup-key".getBytes();
-			hmac.init(new SecretKeySpec(key, HMAC_SHA256));
-			hmac.doFinal("warmup-data".getBytes());
-			
+			macs.get().doFinal("warmup-data".getBytes(StandardCharsets.UTF_8));
 			objectMapper.readTree("{}");
 		} catch (Exception ignored) {
 		}
 	}
+
+	private record ValidatedInitData(TelegramUserDTO user, long expiresAtEpochSecond) {
+	}
+
+	/**
+	 * Keeps each entry only until its initData expires.
+	 */
+	private final class ExpireAtAuthDateLimit implements Expiry<String, ValidatedInitData> {
+
+		@Override
+		public long expireAfterCreate(String key, ValidatedInitData value, long currentTime) {
+			long remainingSeconds = value.expiresAtEpochSecond() - clock.millis() / 1000;
+			return TimeUnit.SECONDS.toNanos(Math.max(0, remainingSeconds));
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, ValidatedInitData value, long currentTime, long currentDuration) {
+			return expireAfterCreate(key, value, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(String key, ValidatedInitData value, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
 }
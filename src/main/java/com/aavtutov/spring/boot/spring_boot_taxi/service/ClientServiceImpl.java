@@ -1,30 +1,63 @@
 package com.aavtutov.spring.boot.spring_boot_taxi.service;
 
+import java.util.Objects;
 import java.util.Optional;
 
 import org.springframework.stereotype.Service;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.config.ClientCacheProperties;
 import com.aavtutov.spring.boot.spring_boot_taxi.dao.ClientRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.routing.ReadRouting;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.mapper.ClientMapper;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.telegram.TelegramUserDTO;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.exception.ClientNotFoundException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
-import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
-
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
+/**
+ * Client lookups. Clients resolved for web requests are cached by Telegram id,
+ * so an authenticated request usually needs no database access at all; the
+ * name is only written back when Telegram reports a different one.
+ */
 @Service
-@RequiredArgsConstructor
 public class ClientServiceImpl implements ClientService {
 
 	private final ClientRepository clientRepository;
 	private final ClientMapper clientMapper;
+	private final Cache<Long, ClientEntity> clientsByTelegramId;
+	private final DistributionSummary roundTripsAvoided;
 
+	public ClientServiceImpl(
+			ClientRepository clientRepository,
+			ClientMapper clientMapper,
+			MeterRegistry meterRegistry,
+			ClientCacheProperties cacheProperties) {
+		this.clientRepository = clientRepository;
+		this.clientMapper = clientMapper;
+		this.clientsByTelegramId = Caffeine.newBuilder()
+				.maximumSize(cacheProperties.getMaximumSize())
+				.expireAfterWrite(cacheProperties.getTtl())
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, clientsByTelegramId, "clients");
+		this.roundTripsAvoided = DistributionSummary.builder("taxi.client.identity.db_roundtrips_avoided")
+				.description("Database round trips saved per resolved client (SELECT and UPDATE)")
+				.register(meterRegistry);
+	}
 
+	/**
+     * Saves the client and drops its cached copy (bot registration, chat id changes).
+     */
 	@Override
 	public ClientEntity save(ClientEntity client) {
-		return clientRepository.save(client);
+		ClientEntity saved = clientRepository.save(client);
+		clientsByTelegramId.invalidate(saved.getTelegramId());
+		return saved;
 	}
 
 	@Override
@@ -44,20 +77,46 @@ public class ClientServiceImpl implements ClientService {
 				.orElseThrow(() -> new ClientNotFoundException("Client not found: " + clientId));
 	}
 
-	@Transactional
 	@Override
 	public ClientEntity getOrCreateClient(TelegramUserDTO tgUser) {
-		return clientRepository.findByTelegramId(tgUser.getId())
-				.map(client -> updateExistingClient(client, tgUser))
+		ClientEntity cached = clientsByTelegramId.getIfPresent(tgUser.getId());
+		if (cached != null && Objects.equals(cached.getFullName(), tgUser.getFirstName())) {
+			roundTripsAvoided.record(2);
+			return copyOf(cached);
+		}
+
+		// Looked up on the primary: a client missing on a lagging replica would be inserted twice
+		ClientEntity client = ReadRouting.onPrimary(() -> clientRepository.findByTelegramId(tgUser.getId()))
+				.map(existing -> updateExistingClient(existing, tgUser))
 				.orElseGet(() -> createNewClient(tgUser));
+
+		clientsByTelegramId.put(client.getTelegramId(), copyOf(client));
+		return client;
 	}
-	
+
 	private ClientEntity updateExistingClient(ClientEntity client, TelegramUserDTO tgUser) {
+		if (Objects.equals(client.getFullName(), tgUser.getFirstName())) {
+			roundTripsAvoided.record(1);
+			return client;
+		}
         client.setFullName(tgUser.getFirstName());
+        roundTripsAvoided.record(0);
         return clientRepository.save(client);
     }
 
     private ClientEntity createNewClient(TelegramUserDTO tgUser) {
+    	roundTripsAvoided.record(0);
         return clientRepository.save(clientMapper.toEntity(tgUser));
     }
+
+    // Cached instances are never handed out, callers get their own detached copy
+    private static ClientEntity copyOf(ClientEntity client) {
+    	return new ClientEntity(
+    			client.getId(),
+    			client.getTelegramId(),
+    			client.getTelegramChatId(),
+    			client.getFullName(),
+    			client.getPhoneNumber(),
+    			client.getCreatedAt());
+    }
 }
@@ -3,6 +3,7 @@ package com.aavtutov.spring.boot.spring_boot_taxi.service;
 import java.util.List;
 import java.util.Optional;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverSnapshot;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
 
@@ -25,18 +26,35 @@ public interface DriverService {
 
 	Optional<DriverEntity> findByTelegramId(Long telegramId);
 
+	/**
+     * Cached read-only view of the driver for the request path.
+     */
+	DriverSnapshot findSnapshotByTelegramId(Long telegramId);
+
 	DriverEntity findDriverById(Long driverId);
 
 	/**
      * Activates the driver and resets the auto-deactivation timer (heartbeat).
+     * @return The driver's snapshot after activation.
      */
-	void activateDriverByHeartbeat(DriverEntity driver);
+	DriverSnapshot activateDriverByHeartbeat(DriverSnapshot driver);
+
+	/**
+     * Records the last known position of an ACTIVE driver for proximity dispatch.
+     */
+	void updateDriverLocation(DriverSnapshot driver, double latitude, double longitude);
 
 	/**
      * Manually sets the driver to INACTIVE (off-duty).
      */
 	void deactivateDriver(Long telegramId);
 
+	/**
+     * Takes the driver offline after the disconnect grace period unless a heartbeat
+     * arrives first (the driver's last WebSocket closed, e.g. on a page change).
+     */
+	void deactivateAfterDisconnect(Long telegramId);
+
 	/**
      * Administrative update for driver status, including BANNED or APPROVED states.
      */
@@ -1,39 +1,107 @@
 package com.aavtutov.spring.boot.spring_boot_taxi.service;
 
-import java.time.Instant;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
+import java.util.Set;
 
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DriverCacheProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.config.WebSocketBrokerProperties;
 import com.aavtutov.spring.boot.spring_boot_taxi.dao.DriverRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.routing.ReadRouting;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverSnapshot;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
 import com.aavtutov.spring.boot.spring_boot_taxi.event.DriverStatusChangedEvent;
 import com.aavtutov.spring.boot.spring_boot_taxi.exception.DriverAlreadyExistsException;
 import com.aavtutov.spring.boot.spring_boot_taxi.exception.DriverNotFoundException;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.DriverLocationIndex;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.presence.DriverPresenceTracker;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.presence.DriverPresenceTracker.ExpiredDriver;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.presence.DriverStatusWriteBehind;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Driver lifecycle. Authenticated driver requests work on {@link DriverSnapshot}s
+ * cached by Telegram id; an entry is dropped whenever the driver's status changes
+ * (heartbeat activation, deactivation, {@link DriverStatusChangedEvent}), so an
+ * online driver costs no driver query per request.
+ *
+ * <p>
+ * Online presence is kept by {@link DriverPresenceTracker}; drivers whose
+ * heartbeats stop are set INACTIVE in batches by {@link #deactivateSilentDrivers()};
+ * a closed WebSocket only shortens the timeout to a grace period. Drivers with an
+ * ACCEPTED or IN_PROGRESS order stay online.
+ * Heartbeat activations and manual deactivations are buffered in
+ * {@link DriverStatusWriteBehind} and written by {@link #flushStatusChanges()};
+ * snapshots always show the buffered status.
+ * </p>
+ *
+ * <p>
+ * Cache, presence and buffered changes are per instance. With several instances
+ * (RELAY mode) a status change drops the snapshot only where it happened; the
+ * others see it after {@code driver.cache.relayTtl} at the latest.
+ * </p>
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class DriverServiceImpl implements DriverService {
 
+	/**
+	 * Upper bound for the IN list of one deactivation statement.
+	 */
+	private static final int DEACTIVATION_BATCH_SIZE = 1_000;
+
+	private static final List<OrderStatus> BUSY_STATUSES = List.of(OrderStatus.ACCEPTED, OrderStatus.IN_PROGRESS);
+
 	private final DriverRepository driverRepository;
-	private final TaskScheduler taskScheduler;
+	private final OrderRepository orderRepository;
 	private final ApplicationEventPublisher eventPublisher;
+	private final DriverLocationIndex driverLocationIndex;
+	private final DriverPresenceTracker presenceTracker;
+	private final DriverStatusWriteBehind statusWriteBehind;
+	private final Cache<Long, DriverSnapshot> snapshotsByTelegramId;
 
-	/**
-	 * Time window after the last heartbeat before the driver is considered offline.
-	 */
-	private static final long DEACTIVATION_DELAY_MS = 60_000;
-	private final Map<Long, ScheduledFuture<?>> scheduledDeactivations = new ConcurrentHashMap<>();
+	public DriverServiceImpl(
+			DriverRepository driverRepository,
+			OrderRepository orderRepository,
+			ApplicationEventPublisher eventPublisher,
+			DriverLocationIndex driverLocationIndex,
+			DriverPresenceTracker presenceTracker,
+			DriverStatusWriteBehind statusWriteBehind,
+			MeterRegistry meterRegistry,
+			DriverCacheProperties cacheProperties,
+			WebSocketBrokerProperties brokerProperties) {
+		this.driverRepository = driverRepository;
+		this.orderRepository = orderRepository;
+		this.eventPublisher = eventPublisher;
+		this.driverLocationIndex = driverLocationIndex;
+		this.presenceTracker = presenceTracker;
+		this.statusWriteBehind = statusWriteBehind;
+		this.snapshotsByTelegramId = Caffeine.newBuilder()
+				.maximumSize(cacheProperties.getMaximumSize())
+				.expireAfterWrite(brokerProperties.getMode() == WebSocketBrokerProperties.Mode.RELAY
+						? cacheProperties.getRelayTtl()
+						: cacheProperties.getTtl())
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, snapshotsByTelegramId, "drivers");
+	}
 
 	@Transactional	
 	@Override
@@ -49,6 +117,12 @@ public class DriverServiceImpl implements DriverService {
 		return findDriverByTelegramIdOrThrow(telegramId);
 	}
 	
+	@Override
+	public DriverSnapshot findSnapshotByTelegramId(Long telegramId) {
+		return findSnapshot(telegramId)
+				.orElseThrow(() -> new DriverNotFoundException("Driver not found: " + telegramId));
+	}
+	
 	@Override
 	public DriverEntity findDriverById(Long driverId) {
 		return findDriverByIdOrThrow(driverId);
@@ -59,46 +133,59 @@ public class DriverServiceImpl implements DriverService {
 		return driverRepository.findByStatus(DriverStatus.ACTIVE);
 	}
 	
-	@Transactional
 	@Override
-	public void activateDriverByHeartbeat(DriverEntity driver) {
+	public DriverSnapshot activateDriverByHeartbeat(DriverSnapshot driver) {
 
-		if (driver.getStatus() == DriverStatus.BANNED || driver.getStatus() == DriverStatus.PENDING_APPROVAL) {
-			return;
+		if (driver.status() == DriverStatus.BANNED || driver.status() == DriverStatus.PENDING_APPROVAL) {
+			return driver;
 		}
 
-		if (driver.getStatus() != DriverStatus.ACTIVE) {
-			driver.setStatus(DriverStatus.ACTIVE);
-			driverRepository.save(driver);
-		}
-		
-		Long telegramId = driver.getTelegramId();
+		Long telegramId = driver.telegramId();
 
-		Optional.ofNullable(scheduledDeactivations.remove(telegramId))
-		.ifPresent(future -> future.cancel(false));
-		
-		scheduleDeactivation(telegramId);
-	}	
+		presenceTracker.touch(telegramId, driver.id());
+
+		if (driver.status() == DriverStatus.ACTIVE) {
+			return driver;
+		}
+		statusWriteBehind.enqueue(telegramId, DriverStatus.ACTIVE, driver.status());
+		return driver.withStatus(DriverStatus.ACTIVE);
+	}
+	
+	@Override
+	public void updateDriverLocation(DriverSnapshot driver, double latitude, double longitude) {
+		if (driver.status() == DriverStatus.ACTIVE) {
+			driverLocationIndex.update(driver.id(), latitude, longitude);
+		}
+	}
 	
-	@Transactional
 	@Override
 	public void deactivateDriver(Long telegramId) {
-		driverRepository.findByTelegramId(telegramId)
-			.filter(driver -> driver.getStatus() == DriverStatus.ACTIVE)
+		presenceTracker.remove(telegramId);
+
+		findSnapshot(telegramId)
 			.ifPresent(driver -> {
-				driver.setStatus(DriverStatus.INACTIVE);
+				driverLocationIndex.remove(driver.id());
+				if (driver.status() == DriverStatus.ACTIVE) {
+					statusWriteBehind.enqueue(telegramId, DriverStatus.INACTIVE, DriverStatus.ACTIVE);
+				}
 			});
-		scheduledDeactivations.remove(telegramId);
+	}
+	
+	@Override
+	public void deactivateAfterDisconnect(Long telegramId) {
+		presenceTracker.expireAfterGrace(telegramId);
 	}
 	
 	@Transactional
 	@Override
 	public void adminUpdateDriverStatus(Long driverId, DriverStatus newStatus) {
 		DriverEntity driver = findDriverByIdOrThrow(driverId);
+		// The administrative status replaces anything buffered from heartbeats
+		statusWriteBehind.discard(List.of(driver.getTelegramId()));
 		
 		if (List.of(DriverStatus.BANNED, DriverStatus.PENDING_APPROVAL, DriverStatus.INACTIVE).contains(newStatus)) {
-			Optional.ofNullable(scheduledDeactivations.remove(driver.getTelegramId()))
-			.ifPresent(future -> future.cancel(false));
+			presenceTracker.remove(driver.getTelegramId());
+			driverLocationIndex.remove(driver.getId());
 		}
 		
 		driver.setStatus(newStatus);
@@ -110,14 +197,77 @@ public class DriverServiceImpl implements DriverService {
 		return driverRepository.findByTelegramId(telegramId);
 	}	
 	
+	/**
+	 * Sets drivers without a heartbeat within the presence timeout to INACTIVE,
+	 * one UPDATE per batch instead of one transaction per driver. Drivers on a
+	 * trip are kept online.
+	 */
+	@Scheduled(fixedDelayString = "${driver.presence.tickMs:1000}")
+	public void deactivateSilentDrivers() {
+		List<ExpiredDriver> expired = presenceTracker.sweep();
+		if (expired.isEmpty()) {
+			return;
+		}
+
+		int deactivated = 0;
+		for (int from = 0; from < expired.size(); from += DEACTIVATION_BATCH_SIZE) {
+			List<ExpiredDriver> batch = keepBusyDriversOnline(
+					expired.subList(from, Math.min(from + DEACTIVATION_BATCH_SIZE, expired.size())));
+			if (batch.isEmpty()) {
+				continue;
+			}
+			List<Long> telegramIds = batch.stream().map(ExpiredDriver::telegramId).toList();
+
+			batch.forEach(driver -> driverLocationIndex.remove(driver.driverId()));
+			statusWriteBehind.discard(telegramIds);
+			driverRepository.updateStatusIfCurrent(telegramIds, DriverStatus.INACTIVE, DriverStatus.ACTIVE);
+			snapshotsByTelegramId.invalidateAll(telegramIds);
+			deactivated += batch.size();
+		}
+		log.debug("Deactivated {} drivers without heartbeat", deactivated);
+	}
+	
+	/**
+	 * Writes buffered status changes and refreshes the affected snapshots.
+	 */
+	@Scheduled(fixedDelayString = "${driver.status-write.flushIntervalMs:500}")
+	public void flushStatusChanges() {
+		try {
+			statusWriteBehind.flush(snapshotsByTelegramId::invalidateAll);
+		} catch (Exception e) {
+			// Changes stay buffered and are retried on the next run
+			log.error("Driver status flush failed, {} changes pending", statusWriteBehind.pendingCount(), e);
+		}
+	}
+	
+	@PreDestroy
+	public void flushOnShutdown() {
+		flushStatusChanges();
+	}
+	
+	/**
+	 * Drops the cached snapshot once the new status is committed, so the next
+	 * request cannot reload the old one.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void evictOnStatusChange(DriverStatusChangedEvent event) {
+		snapshotsByTelegramId.invalidate(event.driver().getTelegramId());
+	}
+	
 	// Private Helpers
 	
-	private void scheduleDeactivation(Long telegramId) {
-		ScheduledFuture<?> future = taskScheduler.schedule(() -> {
-			deactivateDriver(telegramId);
-		}, Instant.now().plusMillis(DEACTIVATION_DELAY_MS));
-
-		scheduledDeactivations.put(telegramId, future);
+	private Optional<DriverSnapshot> findSnapshot(Long telegramId) {
+		// A missing driver is not cached: registration must be visible immediately.
+		// Loaded from the primary, a lagging replica would cache the status from before the change.
+		DriverSnapshot stored = snapshotsByTelegramId.get(telegramId, id -> ReadRouting.onPrimary(
+				() -> driverRepository.findByTelegramId(id).map(DriverSnapshot::of).orElse(null)));
+		if (stored == null) {
+			return Optional.empty();
+		}
+		// Buffered changes are newer than anything stored
+		return Optional.of(statusWriteBehind.pendingStatus(telegramId)
+				.map(stored::withStatus)
+				.orElse(stored));
 	}
 	
 	private DriverEntity findDriverByIdOrThrow(Long driverId) {
@@ -129,4 +279,19 @@ public class DriverServiceImpl implements DriverService {
 		return driverRepository.findByTelegramId(telegramId)
 				.orElseThrow(() -> new DriverNotFoundException("Driver not found: " + telegramId));
 	}
+
+	// A phone that went quiet mid-trip must not hide the trip's driver; they are tracked again
+	private List<ExpiredDriver> keepBusyDriversOnline(List<ExpiredDriver> expired) {
+		Set<Long> busyDriverIds = new HashSet<>(orderRepository.findDriverIdsWithOrderStatusIn(
+				expired.stream().map(ExpiredDriver::driverId).toList(), BUSY_STATUSES));
+		if (busyDriverIds.isEmpty()) {
+			return expired;
+		}
+		expired.stream()
+				.filter(driver -> busyDriverIds.contains(driver.driverId()))
+				.forEach(driver -> presenceTracker.touch(driver.telegramId(), driver.driverId()));
+		return expired.stream()
+				.filter(driver -> !busyDriverIds.contains(driver.driverId()))
+				.toList();
+	}
 }
@@ -1,8 +1,10 @@
 package com.aavtutov.spring.boot.spring_boot_taxi.service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.GeoDistance;
 
 /**
  * Strategy interface for calculating trip fares.
@@ -17,4 +19,18 @@ public interface FareCalculator {
      * @return The calculated base price as a {@link BigDecimal}.
      */
 	BigDecimal calculateFare(OrderEntity order);
+
+	/**
+     * Estimated route length in km, or the straight-line distance between pickup
+     * and drop-off while there is no estimate (still being computed, or Mapbox failed).
+     */
+	static BigDecimal distanceKm(OrderEntity order) {
+		if (order.getAproximateDistance() != null) {
+			return order.getAproximateDistance();
+		}
+		double meters = GeoDistance.haversineMeters(
+				order.getStartLatitude().doubleValue(), order.getStartLongitude().doubleValue(),
+				order.getEndLatitude().doubleValue(), order.getEndLongitude().doubleValue());
+		return BigDecimal.valueOf(meters / 1000).setScale(3, RoundingMode.HALF_UP);
+	}
 }
@@ -16,7 +16,7 @@ public class FareCalculatorDistanceAndTime implements FareCalculator {
 	@Override
 	public BigDecimal calculateFare(OrderEntity order) {
 		
-		BigDecimal kms = order.getAproximateDistance();
+		BigDecimal kms = FareCalculator.distanceKm(order);
 		BigDecimal minutes = order.getActualDuration();
 		
 		BigDecimal baseFare = BigDecimal.valueOf(fareProperties.getBase());
@@ -16,7 +16,7 @@ public class FareCalculatorDistanceOnly implements FareCalculator {
 	@Override
 	public BigDecimal calculateFare(OrderEntity order) {
 
-		BigDecimal kms = order.getAproximateDistance();
+		BigDecimal kms = FareCalculator.distanceKm(order);
 
 		BigDecimal baseFare = BigDecimal.valueOf(fareProperties.getBase());
 		BigDecimal pricePerKm = BigDecimal.valueOf(fareProperties.getPerKm());
@@ -4,6 +4,8 @@ import java.math.BigDecimal;
 
 import com.aavtutov.spring.boot.spring_boot_taxi.service.MapboxRoutingServiceImpl.Route;
 
+import reactor.core.publisher.Mono;
+
 /**
  * Interface for calculating trip metrics via external routing services.
  * Provides distance and duration data based on real-world road networks.
@@ -20,4 +22,10 @@ public interface MapboxRoutingService {
      * Retrieves full route details including distance and estimated travel time.
      */
 	Route getRoute(BigDecimal startLng, BigDecimal startLat, BigDecimal endLng, BigDecimal endLat);
+
+	/**
+     * Non-blocking variant of {@link #getRoute}: completes from the cache or once
+     * the HTTP response arrives, without holding the calling thread.
+     */
+	Mono<Route> getRouteAsync(BigDecimal startLng, BigDecimal startLat, BigDecimal endLng, BigDecimal endLat);
 }
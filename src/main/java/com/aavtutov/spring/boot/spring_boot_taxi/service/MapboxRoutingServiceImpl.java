@@ -3,13 +3,21 @@ package com.aavtutov.spring.boot.spring_boot_taxi.service;
 import java.math.BigDecimal;
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.config.RouteCacheProperties;
 import com.aavtutov.spring.boot.spring_boot_taxi.exception.MapboxServiceException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.Data;
+import reactor.core.publisher.Mono;
 
 /**
  * Implementation of the {@link MapboxRoutingService} that communicates with the
@@ -19,18 +27,49 @@ import lombok.Data;
  * Uses Spring's {@link WebClient} for non-blocking HTTP requests and requires a
  * Mapbox Access Token for authentication.
  * </p>
+ *
+ * <p>
+ * Routes are cached for a short time, keyed by start/end coordinates snapped to
+ * a grid, so repeated trips between popular spots (airports, stations) skip the
+ * remote call. Cache statistics are published as {@code cache.*} metrics with
+ * {@code cache=mapbox.routes}.
+ * </p>
  */
 @Service
 public class MapboxRoutingServiceImpl implements MapboxRoutingService {
 
+	private static final double METERS_PER_DEGREE = 111_320;
+
 	private final WebClient webClient;
 	private final String mapboxAccessToken;
-	
+	private final double precisionDegrees;
+	private final Cache<RouteKey, Route> routeCache;
+
+	@Autowired
 	public MapboxRoutingServiceImpl(
-            WebClient webClient, 
-            @Value("${mapbox.access.token}") String mapboxAccessToken) {
+            WebClient webClient,
+            @Value("${mapbox.access.token}") String mapboxAccessToken,
+            RouteCacheProperties routeCacheProperties,
+            MeterRegistry meterRegistry) {
+		this(webClient, mapboxAccessToken, routeCacheProperties, meterRegistry, Ticker.systemTicker());
+	}
+
+	MapboxRoutingServiceImpl(
+            WebClient webClient,
+            String mapboxAccessToken,
+            RouteCacheProperties routeCacheProperties,
+            MeterRegistry meterRegistry,
+            Ticker ticker) {
         this.webClient = webClient;
         this.mapboxAccessToken = mapboxAccessToken;
+        this.precisionDegrees = routeCacheProperties.getPrecisionMeters() / METERS_PER_DEGREE;
+        this.routeCache = Caffeine.newBuilder()
+        		.maximumSize(routeCacheProperties.getMaximumSize())
+        		.expireAfterWrite(routeCacheProperties.getTtl())
+        		.ticker(ticker)
+        		.recordStats()
+        		.build();
+        CaffeineCacheMetrics.monitor(meterRegistry, routeCache, "mapbox.routes");
     }
 
 	@Override
@@ -44,10 +83,41 @@ public class MapboxRoutingServiceImpl implements MapboxRoutingService {
 	public Route getRoute(
 			BigDecimal startLng, BigDecimal startLat,
 			BigDecimal endLng, BigDecimal endLat) {
-		
+		return getRouteAsync(startLng, startLat, endLng, endLat).block();
+	}
+
+	@Override
+	public Mono<Route> getRouteAsync(
+			BigDecimal startLng, BigDecimal startLat,
+			BigDecimal endLng, BigDecimal endLat) {
+
+		RouteKey key = new RouteKey(
+				snap(startLng), snap(startLat),
+				snap(endLng), snap(endLat));
+
+		Route cached = routeCache.getIfPresent(key);
+		if (cached != null) {
+			return Mono.just(cached);
+		}
+
+		// Not computed inside the cache: a slow remote call must not block other keys
+		return fetchRoute(startLng, startLat, endLng, endLat)
+				.doOnNext(route -> routeCache.put(key, route));
+	}
+
+	// Cached routes after pending evictions ran; for tests
+	long cachedRoutes() {
+		routeCache.cleanUp();
+		return routeCache.estimatedSize();
+	}
+
+	private Mono<Route> fetchRoute(
+			BigDecimal startLng, BigDecimal startLat,
+			BigDecimal endLng, BigDecimal endLat) {
+
 		String coordinates = String.format("%f,%f;%f,%f", startLng, startLat, endLng, endLat);
-		
-		MapboxResponse response = webClient.get()
+
+		return webClient.get()
 				.uri(uriBuilder -> uriBuilder
                         .scheme("https")
                         .host("api.mapbox.com")
@@ -56,13 +126,13 @@ public class MapboxRoutingServiceImpl implements MapboxRoutingService {
                         .build(coordinates))
 				.retrieve()
 				.bodyToMono(MapboxResponse.class)
-				.block();
-
-		if (response == null || response.getRoutes().isEmpty()) {
-            throw new MapboxServiceException("No routes found from Mapbox API");
-        }
+				.filter(response -> response.getRoutes() != null && !response.getRoutes().isEmpty())
+				.map(response -> response.getRoutes().get(0))
+				.switchIfEmpty(Mono.error(() -> new MapboxServiceException("No routes found from Mapbox API")));
+	}
 
-		return response.routes.get(0);
+	private long snap(BigDecimal coordinate) {
+		return Math.round(coordinate.doubleValue() / precisionDegrees);
 	}
 
 	// Inner DTOs
@@ -77,4 +147,10 @@ public class MapboxRoutingServiceImpl implements MapboxRoutingService {
 		private double distance; // meters
 		private double duration; // seconds
 	}
+
+	/**
+	 * Cache key: start and end coordinates as grid cell indexes.
+	 */
+	private record RouteKey(long startLng, long startLat, long endLng, long endLat) {
+	}
 }
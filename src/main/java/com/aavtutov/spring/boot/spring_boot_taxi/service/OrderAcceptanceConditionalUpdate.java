@@ -0,0 +1,40 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service;
+
+import java.time.Instant;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.exception.OrderNotFoundException;
+import com.aavtutov.spring.boot.spring_boot_taxi.exception.OrderStatusConflictException;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Compare-and-set acceptance: a single UPDATE ... WHERE status = 'PENDING'.
+ * The first driver flips the status, everyone else affects 0 rows and gets an
+ * immediate conflict instead of queueing on a row lock.
+ */
+@RequiredArgsConstructor
+public class OrderAcceptanceConditionalUpdate implements OrderAcceptanceStrategy {
+
+	private final OrderRepository orderRepository;
+
+	@Override
+	public OrderEntity assignDriver(Long orderId, DriverEntity driver) {
+
+		int updated = orderRepository.updateDriverAndStatusIfCurrent(
+				orderId, driver, OrderStatus.ACCEPTED, Instant.now(), OrderStatus.PENDING);
+
+		if (updated == 0) {
+			if (!orderRepository.existsById(orderId)) {
+				throw new OrderNotFoundException("Order not found");
+			}
+			throw new OrderStatusConflictException("Order id=" + orderId + " is no longer available");
+		}
+
+		return orderRepository.findByIdWithClientAndDriver(orderId)
+				.orElseThrow(() -> new OrderNotFoundException("Order not found"));
+	}
+}
@@ -0,0 +1,37 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service;
+
+import java.time.Instant;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.exception.OrderNotFoundException;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.validator.OrderValidator;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Locks the order row (SELECT ... FOR UPDATE) and validates the status under the lock.
+ * Competing drivers wait for the lock holder to commit.
+ */
+@RequiredArgsConstructor
+public class OrderAcceptancePessimisticLock implements OrderAcceptanceStrategy {
+
+	private final OrderRepository orderRepository;
+	private final OrderValidator orderValidator;
+
+	@Override
+	public OrderEntity assignDriver(Long orderId, DriverEntity driver) {
+
+		OrderEntity order = orderRepository.findByIdWithLock(orderId)
+				.orElseThrow(() -> new OrderNotFoundException("Order not found"));
+
+		orderValidator.throwIfOrderStatusNotAcceptable(order);
+
+		order.setDriver(driver);
+		order.setStatus(OrderStatus.ACCEPTED);
+		order.setAcceptedAt(Instant.now());
+		return order;
+	}
+}
@@ -0,0 +1,19 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+
+/**
+ * Strategy for the PENDING -> ACCEPTED transition when several drivers race for
+ * the same order. Exactly one driver wins, the others get a conflict.
+ */
+public interface OrderAcceptanceStrategy {
+
+	/**
+     * Assigns the driver to a PENDING order and marks it ACCEPTED.
+     * Must run inside the caller's transaction.
+     *
+     * @return The accepted order with client and driver attached.
+     */
+	OrderEntity assignDriver(Long orderId, DriverEntity driver);
+}
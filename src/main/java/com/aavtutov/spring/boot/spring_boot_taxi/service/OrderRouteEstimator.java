@@ -0,0 +1,135 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.mapper.OrderMapper;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.event.OrderUpdateEvent;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.MapboxRoutingServiceImpl.Route;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.offer.OrderOfferDispatcher;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Fills in the route estimate of newly placed orders.
+ *
+ * <p>
+ * Orders are committed without an estimate, so the Mapbox call never runs while
+ * the client row is locked. Once the outbox relay delivers the PENDING event, a
+ * single non-blocking request is made per order: concurrent calls for the same
+ * order share the in-flight result. The estimate is written only if still
+ * missing and pushed to {@code /topic/order-status/{id}} and to the drivers
+ * holding an offer for the order. If no route can be built, the order is cancelled with source SYSTEM.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderRouteEstimator {
+
+	private static final String NO_ROUTE_REASON = "we could not build a route between these addresses.";
+
+	private final OrderRepository orderRepository;
+	private final MapboxRoutingService mapboxRoutingService;
+	private final OrderService orderService;
+	private final OrderMapper orderMapper;
+	private final SimpMessagingTemplate simpMessagingTemplate;
+	private final OrderOfferDispatcher orderOfferDispatcher;
+
+	/** Estimations currently running, by order id. */
+	private final Map<Long, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+	@EventListener
+	public void handleOrderPlaced(OrderUpdateEvent event) {
+		if (event.status() == OrderStatus.PENDING) {
+			estimate(event.orderId());
+		}
+	}
+
+	/**
+     * Starts the estimation for the order, or joins the one already running.
+     * Completes when the estimate is stored and published (or the order was cancelled).
+     */
+	public CompletableFuture<Void> estimate(Long orderId) {
+		CompletableFuture<Void> created = new CompletableFuture<>();
+		CompletableFuture<Void> running = inFlight.putIfAbsent(orderId, created);
+		if (running != null) {
+			return running;
+		}
+
+		created.whenComplete((ignored, error) -> inFlight.remove(orderId, created));
+		try {
+			start(orderId, created);
+		} catch (Exception e) {
+			created.completeExceptionally(e);
+		}
+		return created;
+	}
+
+	// Private Helpers
+
+	private void start(Long orderId, CompletableFuture<Void> result) {
+		OrderEntity order = orderRepository.findById(orderId).orElse(null);
+		if (order == null || order.getAproximateDistance() != null) {
+			result.complete(null);
+			return;
+		}
+
+		mapboxRoutingService.getRouteAsync(
+						order.getStartLongitude(),
+						order.getStartLatitude(),
+						order.getEndLongitude(),
+						order.getEndLatitude())
+				// Persisting and publishing block, keep them off the HTTP client threads
+				.publishOn(Schedulers.boundedElastic())
+				.subscribe(
+						route -> {
+							applyEstimate(orderId, route);
+							result.complete(null);
+						},
+						error -> {
+							log.error("Failed to estimate route for orderId={}", orderId, error);
+							cancelWithoutRoute(orderId);
+							result.complete(null);
+						});
+	}
+
+	private void applyEstimate(Long orderId, Route route) {
+		try {
+			int updated = orderRepository.updateRouteEstimateIfMissing(
+					orderId,
+					BigDecimal.valueOf(route.getDistance() / 1000.0).setScale(2, RoundingMode.HALF_UP),
+					BigDecimal.valueOf(route.getDuration() / 60.0).setScale(2, RoundingMode.HALF_UP));
+			if (updated == 0) {
+				return;
+			}
+
+			orderRepository.findRowById(orderId).ifPresent(order ->
+					simpMessagingTemplate.convertAndSend("/topic/order-status/" + orderId, orderMapper.toResponseDto(order)));
+			orderOfferDispatcher.refreshOffers(orderId);
+		} catch (Exception e) {
+			log.error("Failed to store route estimate for orderId={}", orderId, e);
+		}
+	}
+
+	private void cancelWithoutRoute(Long orderId) {
+		try {
+			orderService.cancelOrderBySystem(orderId, NO_ROUTE_REASON);
+		} catch (Exception e) {
+			// Typically the order was accepted or cancelled meanwhile
+			log.warn("Order {} left without a route estimate: {}", orderId, e.getMessage());
+		}
+	}
+}
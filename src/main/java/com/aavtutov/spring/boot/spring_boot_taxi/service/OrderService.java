@@ -3,6 +3,8 @@ package com.aavtutov.spring.boot.spring_boot_taxi.service;
 import java.util.List;
 import java.util.Optional;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderHistoryCursor;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderRow;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
 
@@ -18,7 +20,8 @@ public interface OrderService {
 	OrderEntity placeOrder(OrderEntity order, Long clientId);
 
 	/**
-     * Finds available drivers within proximity of the pickup location.
+     * Finds available drivers within proximity of the pickup location, closest first.
+     * ACTIVE drivers without a reported location follow the ranked ones.
      */
 	List<DriverEntity> findSuitableDrivers(Long orderId);
 
@@ -41,21 +44,37 @@ public interface OrderService {
 
 	OrderEntity cancelOrderByClient(Long orderId, Long telegramId);
 
-	OrderEntity findOrderById(Long orderId);
+	/**
+     * Cancels a still PENDING order on behalf of the platform (e.g. no route could be built).
+     */
+	OrderEntity cancelOrderBySystem(Long orderId, String reason);
+
+	/**
+     * Read-only view of the order for API responses.
+     */
+	OrderRow findOrderById(Long orderId);
 
 	/**
      * Returns orders currently in PENDING status awaiting a driver.
      */
-	List<OrderEntity> findAvailableOrders();
+	List<OrderRow> findAvailableOrders();
 
-	Optional<OrderEntity> findActiveOrderByDriver(Long driverId);
+	Optional<OrderRow> findActiveOrderByDriver(Long driverId);
 	
-	List<OrderEntity> findOrdersByClientId(Long clientId);
+	/**
+     * Returns up to {@code limit} orders of the client, newest first, starting
+     * after {@code after} (or from the newest order when it is null).
+     * Archived orders are included.
+     */
+	List<OrderRow> findClientHistory(Long clientId, OrderHistoryCursor after, int limit);
 
 	/**
      * Returns the latest order created by the client.
      */
-	Optional<OrderEntity> findMostRecentOrderOptional(Long clientId);
+	Optional<OrderRow> findMostRecentOrderOptional(Long clientId);
 
-	List<OrderEntity> findOrdersByDriverId(Long driverId);
+	/**
+     * Driver counterpart of {@link #findClientHistory}.
+     */
+	List<OrderRow> findDriverHistory(Long driverId, OrderHistoryCursor after, int limit);
 }
@@ -4,22 +4,32 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.springframework.context.ApplicationEventPublisher;
+import org.hibernate.Hibernate;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.event.TransactionPhase;
-import org.springframework.transaction.event.TransactionalEventListener;
 
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DispatchProperties;
 import com.aavtutov.spring.boot.spring_boot_taxi.config.FareProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.ArchivedOrderRepository;
 import com.aavtutov.spring.boot.spring_boot_taxi.dao.ClientRepository;
 import com.aavtutov.spring.boot.spring_boot_taxi.dao.DriverRepository;
 import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverSnapshot;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderHistoryCursor;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderResponseDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderRow;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.mapper.OrderMapper;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
@@ -29,9 +39,11 @@ import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
 import com.aavtutov.spring.boot.spring_boot_taxi.event.OrderUpdateEvent;
 import com.aavtutov.spring.boot.spring_boot_taxi.exception.ClientNotFoundException;
-import com.aavtutov.spring.boot.spring_boot_taxi.exception.MapboxServiceException;
 import com.aavtutov.spring.boot.spring_boot_taxi.exception.OrderNotFoundException;
-import com.aavtutov.spring.boot.spring_boot_taxi.service.MapboxRoutingServiceImpl.Route;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.DriverLocationIndex;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.DriverLocationIndex.NearbyDriver;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.offer.OrderOfferDispatcher;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.outbox.OrderOutbox;
 import com.aavtutov.spring.boot.spring_boot_taxi.service.validator.OrderValidator;
 
 import lombok.RequiredArgsConstructor;
@@ -42,19 +54,27 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class OrderServiceImpl implements OrderService {
 
+	// History order: newest first, ties broken by id (see OrderHistoryCursor)
+	private static final Comparator<OrderRow> HISTORY_ORDER =
+			Comparator.comparing(OrderRow::createdAt).thenComparing(OrderRow::id).reversed();
+
 	private final ClientService clientService;
 	private final DriverService driverService;
 	private final OrderRepository orderRepository;
+	private final ArchivedOrderRepository archivedOrderRepository;
 	private final DriverRepository driverRepository;
 	private final ClientRepository clientRepository;
 	private final OrderValidator orderValidator;
 	private final FareCalculator fareCalculator;
-	private final MapboxRoutingService mapboxRoutingService;
 	private final TelegramBotService telegramBotService;
 	private final FareProperties fareProperties;
 	private final SimpMessagingTemplate simpMessagingTemplate;
 	private final OrderMapper orderMapper;
-	private final ApplicationEventPublisher eventPublisher;
+	private final OrderOutbox orderOutbox;
+	private final OrderOfferDispatcher orderOfferDispatcher;
+	private final OrderAcceptanceStrategy orderAcceptanceStrategy;
+	private final DriverLocationIndex driverLocationIndex;
+	private final DispatchProperties dispatchProperties;
 	
 	@Transactional
 	@Override
@@ -65,7 +85,7 @@ public class OrderServiceImpl implements OrderService {
 
 		orderValidator.throwIfClientHasActiveOrder(client.getId());
 		
-		updateRouteDetails(order);
+		// The route is estimated after commit by OrderRouteEstimator
 		order.setClient(client);
 		
 		return saveAndNotify(order);
@@ -75,18 +95,14 @@ public class OrderServiceImpl implements OrderService {
 	@Override
 	public OrderEntity acceptOrder(Long orderId, Long telegramId) {
 		
-		OrderEntity order = orderRepository.findByIdWithLock(orderId)
-				.orElseThrow(() -> new OrderNotFoundException("Order not found"));
-		
-		DriverEntity driver = driverService.findDriverByTelegramId(telegramId);
+		DriverSnapshot driver = driverService.findSnapshotByTelegramId(telegramId);
 
-		orderValidator.throwIfOrderStatusNotAcceptable(order);
 		orderValidator.throwIfDriverNotActive(driver);
-		orderValidator.throwIfDriverHasActiveOrder(driver.getId());
+		orderValidator.throwIfDriverHasActiveOrder(driver.id());
 
-		order.setDriver(driver);
-		order.setStatus(OrderStatus.ACCEPTED);
-		order.setAcceptedAt(Instant.now());
+		OrderEntity order = orderAcceptanceStrategy.assignDriver(orderId, driverRepository.getReferenceById(driver.id()));
+		// Loaded while the transaction is open, the caller maps the order afterwards
+		Hibernate.initialize(order.getDriver());
 		
 		messageClient(order, "🚕💨 Your driver is on the way!");
 		return saveAndNotify(order);
@@ -97,9 +113,9 @@ public class OrderServiceImpl implements OrderService {
 	public OrderEntity startTrip(Long orderId, Long telegramId) {
 		
 		OrderEntity order = findOrderByIdOrThrow(orderId);
-		DriverEntity driver = driverService.findDriverByTelegramId(telegramId);
+		DriverSnapshot driver = driverService.findSnapshotByTelegramId(telegramId);
 		
-		orderValidator.throwIfDriverNotAssignedToOrder(order, driver.getId());
+		orderValidator.throwIfDriverNotAssignedToOrder(order, driver.id());
 		orderValidator.throwIfDriverNotActive(driver);
 		orderValidator.throwIfOrderStatusNotStartable(order);
 
@@ -116,9 +132,9 @@ public class OrderServiceImpl implements OrderService {
 	public OrderEntity completeOrder(Long orderId, Long telegramId) {
 		
 		OrderEntity order = findOrderByIdOrThrow(orderId);
-		DriverEntity driver = driverService.findDriverByTelegramId(telegramId);
+		DriverSnapshot driver = driverService.findSnapshotByTelegramId(telegramId);
 		
-		orderValidator.throwIfDriverNotAssignedToOrder(order, driver.getId());
+		orderValidator.throwIfDriverNotAssignedToOrder(order, driver.id());
 		orderValidator.throwIfDriverNotActive(driver);
 		orderValidator.throwIfOrderStatusNotCompletable(order);
 
@@ -146,13 +162,31 @@ public class OrderServiceImpl implements OrderService {
         return cancelOrder(orderId, telegramId, OrderCancellationSource.CLIENT);
     }
 	
+	@Transactional
+	@Override
+	public OrderEntity cancelOrderBySystem(Long orderId, String reason) {
+
+		OrderEntity order = orderRepository.findByIdWithLock(orderId)
+				.orElseThrow(() -> new OrderNotFoundException("Order with id=" + orderId + " not found"));
+
+		// Only orders nobody has taken yet; an accepted trip goes on without an estimate
+		orderValidator.throwIfOrderStatusNotAcceptable(order);
+
+		order.setStatus(OrderStatus.CANCELED);
+		order.setCancellationSource(OrderCancellationSource.SYSTEM);
+		order.setCancelledAt(Instant.now());
+
+		messageClient(order, "⚠️ Your order was cancelled: " + reason);
+		return saveAndNotify(order);
+	}
+	
     private OrderEntity cancelOrder(Long orderId, Long telegramId, OrderCancellationSource source) {
         
     	OrderEntity order = findOrderByIdOrThrow(orderId);
         
         if (source == OrderCancellationSource.DRIVER) {
-            DriverEntity driver = driverService.findDriverByTelegramId(telegramId);
-            orderValidator.throwIfDriverNotAssignedToOrder(order, driver.getId());
+            DriverSnapshot driver = driverService.findSnapshotByTelegramId(telegramId);
+            orderValidator.throwIfDriverNotAssignedToOrder(order, driver.id());
             orderValidator.throwIfDriverNotActive(driver);
             messageClient(order, createDriverCancellationMessage(order));
         } else {
@@ -171,7 +205,8 @@ public class OrderServiceImpl implements OrderService {
     
 	private OrderEntity saveAndNotify(OrderEntity order) {
 		OrderEntity savedOrder = orderRepository.save(order);
-		eventPublisher.publishEvent(
+		// Delivered to the listeners below by OrderOutboxRelay once committed
+		orderOutbox.append(
 				new OrderUpdateEvent(
 						savedOrder.getId(),
 						savedOrder.getStatus(),
@@ -179,31 +214,51 @@ public class OrderServiceImpl implements OrderService {
 		return savedOrder;
 	}
 	
+	@Transactional(readOnly = true)
 	@Override
 	public List<DriverEntity> findSuitableDrivers(Long orderId) {
-		findOrderByIdOrThrow(orderId);
+		OrderEntity order = findOrderByIdOrThrow(orderId);
+
+		List<NearbyDriver> nearbyDrivers = driverLocationIndex.findNearest(
+				order.getStartLatitude().doubleValue(),
+				order.getStartLongitude().doubleValue(),
+				dispatchProperties.getMaxCandidates(),
+				dispatchProperties.getSearchRadiusKm() * 1000);
+
+		Map<Long, DriverEntity> driversById = driverRepository
+				.findAllById(nearbyDrivers.stream().map(NearbyDriver::driverId).toList()).stream()
+				.collect(Collectors.toMap(DriverEntity::getId, Function.identity()));
+
+		// Keep the distance ranking from the index, drop drivers that went offline meanwhile
+		Stream<DriverEntity> ranked = nearbyDrivers.stream()
+				.map(nearby -> driversById.get(nearby.driverId()))
+				.filter(Objects::nonNull)
+				.filter(driver -> driver.getStatus() == DriverStatus.ACTIVE);
+
+		// Drivers that have not reported a position yet may be anywhere, list them last
+		Stream<DriverEntity> unlocated = driverRepository.findByStatus(DriverStatus.ACTIVE).stream()
+				.filter(driver -> !driverLocationIndex.contains(driver.getId()));
 
-		// TODO: Implement advanced filtering (proximity, vehicle type, etc.).
-		return driverRepository.findByStatus(DriverStatus.ACTIVE);
+		return Stream.concat(ranked, unlocated)
+				.limit(dispatchProperties.getMaxCandidates())
+				.toList();
 	}
 	
 	// EVENT LISTENERS
 	
-	@Async
-	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	@EventListener
 	public void handleOrderUpdate(OrderUpdateEvent event) {
-		
-		boolean shouldUpdate = (event.status() == OrderStatus.PENDING)
-                || (event.status() == OrderStatus.ACCEPTED)
-                || (event.status() == OrderStatus.CANCELED && event.cancellationSource() == OrderCancellationSource.CLIENT);
-		
-		if (shouldUpdate) {
-			updateAllDriversList();
+		if (event.status() == OrderStatus.PENDING) {
+			// In BATCH mode pending orders are assigned by BatchDispatcher instead
+			if (dispatchProperties.getMode() == DispatchProperties.Mode.OFFERS) {
+				orderOfferDispatcher.startOffering(event.orderId());
+			}
+		} else {
+			orderOfferDispatcher.withdraw(event.orderId());
 		}
 	}
 	
-	@Async
-	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	@EventListener
 	public void handleClientOrderUpdate(OrderUpdateEvent event) {
 		try {
 			updateSpecificClient(event.orderId());
@@ -212,83 +267,63 @@ public class OrderServiceImpl implements OrderService {
 		}
 	}
 	
-	@Async
-	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
-	public void handleAsyncRouteCalculation(OrderUpdateEvent event) {
-	    if (event.status() != OrderStatus.PENDING) return;
-
-	    try {
-	        OrderEntity order = orderRepository.findById(event.orderId())
-	                .orElseThrow(() -> new OrderNotFoundException("Order not found for async update"));
-
-	        updateRouteDetails(order);
-	        orderRepository.save(order);
-	        updateSpecificClient(order.getId());
-	    } catch (Exception e) {
-	        log.error("Failed to update route details asynchronously for order {}", event.orderId(), e);
-	    }
-	}
-	
 	// QUERY METHODS
 
 	@Transactional(readOnly = true)
 	@Override
-	public OrderEntity findOrderById(Long orderId) {
-		return findOrderByIdOrThrow(orderId);
+	public OrderRow findOrderById(Long orderId) {
+		return orderRepository.findRowById(orderId)
+				.or(() -> archivedOrderRepository.findRowById(orderId))
+				.orElseThrow(() -> new OrderNotFoundException("Order with id=" + orderId + " not found"));
 	}
 
 	@Transactional(readOnly = true)
 	@Override
-	public List<OrderEntity> findAvailableOrders() {
-		List<OrderEntity> pendingOrders = orderRepository.findAllByStatus(OrderStatus.PENDING);
-		return pendingOrders;
+	public List<OrderRow> findAvailableOrders() {
+		return orderRepository.findRowsByStatus(OrderStatus.PENDING);
 	}
 
 	@Transactional(readOnly = true)
 	@Override
-	public Optional<OrderEntity> findActiveOrderByDriver(Long driverId) {
-		return orderRepository.findFirstByDriverIdAndStatusIn(driverId,
-				List.of(OrderStatus.ACCEPTED, OrderStatus.IN_PROGRESS));
+	public Optional<OrderRow> findActiveOrderByDriver(Long driverId) {
+		return orderRepository.findDriverRowsWithStatusIn(driverId,
+				List.of(OrderStatus.ACCEPTED, OrderStatus.IN_PROGRESS), Limit.of(1)).stream().findFirst();
 	}
 
 	@Transactional(readOnly = true)
 	@Override
-	public Optional<OrderEntity> findMostRecentOrderOptional(Long clientId) {
-		return orderRepository.findTopByClientIdOrderByCreatedAtDesc(clientId);
+	public Optional<OrderRow> findMostRecentOrderOptional(Long clientId) {
+		return findClientHistory(clientId, null, 1).stream().findFirst();
 	}
 	
 	@Transactional(readOnly = true)
 	@Override
-	public List<OrderEntity> findOrdersByClientId(Long clientId) {
-		return orderRepository.findAllByClientIdOrderByCreatedAtDesc(clientId);
+	public List<OrderRow> findClientHistory(Long clientId, OrderHistoryCursor after, int limit) {
+		if (after == null) {
+			return newestFirst(orderRepository.findClientHistory(clientId, Limit.of(limit)),
+					archivedOrderRepository.findClientHistory(clientId, Limit.of(limit)), limit);
+		}
+		return newestFirst(
+				orderRepository.findClientHistoryAfter(clientId, after.createdAt(), after.id(), Limit.of(limit)),
+				archivedOrderRepository.findClientHistoryAfter(clientId, after.createdAt(), after.id(), Limit.of(limit)),
+				limit);
 	}
 
 	@Transactional(readOnly = true)
 	@Override
-	public List<OrderEntity> findOrdersByDriverId(Long driverId) {
-		return orderRepository.findAllByDriverIdOrderByCreatedAtDesc(driverId);
+	public List<OrderRow> findDriverHistory(Long driverId, OrderHistoryCursor after, int limit) {
+		if (after == null) {
+			return newestFirst(orderRepository.findDriverHistory(driverId, Limit.of(limit)),
+					archivedOrderRepository.findDriverHistory(driverId, Limit.of(limit)), limit);
+		}
+		return newestFirst(
+				orderRepository.findDriverHistoryAfter(driverId, after.createdAt(), after.id(), Limit.of(limit)),
+				archivedOrderRepository.findDriverHistoryAfter(driverId, after.createdAt(), after.id(), Limit.of(limit)),
+				limit);
 	}
 	
 	// PRIVATE HELPERS
 	
-	private void updateRouteDetails(OrderEntity order) {
-		try {
-			Route route = mapboxRoutingService.getRoute(
-					order.getStartLongitude(),
-					order.getStartLatitude(),
-					order.getEndLongitude(),
-					order.getEndLatitude());
-			order.setAproximateDistance(
-					BigDecimal.valueOf(route.getDistance() / 1000.0)
-					.setScale(2, RoundingMode.HALF_UP));
-			order.setAproximateDuration(
-					BigDecimal.valueOf(route.getDuration() / 60.0)
-					.setScale(2, RoundingMode.HALF_UP));
-		} catch (Exception e) {
-			throw new MapboxServiceException("Failed to calculate route");
-		}
-	}
-	
 	private void messageClient(OrderEntity order, String message) {
         Optional.ofNullable(order.getClient().getTelegramChatId())
                 .ifPresent(chatId -> telegramBotService.sendMessage(chatId, message));
@@ -333,22 +368,30 @@ public class OrderServiceImpl implements OrderService {
 				order.getEndAddress());
     }	
 
+	/**
+	 * Merges a page of live orders with a page of archived ones. Both are read with
+	 * the same cursor and limit, so the first {@code limit} rows of the merge are
+	 * exactly the page a single table would return.
+	 */
+	private List<OrderRow> newestFirst(List<OrderRow> orders, List<OrderRow> archived, int limit) {
+		if (archived.isEmpty()) {
+			return orders;
+		}
+		return Stream.concat(orders.stream(), archived.stream())
+				.sorted(HISTORY_ORDER)
+				.limit(limit)
+				.toList();
+	}
+
+	// Client and driver are loaded with the order: callers map it after the transaction (no open session in view)
 	private OrderEntity findOrderByIdOrThrow(Long orderId) {
-		return orderRepository.findById(orderId)
+		return orderRepository.findByIdWithClientAndDriver(orderId)
 				.orElseThrow(() -> new OrderNotFoundException("Order with id=" + orderId + " not found"));
 	}
 	
-	private void updateAllDriversList() {
-		List<OrderResponseDTO> pendingOrdersDTOs = 
-				orderRepository.findAllByStatusWithClient(OrderStatus.PENDING).stream()
-				.map(orderMapper::toResponseDto)
-				.toList();
-		simpMessagingTemplate.convertAndSend("/topic/available-orders", pendingOrdersDTOs);
-	}
-	
 	private void updateSpecificClient(Long orderId) {
-		OrderEntity order = orderRepository
-				.findByIdWithClientAndDriver(orderId)
+		OrderRow order = orderRepository
+				.findRowById(orderId)
 				.orElseThrow(() -> new OrderNotFoundException("Order not found"));
 		
 		OrderResponseDTO responseDTO = orderMapper.toResponseDto(order);
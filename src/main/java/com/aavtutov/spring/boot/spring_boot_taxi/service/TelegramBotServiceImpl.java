@@ -1,31 +1,22 @@
 package com.aavtutov.spring.boot.spring_boot_taxi.service;
 
-import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
-
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 
-import lombok.extern.slf4j.Slf4j;
-import reactor.core.publisher.Mono;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.telegram.TelegramOutboundQueue;
+
+import lombok.RequiredArgsConstructor;
 
-@Slf4j
+/**
+ * Sends messages through the {@link TelegramOutboundQueue}, which applies the
+ * Telegram rate limits and retries.
+ */
 @Service
+@RequiredArgsConstructor
 public class TelegramBotServiceImpl implements TelegramBotService {
 
-	private final WebClient webClient;
-	private final String botToken;
+	private final TelegramOutboundQueue outboundQueue;
 
-	public TelegramBotServiceImpl(
-			WebClient.Builder webClientBuilder,
-			@Value("${telegram.bot.token}") String botToken) {
-		this.webClient = webClientBuilder.baseUrl("https://api.telegram.org").build();
-		this.botToken = botToken;
-	}
-	
 	@Override
     public void sendMessage(String chatId, String message) {
         sendMessage(chatId, message, null);
@@ -33,24 +24,6 @@ public class TelegramBotServiceImpl implements TelegramBotService {
 
 	@Override
 	public void sendMessage(String chatId, String message, InlineKeyboardMarkup keyboard) {
-		String urlPath = String.format("/bot%s/sendMessage", botToken);
-		
-		Map<String, Object> body = new HashMap<>();
-		body.put("chat_id", chatId);
-		body.put("text", message);
-		body.put("parse_mode", "HTML");
-		if (keyboard != null) {
-	        body.put("reply_markup", keyboard);
-	    }
-
-		webClient.post()
-				.uri(urlPath)
-				.bodyValue(body)
-				.retrieve()
-				.bodyToMono(String.class)
-				.timeout(Duration.ofSeconds(5))
-				.doOnError(error -> {log.error("Telegram API error [chatId: {}]: {}", chatId, error.getMessage());})
-				.onErrorResume(e -> Mono.empty())
-				.subscribe();
+		outboundQueue.enqueue(chatId, message, keyboard);
 	}
 }
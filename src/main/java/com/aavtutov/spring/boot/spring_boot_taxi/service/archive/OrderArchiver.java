@@ -0,0 +1,112 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.archive;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.OrderArchiveProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves completed and cancelled orders older than {@code order.archive.olderThan}
+ * from {@code orders} to {@code orders_archive}.
+ *
+ * <p>
+ * Keeps {@code orders} and its indexes at the size of the recent history: the
+ * request path only touches active orders and the first history pages, which
+ * then no longer pay for the all-time volume. Each batch is claimed with
+ * {@code FOR UPDATE SKIP LOCKED}, copied and deleted in one transaction, so
+ * several nodes can archive concurrently and an order is always in exactly one
+ * of the tables. Terminal orders are not changed any more, the lock only keeps
+ * two archivers apart. The histories read both tables ({@code OrderServiceImpl}).
+ * </p>
+ */
+@Component
+@Slf4j
+public class OrderArchiver {
+
+	private static final String COLUMNS = "id, client_id, driver_id, status, cancellation_source, "
+			+ "start_address, end_address, start_latitude, start_longitude, end_latitude, end_longitude, "
+			+ "aproximate_distance, aproximate_duration, actual_duration, price, bonus_fare, total_price, "
+			+ "notes, created_at, accepted_at, started_at, completed_at, cancelled_at";
+
+	// Served by idx_orders_archivable (V4)
+	private static final String CLAIM_SQL = "SELECT id FROM orders "
+			+ "WHERE status IN ('COMPLETED', 'CANCELED') AND created_at < :cutoff "
+			+ "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED";
+
+	private static final String COPY_SQL = "INSERT INTO orders_archive (" + COLUMNS + ") "
+			+ "SELECT " + COLUMNS + " FROM orders WHERE id IN (:ids)";
+
+	private static final String DELETE_SQL = "DELETE FROM orders WHERE id IN (:ids)";
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final OrderArchiveProperties properties;
+
+	private final Counter archived;
+	private final Timer batchTimer;
+
+	public OrderArchiver(NamedParameterJdbcTemplate jdbcTemplate,
+			TransactionTemplate transactionTemplate,
+			OrderArchiveProperties properties,
+			MeterRegistry meterRegistry) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.properties = properties;
+		this.archived = Counter.builder("taxi.orders.archived")
+				.description("Orders moved to orders_archive")
+				.register(meterRegistry);
+		this.batchTimer = Timer.builder("taxi.orders.archive.batch")
+				.description("Duration of one archiving batch")
+				.register(meterRegistry);
+	}
+
+	@Scheduled(fixedDelayString = "${order.archive.intervalMs:3600000}")
+	public void archive() {
+		try {
+			Instant cutoff = Instant.now().minus(properties.getOlderThan());
+			int moved;
+			int total = 0;
+			// Keep going while full batches are moved, the first run after an upgrade has a backlog
+			do {
+				moved = archiveBatch(cutoff);
+				total += moved;
+			} while (moved == properties.getBatchSize());
+			if (total > 0) {
+				log.info("Archived {} orders created before {}", total, cutoff);
+			}
+		} catch (Exception e) {
+			log.error("Order archiving failed, retrying on the next run", e);
+		}
+	}
+
+	/**
+	 * Claims, copies and deletes one batch.
+	 * @return Number of orders moved.
+	 */
+	int archiveBatch(Instant cutoff) {
+		Integer moved = batchTimer.record(() -> transactionTemplate.execute(status -> {
+			List<Long> ids = jdbcTemplate.queryForList(CLAIM_SQL,
+					Map.of("cutoff", Timestamp.from(cutoff), "limit", properties.getBatchSize()), Long.class);
+			if (ids.isEmpty()) {
+				return 0;
+			}
+			jdbcTemplate.update(COPY_SQL, Map.of("ids", ids));
+			return jdbcTemplate.update(DELETE_SQL, Map.of("ids", ids));
+		}));
+		int count = moved == null ? 0 : moved;
+		archived.increment(count);
+		return count;
+	}
+}
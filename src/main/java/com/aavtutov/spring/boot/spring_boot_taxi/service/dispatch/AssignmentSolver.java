@@ -0,0 +1,301 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.dispatch;
+
+import java.util.Arrays;
+
+/**
+ * Min-cost assignment of orders to drivers on a sparse candidate graph.
+ *
+ * <p>
+ * Every order may go to one of its candidate drivers or stay unassigned, every
+ * driver takes at most one order. The solver maximizes the number of served
+ * orders first and minimizes the total pickup cost among those assignments:
+ * leaving an order unassigned costs more than any set of pickups can.
+ * </p>
+ *
+ * <p>
+ * This is the Hungarian method in its shortest augmenting path form
+ * (Jonker-Volgenant): orders are added one by one, each with a Dijkstra search
+ * over reduced costs that stops at the first free driver or at the point where
+ * leaving an order unassigned is cheapest. Only candidate edges are stored, so
+ * a window of 5k x 5k with ~20 candidates per order costs O(edges) memory, and
+ * a search usually settles after visiting the drivers around the pickup point.
+ * </p>
+ */
+public final class AssignmentSolver {
+
+	/** Marks an order without a driver in the result. */
+	public static final int UNASSIGNED = -1;
+
+	private AssignmentSolver() {
+	}
+
+	/**
+	 * Returns, for every order in insertion order, the index of its driver or
+	 * {@link #UNASSIGNED}.
+	 */
+	public static int[] solve(Problem problem) {
+		int orders = problem.orderCount;
+		int drivers = problem.driverCount;
+		long unassignedCost = problem.maxCost * orders + 1;
+
+		// Nodes of the search: drivers 0..drivers-1, then one "stay unassigned" node per order
+		int nodes = drivers + orders;
+		long[] potential = new long[drivers];
+		int[] owner = new int[drivers];
+		int[] match = new int[orders];
+		long[] matchCost = new long[orders];
+		Arrays.fill(owner, UNASSIGNED);
+		Arrays.fill(match, UNASSIGNED);
+
+		long[] dist = new long[nodes];
+		int[] predOrder = new int[nodes];
+		long[] predCost = new long[nodes];
+		boolean[] settled = new boolean[nodes];
+		int[] touched = new int[nodes];
+		Arrays.fill(dist, Long.MAX_VALUE);
+		MinHeap heap = new MinHeap(64);
+		Search search = new Search(problem, potential, dist, predOrder, predCost, settled, touched, heap,
+				unassignedCost);
+
+		for (int source = 0; source < orders; source++) {
+			search.touchedCount = 0;
+			search.relax(source, 0);
+			int target = UNASSIGNED;
+			long shortest = 0;
+			while (!heap.isEmpty()) {
+				long d = heap.peekKey();
+				int node = heap.poll();
+				if (settled[node] || d > dist[node]) {
+					continue;
+				}
+				settled[node] = true;
+				if (node >= drivers || owner[node] == UNASSIGNED) {
+					target = node;
+					shortest = d;
+					break;
+				}
+				// Continue through the order currently holding this driver
+				int order = owner[node];
+				search.relax(order, d - (matchCost[order] - potential[node]));
+			}
+
+			// Keep reduced costs non-negative for the next searches
+			for (int i = 0; i < search.touchedCount; i++) {
+				int node = touched[i];
+				if (node < drivers && settled[node] && node != target) {
+					potential[node] += dist[node] - shortest;
+				}
+			}
+
+			// Shift assignments along the path back to the source order
+			int node = target;
+			while (true) {
+				int order = predOrder[node];
+				int previous = match[order];
+				if (node >= drivers) {
+					match[order] = UNASSIGNED;
+				} else {
+					owner[node] = order;
+					match[order] = node;
+					matchCost[order] = predCost[node];
+				}
+				if (order == source) {
+					break;
+				}
+				node = previous;
+			}
+
+			for (int i = 0; i < search.touchedCount; i++) {
+				dist[touched[i]] = Long.MAX_VALUE;
+				settled[touched[i]] = false;
+			}
+			heap.clear();
+		}
+		return match;
+	}
+
+	/**
+	 * Candidate graph of one window. Orders are added one after another, each
+	 * followed by its candidates; costs are non-negative and at most
+	 * {@code maxCost}.
+	 */
+	public static final class Problem {
+
+		private final int driverCount;
+		private final long maxCost;
+		private int orderCount;
+
+		// Candidates of order i are edges firstEdge[i] until firstEdge[i + 1]
+		private int[] firstEdge;
+		private int[] edgeDriver;
+		private long[] edgeCost;
+		private int edgeCount;
+
+		public Problem(int driverCount, long maxCost, int expectedOrders, int expectedEdges) {
+			this.driverCount = driverCount;
+			this.maxCost = maxCost;
+			this.firstEdge = new int[Math.max(expectedOrders, 1) + 1];
+			this.edgeDriver = new int[Math.max(expectedEdges, 1)];
+			this.edgeCost = new long[Math.max(expectedEdges, 1)];
+		}
+
+		public void addOrder() {
+			if (orderCount + 1 == firstEdge.length) {
+				firstEdge = Arrays.copyOf(firstEdge, firstEdge.length * 2);
+			}
+			orderCount++;
+			firstEdge[orderCount] = edgeCount;
+		}
+
+		public void addCandidate(int driver, long cost) {
+			if (orderCount == 0) {
+				throw new IllegalStateException("addOrder() must be called before adding candidates");
+			}
+			if (driver < 0 || driver >= driverCount || cost < 0 || cost > maxCost) {
+				throw new IllegalArgumentException("Invalid candidate: driver=" + driver + ", cost=" + cost);
+			}
+			if (edgeCount == edgeDriver.length) {
+				edgeDriver = Arrays.copyOf(edgeDriver, edgeCount * 2);
+				edgeCost = Arrays.copyOf(edgeCost, edgeCount * 2);
+			}
+			edgeDriver[edgeCount] = driver;
+			edgeCost[edgeCount] = cost;
+			edgeCount++;
+			firstEdge[orderCount] = edgeCount;
+		}
+
+		public int getOrderCount() {
+			return orderCount;
+		}
+
+		public int getEdgeCount() {
+			return edgeCount;
+		}
+	}
+
+	/**
+	 * Dijkstra state shared by all searches; only the touched nodes are reset
+	 * between orders.
+	 */
+	private static final class Search {
+
+		private final Problem problem;
+		private final long[] potential;
+		private final long[] dist;
+		private final int[] predOrder;
+		private final long[] predCost;
+		private final boolean[] settled;
+		private final int[] touched;
+		private final MinHeap heap;
+		private final long unassignedCost;
+		private int touchedCount;
+
+		private Search(Problem problem, long[] potential, long[] dist, int[] predOrder, long[] predCost,
+				boolean[] settled, int[] touched, MinHeap heap, long unassignedCost) {
+			this.problem = problem;
+			this.potential = potential;
+			this.dist = dist;
+			this.predOrder = predOrder;
+			this.predCost = predCost;
+			this.settled = settled;
+			this.touched = touched;
+			this.heap = heap;
+			this.unassignedCost = unassignedCost;
+		}
+
+		// base = distance of the order in the search minus its own potential
+		private void relax(int order, long base) {
+			for (int e = problem.firstEdge[order]; e < problem.firstEdge[order + 1]; e++) {
+				int driver = problem.edgeDriver[e];
+				offer(driver, base + problem.edgeCost[e] - potential[driver], order, problem.edgeCost[e]);
+			}
+			offer(problem.driverCount + order, base + unassignedCost, order, unassignedCost);
+		}
+
+		private void offer(int node, long d, int order, long cost) {
+			if (settled[node] || d >= dist[node]) {
+				return;
+			}
+			if (dist[node] == Long.MAX_VALUE) {
+				touched[touchedCount++] = node;
+			}
+			dist[node] = d;
+			predOrder[node] = order;
+			predCost[node] = cost;
+			heap.add(d, node);
+		}
+	}
+
+	/**
+	 * Binary min-heap of (distance, node) pairs; stale entries are skipped by the
+	 * caller instead of being decreased in place.
+	 */
+	private static final class MinHeap {
+
+		private long[] keys;
+		private int[] values;
+		private int size;
+
+		private MinHeap(int capacity) {
+			keys = new long[capacity];
+			values = new int[capacity];
+		}
+
+		private boolean isEmpty() {
+			return size == 0;
+		}
+
+		private void clear() {
+			size = 0;
+		}
+
+		private long peekKey() {
+			return keys[0];
+		}
+
+		private void add(long key, int value) {
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (keys[parent] <= key) {
+					break;
+				}
+				keys[i] = keys[parent];
+				values[i] = values[parent];
+				i = parent;
+			}
+			keys[i] = key;
+			values[i] = value;
+		}
+
+		private int poll() {
+			int top = values[0];
+			size--;
+			long key = keys[size];
+			int value = values[size];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && keys[child + 1] < keys[child]) {
+					child++;
+				}
+				if (keys[child] >= key) {
+					break;
+				}
+				keys[i] = keys[child];
+				values[i] = values[child];
+				i = child;
+			}
+			keys[i] = key;
+			values[i] = value;
+			return top;
+		}
+	}
+}
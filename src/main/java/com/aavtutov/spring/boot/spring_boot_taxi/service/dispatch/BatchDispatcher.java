@@ -0,0 +1,166 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.dispatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DispatchProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.DriverRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderOfferDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderOfferType;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.OrderService;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.DriverLocationIndex;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.DriverLocationIndex.NearbyDriver;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.offer.OrderOfferDispatcher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Assigns PENDING orders to idle drivers in windows ({@code dispatch.mode=BATCH}).
+ *
+ * <p>
+ * Every {@code dispatch.batchWindowMs} the pending orders and, for each of them,
+ * the {@code dispatch.maxCandidates} nearest online drivers within
+ * {@code dispatch.searchRadiusKm} are collected. Drivers that are not ACTIVE or
+ * already on a trip are dropped, and {@link AssignmentSolver} picks the
+ * assignment with the most orders served and the least total pickup distance.
+ * Each assignment then goes through {@link OrderService#acceptOrder}, exactly
+ * as if the driver had tapped Accept; an assignment rejected there (order or
+ * driver changed meanwhile) is skipped and the order waits for the next window.
+ * </p>
+ */
+@Service
+@ConditionalOnProperty(name = "dispatch.mode", havingValue = "BATCH")
+@Slf4j
+public class BatchDispatcher {
+
+	private static final List<OrderStatus> BUSY_STATUSES = List.of(OrderStatus.ACCEPTED, OrderStatus.IN_PROGRESS);
+
+	private final OrderRepository orderRepository;
+	private final DriverRepository driverRepository;
+	private final DriverLocationIndex driverLocationIndex;
+	private final OrderService orderService;
+	private final SimpMessagingTemplate simpMessagingTemplate;
+	private final DispatchProperties dispatchProperties;
+
+	private final Timer solveTimer;
+	private final Counter assignedCounter;
+	private final Counter rejectedCounter;
+
+	public BatchDispatcher(
+			OrderRepository orderRepository,
+			DriverRepository driverRepository,
+			DriverLocationIndex driverLocationIndex,
+			OrderService orderService,
+			SimpMessagingTemplate simpMessagingTemplate,
+			DispatchProperties dispatchProperties,
+			MeterRegistry meterRegistry) {
+		this.orderRepository = orderRepository;
+		this.driverRepository = driverRepository;
+		this.driverLocationIndex = driverLocationIndex;
+		this.orderService = orderService;
+		this.simpMessagingTemplate = simpMessagingTemplate;
+		this.dispatchProperties = dispatchProperties;
+		this.solveTimer = Timer.builder("taxi.dispatch.batch.solve")
+				.description("Time to solve one assignment window")
+				.register(meterRegistry);
+		this.assignedCounter = Counter.builder("taxi.dispatch.batch.assigned")
+				.description("Orders assigned by the batch dispatcher")
+				.register(meterRegistry);
+		this.rejectedCounter = Counter.builder("taxi.dispatch.batch.rejected")
+				.description("Assignments rejected by acceptOrder (order or driver changed meanwhile)")
+				.register(meterRegistry);
+	}
+
+	@Scheduled(fixedDelayString = "${dispatch.batchWindowMs:3000}")
+	public void dispatchWindow() {
+		List<OrderEntity> orders = orderRepository.findAllByStatus(OrderStatus.PENDING).stream()
+				.filter(order -> order.getStartLatitude() != null && order.getStartLongitude() != null)
+				.toList();
+		if (orders.isEmpty()) {
+			return;
+		}
+
+		// Candidate drivers per order, closest first
+		double radiusMeters = dispatchProperties.getSearchRadiusKm() * 1000;
+		List<List<NearbyDriver>> candidates = new ArrayList<>(orders.size());
+		Set<Long> candidateIds = new HashSet<>();
+		for (OrderEntity order : orders) {
+			List<NearbyDriver> nearby = driverLocationIndex.findNearest(
+					order.getStartLatitude().doubleValue(),
+					order.getStartLongitude().doubleValue(),
+					dispatchProperties.getMaxCandidates(),
+					radiusMeters);
+			candidates.add(nearby);
+			nearby.forEach(driver -> candidateIds.add(driver.driverId()));
+		}
+		if (candidateIds.isEmpty()) {
+			return;
+		}
+
+		List<DriverEntity> idleDrivers = findIdleDrivers(candidateIds);
+		Map<Long, Integer> driverIndex = new HashMap<>();
+		for (int i = 0; i < idleDrivers.size(); i++) {
+			driverIndex.put(idleDrivers.get(i).getId(), i);
+		}
+
+		AssignmentSolver.Problem problem = new AssignmentSolver.Problem(
+				idleDrivers.size(), (long) Math.ceil(radiusMeters), orders.size(),
+				orders.size() * dispatchProperties.getMaxCandidates());
+		for (List<NearbyDriver> nearby : candidates) {
+			problem.addOrder();
+			for (NearbyDriver driver : nearby) {
+				Integer index = driverIndex.get(driver.driverId());
+				if (index != null) {
+					problem.addCandidate(index, Math.round(driver.distanceMeters()));
+				}
+			}
+		}
+
+		int[] assignment = solveTimer.record(() -> AssignmentSolver.solve(problem));
+
+		for (int i = 0; i < orders.size(); i++) {
+			if (assignment[i] >= 0) {
+				assign(orders.get(i).getId(), idleDrivers.get(assignment[i]));
+			}
+		}
+	}
+
+	// Private Helpers
+
+	private List<DriverEntity> findIdleDrivers(Set<Long> driverIds) {
+		Set<Long> busyDriverIds = new HashSet<>(orderRepository.findDriverIdsWithOrderStatusIn(driverIds, BUSY_STATUSES));
+		return driverRepository.findAllById(driverIds).stream()
+				.filter(driver -> driver.getStatus() == DriverStatus.ACTIVE)
+				.filter(driver -> !busyDriverIds.contains(driver.getId()))
+				.toList();
+	}
+
+	private void assign(Long orderId, DriverEntity driver) {
+		try {
+			orderService.acceptOrder(orderId, driver.getTelegramId());
+			assignedCounter.increment();
+			simpMessagingTemplate.convertAndSendToUser(String.valueOf(driver.getTelegramId()),
+					OrderOfferDispatcher.DESTINATION, new OrderOfferDTO(OrderOfferType.ASSIGNED, orderId, null, null));
+		} catch (Exception e) {
+			rejectedCounter.increment();
+			log.debug("Batch assignment of orderId={} to driverId={} rejected: {}", orderId, driver.getId(), e.getMessage());
+		}
+	}
+}
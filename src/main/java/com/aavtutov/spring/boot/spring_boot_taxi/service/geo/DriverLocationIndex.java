@@ -0,0 +1,216 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.geo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Component;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DispatchProperties;
+
+/**
+ * In-memory spatial index of the last reported position of every online driver.
+ *
+ * <p>
+ * Positions are bucketed into a fixed lat/lng grid. Writers for the same driver
+ * are serialized through a small set of lock stripes, readers never lock: a
+ * query only walks the cells overlapping the search area and skips entries that
+ * have already moved to another cell.
+ * </p>
+ */
+@Component
+public class DriverLocationIndex {
+
+	private static final double METERS_PER_DEGREE = 111_320;
+	private static final int LOCK_STRIPES = 64;
+
+	private final double cellDegrees;
+	private final Map<Long, Position> positions = new ConcurrentHashMap<>();
+	private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+	private final Object[] locks = new Object[LOCK_STRIPES];
+
+	public DriverLocationIndex(DispatchProperties dispatchProperties) {
+		this.cellDegrees = dispatchProperties.getGridCellDegrees();
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+     * Stores or moves the driver position.
+     */
+	public void update(Long driverId, double latitude, double longitude) {
+		long cellKey = cellKey(latCell(latitude), lngCell(longitude));
+
+		synchronized (lockFor(driverId)) {
+			Position previous = positions.put(driverId, new Position(latitude, longitude, cellKey));
+			if (previous != null && previous.cellKey() == cellKey) {
+				return;
+			}
+			addToCell(cellKey, driverId);
+			if (previous != null) {
+				removeFromCell(previous.cellKey(), driverId);
+			}
+		}
+	}
+
+	/**
+     * Drops the driver from the index (e.g. when going offline).
+     */
+	public void remove(Long driverId) {
+		synchronized (lockFor(driverId)) {
+			Position previous = positions.remove(driverId);
+			if (previous != null) {
+				removeFromCell(previous.cellKey(), driverId);
+			}
+		}
+	}
+
+	public boolean contains(Long driverId) {
+		return positions.containsKey(driverId);
+	}
+
+	public int size() {
+		return positions.size();
+	}
+
+	/**
+     * Returns all drivers within the given radius, closest first.
+     */
+	public List<NearbyDriver> findWithinRadius(double latitude, double longitude, double radiusMeters) {
+		int latCenter = latCell(latitude);
+		int lngCenter = lngCell(longitude);
+		int latSpan = (int) Math.ceil(radiusMeters / (cellDegrees * METERS_PER_DEGREE));
+		int lngSpan = (int) Math.ceil(radiusMeters / lngCellMeters(latitude));
+
+		List<NearbyDriver> result = new ArrayList<>();
+		for (int latIdx = latCenter - latSpan; latIdx <= latCenter + latSpan; latIdx++) {
+			for (int lngIdx = lngCenter - lngSpan; lngIdx <= lngCenter + lngSpan; lngIdx++) {
+				collectCell(cellKey(latIdx, lngIdx), latitude, longitude, radiusMeters, result::add);
+			}
+		}
+		result.sort(Comparator.comparingDouble(NearbyDriver::distanceMeters));
+		return result;
+	}
+
+	/**
+     * Returns up to {@code limit} drivers closest to the point, not farther than
+     * {@code maxRadiusMeters}, closest first.
+     *
+     * <p>
+     * Cells are visited in growing square rings around the point. The search stops
+     * once the ring is farther away than the k-th best candidate found so far.
+     * </p>
+     */
+	public List<NearbyDriver> findNearest(double latitude, double longitude, int limit, double maxRadiusMeters) {
+		if (limit <= 0) {
+			return List.of();
+		}
+
+		int latCenter = latCell(latitude);
+		int lngCenter = lngCell(longitude);
+		double ringMeters = Math.min(cellDegrees * METERS_PER_DEGREE, lngCellMeters(latitude));
+		int maxRing = (int) Math.ceil(maxRadiusMeters / ringMeters);
+
+		// Max-heap on distance, holds the best `limit` candidates seen so far
+		PriorityQueue<NearbyDriver> best = new PriorityQueue<>(
+				Comparator.comparingDouble(NearbyDriver::distanceMeters).reversed());
+
+		for (int ring = 0; ring <= maxRing; ring++) {
+			if (best.size() == limit && best.peek().distanceMeters() <= (ring - 1) * ringMeters) {
+				break;
+			}
+			for (int latIdx = latCenter - ring; latIdx <= latCenter + ring; latIdx++) {
+				boolean edgeRow = latIdx == latCenter - ring || latIdx == latCenter + ring;
+				int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+				for (int lngIdx = lngCenter - ring; lngIdx <= lngCenter + ring; lngIdx += step) {
+					collectCell(cellKey(latIdx, lngIdx), latitude, longitude, maxRadiusMeters, candidate -> {
+						best.offer(candidate);
+						if (best.size() > limit) {
+							best.poll();
+						}
+					});
+				}
+			}
+		}
+
+		List<NearbyDriver> result = new ArrayList<>(best);
+		result.sort(Comparator.comparingDouble(NearbyDriver::distanceMeters));
+		return result;
+	}
+
+	// Private Helpers
+
+	private void collectCell(long cellKey, double latitude, double longitude, double radiusMeters,
+			Consumer<NearbyDriver> sink) {
+
+		Set<Long> driverIds = cells.get(cellKey);
+		if (driverIds == null) {
+			return;
+		}
+		for (Long driverId : driverIds) {
+			Position position = positions.get(driverId);
+			// Skip entries that moved to another cell after we fetched this one
+			if (position == null || position.cellKey() != cellKey) {
+				continue;
+			}
+			double distance = GeoDistance.haversineMeters(latitude, longitude, position.latitude(), position.longitude());
+			if (distance <= radiusMeters) {
+				sink.accept(new NearbyDriver(driverId, distance));
+			}
+		}
+	}
+
+	// Cell membership changes go through compute() so an emptied cell can't be
+	// dropped while another driver is being added to it.
+	private void addToCell(long cellKey, Long driverId) {
+		cells.compute(cellKey, (key, driverIds) -> {
+			Set<Long> target = (driverIds != null) ? driverIds : ConcurrentHashMap.newKeySet();
+			target.add(driverId);
+			return target;
+		});
+	}
+
+	private void removeFromCell(long cellKey, Long driverId) {
+		cells.computeIfPresent(cellKey, (key, driverIds) -> {
+			driverIds.remove(driverId);
+			return driverIds.isEmpty() ? null : driverIds;
+		});
+	}
+
+	private double lngCellMeters(double latitude) {
+		// Clamp near the poles so the longitude span stays finite
+		double cos = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+		return cellDegrees * METERS_PER_DEGREE * cos;
+	}
+
+	private int latCell(double latitude) {
+		return (int) Math.floor(latitude / cellDegrees);
+	}
+
+	private int lngCell(double longitude) {
+		return (int) Math.floor(longitude / cellDegrees);
+	}
+
+	private static long cellKey(int latIdx, int lngIdx) {
+		return ((long) latIdx << 32) | (lngIdx & 0xFFFFFFFFL);
+	}
+
+	private Object lockFor(Long driverId) {
+		return locks[(int) (driverId & (LOCK_STRIPES - 1))];
+	}
+
+	private record Position(double latitude, double longitude, long cellKey) {
+	}
+
+	/**
+	 * Driver found by a proximity query with its distance to the search point.
+	 */
+	public record NearbyDriver(Long driverId, double distanceMeters) {
+	}
+}
@@ -0,0 +1,24 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.geo;
+
+/**
+ * Distances on the Earth's surface, shared by dispatch and pricing.
+ */
+public final class GeoDistance {
+
+	private static final double EARTH_RADIUS_METERS = 6_371_000;
+
+	private GeoDistance() {
+	}
+
+	/**
+	 * Great-circle distance between two points in meters.
+	 */
+	public static double haversineMeters(double lat1, double lng1, double lat2, double lng2) {
+		double dLat = Math.toRadians(lat2 - lat1);
+		double dLng = Math.toRadians(lng2 - lng1);
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+				* Math.sin(dLng / 2) * Math.sin(dLng / 2);
+		return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+	}
+}
@@ -0,0 +1,340 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.offer;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DispatchProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.DriverRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverSnapshot;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderOfferDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderOfferType;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderResponseDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderRow;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.mapper.OrderMapper;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.DriverLocationIndex;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.DriverLocationIndex.NearbyDriver;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Offers PENDING orders to the drivers nearest to the pickup point.
+ *
+ * <p>
+ * Each order is offered in rounds on the per-user queue {@value #DESTINATION}:
+ * a round goes to the {@code dispatch.offerBatchSize} nearest free drivers
+ * that have not seen the order yet, within the current radius. Unanswered
+ * offers expire after {@code dispatch.offerTimeout}; the next round then
+ * widens the radius by {@code dispatch.offerRadiusGrowth} up to
+ * {@code dispatch.searchRadiusKm}. Once nobody new is left in the widest
+ * radius, the order is offered to the nearest drivers again. After
+ * {@code dispatch.offerMaxRounds} rounds offering stops; the order stays
+ * PENDING in the open orders list ({@code GET /api/orders}), which drivers
+ * without an offer see, e.g. those who share no location.
+ * </p>
+ *
+ * <p>
+ * Rounds live on the instance that received the PENDING event. Every round
+ * re-reads the order, so a status change delivered to another instance stops
+ * the rounds at the latest when the current offers expire. On startup an
+ * instance resumes offering all PENDING orders, as rounds of a stopped instance
+ * are lost; orders still offered by another instance then get rounds from both
+ * until they are taken. Drivers are picked from this instance's
+ * {@link DriverLocationIndex}, i.e. among those whose heartbeats reach it;
+ * drivers served by other instances find the order in the open orders list.
+ * </p>
+ */
+@Service
+@Slf4j
+public class OrderOfferDispatcher {
+
+	public static final String DESTINATION = "/queue/offers";
+
+	private static final List<OrderStatus> BUSY_STATUSES = List.of(OrderStatus.ACCEPTED, OrderStatus.IN_PROGRESS);
+
+	private final OrderRepository orderRepository;
+	private final DriverRepository driverRepository;
+	private final DriverLocationIndex driverLocationIndex;
+	private final OrderMapper orderMapper;
+	private final SimpMessagingTemplate simpMessagingTemplate;
+	private final TaskScheduler taskScheduler;
+	private final DispatchProperties dispatchProperties;
+
+	private final Counter roundsCounter;
+	private final Counter offersCounter;
+	private final Counter exhaustedCounter;
+
+	/** Offer rounds of the orders this instance is dispatching. */
+	private final Map<Long, OfferRounds> roundsByOrderId = new ConcurrentHashMap<>();
+
+	public OrderOfferDispatcher(
+			OrderRepository orderRepository,
+			DriverRepository driverRepository,
+			DriverLocationIndex driverLocationIndex,
+			OrderMapper orderMapper,
+			SimpMessagingTemplate simpMessagingTemplate,
+			TaskScheduler taskScheduler,
+			DispatchProperties dispatchProperties,
+			MeterRegistry meterRegistry) {
+		this.orderRepository = orderRepository;
+		this.driverRepository = driverRepository;
+		this.driverLocationIndex = driverLocationIndex;
+		this.orderMapper = orderMapper;
+		this.simpMessagingTemplate = simpMessagingTemplate;
+		this.taskScheduler = taskScheduler;
+		this.dispatchProperties = dispatchProperties;
+		this.roundsCounter = Counter.builder("taxi.offers.rounds")
+				.description("Offer rounds sent out")
+				.register(meterRegistry);
+		this.offersCounter = Counter.builder("taxi.offers.sent")
+				.description("Offers sent to single drivers")
+				.register(meterRegistry);
+		this.exhaustedCounter = Counter.builder("taxi.offers.exhausted")
+				.description("Orders nobody accepted within the maximum number of offer rounds")
+				.register(meterRegistry);
+		Gauge.builder("taxi.offers.open_orders", roundsByOrderId, Map::size)
+				.description("Orders currently being offered by this instance")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Sends the first offer round for a new PENDING order. Repeated calls for the
+	 * same order are ignored.
+	 */
+	public void startOffering(Long orderId) {
+		if (roundsByOrderId.putIfAbsent(orderId, new OfferRounds()) == null) {
+			runRound(orderId);
+		}
+	}
+
+	/**
+	 * Resumes offering the PENDING orders, whose rounds did not survive a restart.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void resumePendingOrders() {
+		if (dispatchProperties.getMode() != DispatchProperties.Mode.OFFERS) {
+			return;
+		}
+		List<OrderRow> pendingOrders = orderRepository.findRowsByStatus(OrderStatus.PENDING);
+		pendingOrders.forEach(order -> startOffering(order.id()));
+		if (!pendingOrders.isEmpty()) {
+			log.info("Resumed offering {} pending orders", pendingOrders.size());
+		}
+	}
+
+	/**
+	 * Re-sends the current offers of the order with fresh order details and the
+	 * same expiry (e.g. after the route was estimated).
+	 */
+	public void refreshOffers(Long orderId) {
+		OfferRounds rounds = roundsByOrderId.get(orderId);
+		if (rounds == null) {
+			return;
+		}
+		Optional<OrderRow> order = orderRepository.findRowById(orderId);
+		if (order.isEmpty()) {
+			return;
+		}
+
+		synchronized (rounds) {
+			if (rounds.expiresAt == null) {
+				return;
+			}
+			rounds.order = orderMapper.toResponseDto(order.get());
+			OrderOfferDTO offer = new OrderOfferDTO(OrderOfferType.OFFERED, orderId, rounds.order, rounds.expiresAt);
+			rounds.currentTelegramIds.forEach(telegramId -> send(telegramId, offer));
+		}
+	}
+
+	/**
+	 * Stops offering the order and tells the drivers holding an open offer.
+	 */
+	public void withdraw(Long orderId) {
+		OfferRounds rounds = roundsByOrderId.remove(orderId);
+		if (rounds == null) {
+			return;
+		}
+
+		synchronized (rounds) {
+			if (rounds.nextRound != null) {
+				rounds.nextRound.cancel(false);
+			}
+			OrderOfferDTO withdrawal = new OrderOfferDTO(OrderOfferType.WITHDRAWN, orderId, null, null);
+			rounds.currentTelegramIds.forEach(telegramId -> send(telegramId, withdrawal));
+		}
+	}
+
+	/**
+	 * Returns the offers the driver currently holds on this instance, for a page
+	 * that opens in the middle of a round.
+	 *
+	 * <p>
+	 * Only rounds run by this instance are seen. With several instances behind
+	 * the relay broker, offers of orders dispatched elsewhere are missing here;
+	 * they still reach the driver on {@value #DESTINATION}, at the latest with
+	 * the next round.
+	 * </p>
+	 */
+	public List<OrderOfferDTO> findOpenOffers(DriverSnapshot driver) {
+		Instant now = Instant.now();
+		List<OrderOfferDTO> offers = new ArrayList<>();
+		roundsByOrderId.forEach((orderId, rounds) -> {
+			synchronized (rounds) {
+				if (rounds.expiresAt != null && rounds.expiresAt.isAfter(now)
+						&& rounds.currentTelegramIds.contains(driver.telegramId())) {
+					offers.add(new OrderOfferDTO(OrderOfferType.OFFERED, orderId, rounds.order, rounds.expiresAt));
+				}
+			}
+		});
+		return offers;
+	}
+
+	// Private Helpers
+
+	private void runRound(Long orderId) {
+		OfferRounds rounds = roundsByOrderId.get(orderId);
+		if (rounds == null) {
+			return;
+		}
+
+		try {
+			Optional<OrderRow> order = orderRepository.findRowById(orderId);
+			if (order.isEmpty() || order.get().status() != OrderStatus.PENDING) {
+				withdraw(orderId);
+				return;
+			}
+
+			synchronized (rounds) {
+				// Withdrawn while the order was being read
+				if (roundsByOrderId.get(orderId) != rounds) {
+					return;
+				}
+				if (rounds.roundCount >= dispatchProperties.getOfferMaxRounds()) {
+					log.info("No driver accepted orderId={} in {} offer rounds, leaving it to the open orders list",
+							orderId, rounds.roundCount);
+					exhaustedCounter.increment();
+					withdraw(orderId);
+					return;
+				}
+				sendRound(order.get(), rounds);
+			}
+		} catch (Exception e) {
+			log.error("Failed to send offer round for orderId={}", orderId, e);
+			synchronized (rounds) {
+				if (roundsByOrderId.get(orderId) == rounds) {
+					scheduleNextRound(orderId, rounds, Instant.now().plus(dispatchProperties.getOfferTimeout()));
+				}
+			}
+		}
+	}
+
+	private void sendRound(OrderRow order, OfferRounds rounds) {
+		double maxRadiusMeters = dispatchProperties.getSearchRadiusKm() * 1000;
+		rounds.radiusMeters = rounds.radiusMeters == 0
+				? Math.min(dispatchProperties.getOfferInitialRadiusKm() * 1000, maxRadiusMeters)
+				: Math.min(rounds.radiusMeters * dispatchProperties.getOfferRadiusGrowth(), maxRadiusMeters);
+
+		List<DriverEntity> drivers = pickDrivers(order, rounds);
+		if (drivers.isEmpty() && rounds.radiusMeters >= maxRadiusMeters) {
+			// Everybody in reach has seen the order, offer it to the nearest ones again next round
+			rounds.offeredDriverIds.clear();
+		}
+
+		Instant expiresAt = Instant.now().plus(dispatchProperties.getOfferTimeout());
+		rounds.order = orderMapper.toResponseDto(order);
+		rounds.expiresAt = expiresAt;
+		rounds.currentTelegramIds.clear();
+
+		OrderOfferDTO offer = new OrderOfferDTO(OrderOfferType.OFFERED, order.id(), rounds.order, expiresAt);
+		for (DriverEntity driver : drivers) {
+			rounds.offeredDriverIds.add(driver.getId());
+			rounds.currentTelegramIds.add(driver.getTelegramId());
+			send(driver.getTelegramId(), offer);
+		}
+		rounds.roundCount++;
+		roundsCounter.increment();
+
+		scheduleNextRound(order.id(), rounds, expiresAt);
+	}
+
+	// Nearest ACTIVE drivers without a trip that have not been offered the order yet, closest first.
+	// Up to maxCandidates are read from the index so busy drivers don't shrink the batch.
+	private List<DriverEntity> pickDrivers(OrderRow order, OfferRounds rounds) {
+		int batchSize = dispatchProperties.getOfferBatchSize();
+		List<Long> candidateIds = driverLocationIndex.findNearest(
+						order.startLatitude().doubleValue(),
+						order.startLongitude().doubleValue(),
+						Math.max(dispatchProperties.getMaxCandidates(), batchSize) + rounds.offeredDriverIds.size(),
+						rounds.radiusMeters).stream()
+				.map(NearbyDriver::driverId)
+				.filter(driverId -> !rounds.offeredDriverIds.contains(driverId))
+				.toList();
+		if (candidateIds.isEmpty()) {
+			return List.of();
+		}
+
+		Set<Long> busyDriverIds = new HashSet<>(orderRepository.findDriverIdsWithOrderStatusIn(candidateIds, BUSY_STATUSES));
+		Map<Long, DriverEntity> driversById = driverRepository.findAllById(candidateIds).stream()
+				.collect(Collectors.toMap(DriverEntity::getId, Function.identity()));
+
+		return candidateIds.stream()
+				.filter(driverId -> !busyDriverIds.contains(driverId))
+				.map(driversById::get)
+				.filter(driver -> driver != null && driver.getStatus() == DriverStatus.ACTIVE)
+				.limit(batchSize)
+				.toList();
+	}
+
+	private void scheduleNextRound(Long orderId, OfferRounds rounds, Instant at) {
+		rounds.nextRound = taskScheduler.schedule(() -> runRound(orderId), at);
+	}
+
+	private void send(Long telegramId, OrderOfferDTO offer) {
+		simpMessagingTemplate.convertAndSendToUser(String.valueOf(telegramId), DESTINATION, offer);
+		offersCounter.increment();
+	}
+
+	/**
+	 * Offer state of one order, guarded by its own monitor.
+	 */
+	private static final class OfferRounds {
+
+		/** Radius of the latest round, 0 before the first one. */
+		private double radiusMeters;
+
+		/** Rounds sent so far. */
+		private int roundCount;
+
+		/** Drivers offered the order in any round since the radius last started over. */
+		private final Set<Long> offeredDriverIds = new HashSet<>();
+
+		/** Drivers holding the offer of the latest round, by Telegram id. */
+		private final Set<Long> currentTelegramIds = new LinkedHashSet<>();
+
+		private OrderResponseDTO order;
+		private Instant expiresAt;
+		private ScheduledFuture<?> nextRound;
+	}
+}
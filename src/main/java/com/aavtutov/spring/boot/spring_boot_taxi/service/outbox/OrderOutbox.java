@@ -0,0 +1,32 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.outbox;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderOutboxRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderOutboxEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.event.OrderUpdateEvent;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Records order events in the outbox table as part of the caller's transaction:
+ * the event exists exactly when the order change is committed.
+ * {@link OrderOutboxRelay} delivers it afterwards.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderOutbox {
+
+	private final OrderOutboxRepository outboxRepository;
+
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void append(OrderUpdateEvent event) {
+		OrderOutboxEntity entry = new OrderOutboxEntity();
+		entry.setOrderId(event.orderId());
+		entry.setStatus(event.status());
+		entry.setCancellationSource(event.cancellationSource());
+		outboxRepository.save(entry);
+	}
+}
@@ -0,0 +1,137 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.outbox;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.OutboxProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderOutboxRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderOutboxEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.event.OrderUpdateEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Delivers outbox entries to the {@link OrderUpdateEvent} listeners, at least once.
+ *
+ * <p>
+ * Each batch is claimed with {@code FOR UPDATE SKIP LOCKED}, so any number of
+ * nodes can relay concurrently without delivering the same entry twice. Only the
+ * oldest entry of an order is claimable, so an order's events are delivered in
+ * commit order. Entries are deleted in the claiming transaction after the
+ * listeners returned; if the node dies first, the locks are released and another
+ * relay delivers them again. Listeners run outside the claiming transaction, so
+ * a failing listener cannot roll back the batch.
+ * </p>
+ */
+@Component
+@Slf4j
+public class OrderOutboxRelay {
+
+	private final OrderOutboxRepository outboxRepository;
+	private final ApplicationEventPublisher eventPublisher;
+	private final OutboxProperties properties;
+	private final TransactionTemplate claimTransaction;
+	private final TransactionTemplate listenerContext;
+
+	private final Counter delivered;
+	private final Counter failed;
+	private final Timer lag;
+
+	public OrderOutboxRelay(
+			OrderOutboxRepository outboxRepository,
+			ApplicationEventPublisher eventPublisher,
+			OutboxProperties properties,
+			PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry) {
+		this.outboxRepository = outboxRepository;
+		this.eventPublisher = eventPublisher;
+		this.properties = properties;
+		this.claimTransaction = new TransactionTemplate(transactionManager);
+		this.listenerContext = new TransactionTemplate(transactionManager);
+		this.listenerContext.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+
+		this.delivered = Counter.builder("taxi.outbox.delivered")
+				.description("Outbox entries delivered to the listeners")
+				.register(meterRegistry);
+		this.failed = Counter.builder("taxi.outbox.failed")
+				.description("Failed outbox deliveries (retried up to maxAttempts)")
+				.register(meterRegistry);
+		this.lag = Timer.builder("taxi.outbox.lag")
+				.description("Time from the order change commit to delivery")
+				.register(meterRegistry);
+	}
+
+	@Scheduled(fixedDelayString = "${outbox.relay.pollIntervalMs:100}")
+	public void relay() {
+		try {
+			int delivered;
+			// Keep going while full batches are delivered, a backlog is not left to the next poll
+			do {
+				delivered = relayBatch();
+			} while (delivered == properties.getBatchSize());
+		} catch (Exception e) {
+			log.error("Outbox relay failed, retrying on the next poll", e);
+		}
+	}
+
+	/**
+	 * Claims, delivers and removes one batch.
+	 * @return Number of entries delivered.
+	 */
+	int relayBatch() {
+		Integer deliveredCount = claimTransaction.execute(status -> {
+			List<OrderOutboxEntity> batch = outboxRepository.lockNextPerOrder(
+					PageRequest.ofSize(properties.getBatchSize()));
+
+			List<OrderOutboxEntity> done = new ArrayList<>(batch.size());
+			int ok = 0;
+			for (OrderOutboxEntity entry : batch) {
+				if (deliver(entry)) {
+					ok++;
+					done.add(entry);
+				} else if (entry.getAttempts() >= properties.getMaxAttempts()) {
+					done.add(entry);
+				}
+			}
+			// Failed entries stay with their attempt count and block later events of their order
+			outboxRepository.deleteAllInBatch(done);
+			return ok;
+		});
+		return deliveredCount == null ? 0 : deliveredCount;
+	}
+
+	// Private Helpers
+
+	private boolean deliver(OrderOutboxEntity entry) {
+		OrderUpdateEvent event = new OrderUpdateEvent(entry.getOrderId(), entry.getStatus(), entry.getCancellationSource());
+		try {
+			listenerContext.executeWithoutResult(status -> eventPublisher.publishEvent(event));
+			delivered.increment();
+			lag.record(Duration.between(entry.getCreatedAt(), Instant.now()));
+			return true;
+		} catch (Exception e) {
+			failed.increment();
+			entry.setAttempts(entry.getAttempts() + 1);
+			if (entry.getAttempts() >= properties.getMaxAttempts()) {
+				log.error("Dropping outbox entry id={} for orderId={} after {} attempts",
+						entry.getId(), entry.getOrderId(), entry.getAttempts(), e);
+			} else {
+				log.warn("Outbox delivery failed for orderId={}: {}", entry.getOrderId(), e.getMessage());
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.presence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DriverPresenceProperties;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Tracks which drivers are online, keyed by Telegram id, using a hashed timing
+ * wheel with one slot per sweep tick.
+ *
+ * <p>
+ * A heartbeat from a known driver is a single volatile write of its last-seen
+ * time. Each driver sits in exactly one slot, the one of the tick it would
+ * expire at; when that slot is swept the driver is either reported as expired or
+ * moved to the slot matching its latest heartbeat. Memory and sweep work are
+ * therefore proportional to the number of online drivers, not to the heartbeat
+ * rate, and nothing is scheduled per driver. A removed driver's entry stays
+ * behind until its slot is swept; entries that are not the driver's current
+ * slot are dropped there, so a driver that comes back is still swept once.
+ * </p>
+ */
+@Component
+public class DriverPresenceTracker {
+
+	private final long timeoutMs;
+	private final long tickMs;
+	private final long disconnectGraceMs;
+	private final LongSupplier clock;
+	private final Map<Long, Presence> online = new ConcurrentHashMap<>();
+	private final List<Set<Long>> wheel;
+	private long sweptTick;
+
+	@Autowired
+	public DriverPresenceTracker(DriverPresenceProperties properties, MeterRegistry meterRegistry) {
+		this(properties.getTimeoutMs(), properties.getTickMs(), properties.getDisconnectGraceMs(),
+				System::currentTimeMillis);
+		Gauge.builder("taxi.drivers.online", online, Map::size)
+				.description("Drivers with a heartbeat within the presence timeout")
+				.register(meterRegistry);
+	}
+
+	DriverPresenceTracker(long timeoutMs, long tickMs, long disconnectGraceMs, LongSupplier clock) {
+		this.timeoutMs = timeoutMs;
+		this.tickMs = tickMs;
+		this.disconnectGraceMs = disconnectGraceMs;
+		this.clock = clock;
+		// Enough slots that a re-scheduled driver never lands in the slot being swept
+		int slots = (int) (timeoutMs / tickMs) + 2;
+		this.wheel = new ArrayList<>(slots);
+		for (int i = 0; i < slots; i++) {
+			wheel.add(ConcurrentHashMap.newKeySet());
+		}
+		this.sweptTick = clock.getAsLong() / tickMs;
+	}
+
+	/**
+	 * Records a heartbeat.
+	 * @return {@code true} if the driver was not tracked as online before.
+	 */
+	public boolean touch(Long telegramId, Long driverId) {
+		long now = clock.getAsLong();
+
+		Presence presence = online.get(telegramId);
+		if (presence != null) {
+			presence.lastSeenMillis = now;
+			// Still the tracked instance, i.e. not expired by a concurrent sweep
+			if (online.get(telegramId) == presence) {
+				return false;
+			}
+		}
+
+		boolean[] arrived = {false};
+		online.compute(telegramId, (id, current) -> {
+			if (current == null) {
+				arrived[0] = true;
+				current = new Presence(driverId);
+				current.slot = slot(tickOf(now + timeoutMs));
+				current.slot.add(id);
+			}
+			current.lastSeenMillis = now;
+			return current;
+		});
+		return arrived[0];
+	}
+
+	/**
+	 * Forgets the driver (manual or administrative deactivation).
+	 */
+	public void remove(Long telegramId) {
+		// The slot entry is dropped by the sweep of its slot
+		online.remove(telegramId);
+	}
+
+	/**
+	 * Shortens the driver's timeout to the disconnect grace period (last WebSocket
+	 * closed). A heartbeat within the grace period keeps the driver online as usual.
+	 */
+	public void expireAfterGrace(Long telegramId) {
+		long now = clock.getAsLong();
+		long expiresAt = now + disconnectGraceMs;
+		online.computeIfPresent(telegramId, (id, presence) -> {
+			if (presence.lastSeenMillis + timeoutMs <= expiresAt) {
+				return presence;
+			}
+			presence.lastSeenMillis = expiresAt - timeoutMs;
+			// The entry in the old slot is dropped by its sweep
+			presence.slot = slot(Math.max(tickOf(expiresAt), tickOf(now) + 1));
+			presence.slot.add(id);
+			return presence;
+		});
+	}
+
+	public boolean isOnline(Long telegramId) {
+		return online.containsKey(telegramId);
+	}
+
+	public int onlineCount() {
+		return online.size();
+	}
+
+	// Slot entries, including those left behind by remove(); for tests
+	int scheduledCount() {
+		return wheel.stream().mapToInt(Set::size).sum();
+	}
+
+	/**
+	 * Advances the wheel to the current tick.
+	 * @return Drivers whose last heartbeat is older than the timeout; they are no longer tracked.
+	 */
+	public synchronized List<ExpiredDriver> sweep() {
+		long now = clock.getAsLong();
+		long currentTick = now / tickMs;
+		// After a full turn every slot has been visited
+		long fromTick = Math.max(sweptTick + 1, currentTick - wheel.size() + 1);
+
+		List<ExpiredDriver> expired = new ArrayList<>();
+		for (long tick = fromTick; tick <= currentTick; tick++) {
+			Set<Long> slot = slot(tick);
+			for (Long telegramId : slot) {
+				slot.remove(telegramId);
+				expireOrReschedule(telegramId, slot, now, currentTick, expired);
+			}
+		}
+		sweptTick = Math.max(sweptTick, currentTick);
+		return expired;
+	}
+
+	// Private Helpers
+
+	private void expireOrReschedule(Long telegramId, Set<Long> sweptSlot, long now, long currentTick,
+			List<ExpiredDriver> expired) {
+		online.computeIfPresent(telegramId, (id, presence) -> {
+			if (presence.slot != sweptSlot) {
+				// Left behind by remove(); the driver came back and sits in another slot
+				return presence;
+			}
+			long expiresAt = presence.lastSeenMillis + timeoutMs;
+			if (expiresAt <= now) {
+				expired.add(new ExpiredDriver(id, presence.driverId));
+				return null;
+			}
+			// Never back into the slot being swept
+			presence.slot = slot(Math.max(tickOf(expiresAt), currentTick + 1));
+			presence.slot.add(id);
+			return presence;
+		});
+	}
+
+	private long tickOf(long millis) {
+		return millis / tickMs;
+	}
+
+	private Set<Long> slot(long tick) {
+		return wheel.get((int) (tick % wheel.size()));
+	}
+
+	private static final class Presence {
+
+		private final Long driverId;
+		private volatile long lastSeenMillis;
+		// Only changed inside online.compute for this driver
+		private Set<Long> slot;
+
+		private Presence(Long driverId) {
+			this.driverId = driverId;
+		}
+	}
+
+	public record ExpiredDriver(Long telegramId, Long driverId) {
+	}
+}
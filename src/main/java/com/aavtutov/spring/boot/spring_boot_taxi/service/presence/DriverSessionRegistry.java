@@ -0,0 +1,37 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.presence;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * WebSocket sessions that have sent driver heartbeats, per Telegram id. A driver
+ * may briefly hold two sessions (page switch, reconnect); only closing the last
+ * one takes the driver offline.
+ */
+@Component
+public class DriverSessionRegistry {
+
+	private final Map<Long, Set<String>> sessionsByTelegramId = new ConcurrentHashMap<>();
+
+	public void register(Long telegramId, String sessionId) {
+		sessionsByTelegramId.computeIfAbsent(telegramId, id -> ConcurrentHashMap.newKeySet()).add(sessionId);
+	}
+
+	/**
+	 * @return {@code true} if this was the driver's last heartbeat session.
+	 */
+	public boolean unregister(Long telegramId, String sessionId) {
+		boolean[] last = {false};
+		sessionsByTelegramId.computeIfPresent(telegramId, (id, sessions) -> {
+			if (!sessions.remove(sessionId)) {
+				return sessions;
+			}
+			last[0] = sessions.isEmpty();
+			return last[0] ? null : sessions;
+		});
+		return last[0];
+	}
+}
@@ -0,0 +1,189 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.presence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DriverStatusWriteProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Write-behind buffer for heartbeat-driven status changes (INACTIVE <-> ACTIVE).
+ *
+ * <p>
+ * Changes are kept per Telegram id until the next flush, which writes them as
+ * JDBC batches of conditional updates ({@code WHERE status = <expected>}), so a
+ * shift start costs a few batches instead of one transaction per driver. Until
+ * then the buffered status is the authoritative one: {@link #pendingStatus}
+ * is consulted before the database for every driver lookup. A change that meets
+ * a different status in the database (e.g. a ban committed meanwhile) is dropped.
+ * A change buffered while the driver's previous one is being written starts
+ * from the status being written, so it is kept whatever the write's outcome.
+ * Flushing is driven by {@code DriverServiceImpl}, which also owns the snapshot
+ * cache that has to be refreshed afterwards.
+ * </p>
+ */
+@Component
+public class DriverStatusWriteBehind {
+
+	private static final String UPDATE_STATUS_SQL =
+			"UPDATE drivers SET status = ? WHERE telegram_user_id = ? AND status = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final DriverStatusWriteProperties properties;
+	private final Map<Long, PendingStatus> pending = new ConcurrentHashMap<>();
+	// The changes of the batch being written, by Telegram id
+	private final Map<Long, PendingStatus> inFlight = new ConcurrentHashMap<>();
+
+	private final Timer flushTimer;
+	private final Timer writeDelay;
+	private final Counter conflicts;
+
+	public DriverStatusWriteBehind(JdbcTemplate jdbcTemplate,
+			TransactionTemplate transactionTemplate,
+			DriverStatusWriteProperties properties,
+			MeterRegistry meterRegistry) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.properties = properties;
+		Gauge.builder("taxi.drivers.status.pending", pending, Map::size)
+				.description("Driver status changes waiting to be written")
+				.register(meterRegistry);
+		this.flushTimer = Timer.builder("taxi.drivers.status.flush")
+				.description("Duration of one write-behind flush")
+				.register(meterRegistry);
+		this.writeDelay = Timer.builder("taxi.drivers.status.write_delay")
+				.description("Time from a status change to its commit")
+				.register(meterRegistry);
+		this.conflicts = Counter.builder("taxi.drivers.status.conflicts")
+				.description("Buffered changes dropped because the stored status had changed")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Buffers a status change that applies only while the stored status is {@code expected}.
+	 */
+	public void enqueue(Long telegramId, DriverStatus newStatus, DriverStatus expected) {
+		long now = System.nanoTime();
+		pending.compute(telegramId, (id, current) -> {
+			if (current != null && inFlight.get(id) == current) {
+				// Being written: the new change follows the written status
+				return newStatus == current.status() ? current : new PendingStatus(newStatus, current.status(), now);
+			}
+			// The stored status is still the one seen before the first buffered change
+			DriverStatus stored = current == null ? expected : current.expected();
+			return newStatus == stored ? null : new PendingStatus(newStatus, stored, now);
+		});
+	}
+
+	/**
+	 * Status the driver will have once buffered changes are written, if any.
+	 */
+	public Optional<DriverStatus> pendingStatus(Long telegramId) {
+		return Optional.ofNullable(pending.get(telegramId)).map(PendingStatus::status);
+	}
+
+	/**
+	 * Forgets buffered changes, waiting for a flush in progress to finish first.
+	 */
+	public synchronized void discard(Collection<Long> telegramIds) {
+		telegramIds.forEach(pending::remove);
+	}
+
+	/**
+	 * Writes all buffered changes.
+	 * @param onWritten Called with the Telegram ids of each written batch, after commit.
+	 */
+	public synchronized void flush(Consumer<List<Long>> onWritten) {
+		if (pending.isEmpty()) {
+			return;
+		}
+		flushTimer.record(() -> {
+			List<Long> telegramIds = new ArrayList<>(pending.keySet());
+			int batchSize = properties.getBatchSize();
+			for (int from = 0; from < telegramIds.size(); from += batchSize) {
+				writeBatch(telegramIds.subList(from, Math.min(from + batchSize, telegramIds.size())), onWritten);
+			}
+		});
+	}
+
+	public int pendingCount() {
+		return pending.size();
+	}
+
+	// Private Helpers
+
+	private void writeBatch(List<Long> telegramIds, Consumer<List<Long>> onWritten) {
+		// Take each driver's current change and mark it as being written, atomically with enqueue
+		List<Map.Entry<Long, PendingStatus>> batch = new ArrayList<>(telegramIds.size());
+		telegramIds.forEach(telegramId -> pending.computeIfPresent(telegramId, (id, current) -> {
+			inFlight.put(id, current);
+			batch.add(Map.entry(id, current));
+			return current;
+		}));
+		try {
+			if (!batch.isEmpty()) {
+				writeMarkedBatch(batch, onWritten);
+			}
+		} finally {
+			batch.forEach(change -> inFlight.remove(change.getKey()));
+		}
+	}
+
+	private void writeMarkedBatch(List<Map.Entry<Long, PendingStatus>> batch, Consumer<List<Long>> onWritten) {
+		List<Object[]> args = batch.stream()
+				.map(change -> new Object[] {
+						change.getValue().status().name(),
+						change.getKey(),
+						change.getValue().expected().name()})
+				.toList();
+
+		// One transaction per batch
+		int[] updated = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, args));
+
+		long now = System.nanoTime();
+		List<Long> telegramIds = new ArrayList<>(batch.size());
+		for (Map.Entry<Long, PendingStatus> change : batch) {
+			writeDelay.record(now - change.getValue().enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+			telegramIds.add(change.getKey());
+		}
+
+		onWritten.accept(telegramIds);
+
+		for (int i = 0; i < batch.size(); i++) {
+			PendingStatus written = batch.get(i).getValue();
+			if (updated[i] == 0) {
+				// The stored status moved on (admin change), the database wins; a change
+				// buffered during the write is kept and meets the same check on the next flush
+				conflicts.increment();
+				pending.remove(batch.get(i).getKey(), written);
+				continue;
+			}
+			// A change buffered during the write now has to start from the written status
+			pending.computeIfPresent(batch.get(i).getKey(),
+					(id, current) -> current == written ? null : rebase(current, written.status()));
+		}
+	}
+
+	private static PendingStatus rebase(PendingStatus change, DriverStatus stored) {
+		return change.status() == stored ? null : new PendingStatus(change.status(), stored, change.enqueuedAtNanos());
+	}
+
+	private record PendingStatus(DriverStatus status, DriverStatus expected, long enqueuedAtNanos) {
+	}
+}
@@ -0,0 +1,397 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.telegram;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.TelegramOutboundProperties;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Outbound queue for Telegram messages that keeps the bot within the API limits.
+ *
+ * <p>
+ * Messages are queued per chat and sent by a periodic dispatcher. A global token
+ * bucket caps the overall rate, each chat gets at most one message per
+ * {@code perChatInterval}, and chats take turns so one busy chat cannot starve
+ * the rest. Plain text messages still waiting for the same chat are merged into
+ * one up to the Telegram size limit.
+ * </p>
+ *
+ * <p>
+ * Failed sends are retried with exponential backoff; on 429 the
+ * {@code retry_after} from Telegram is honoured instead. Other 4xx responses
+ * (blocked bot, bad chat) are not retried.
+ * </p>
+ */
+@Component
+@Slf4j
+public class TelegramOutboundQueue {
+
+	private static final String MERGE_SEPARATOR = "\n\n";
+
+	private final MessageSender sender;
+	private final LongSupplier clock;
+	private final TelegramOutboundProperties properties;
+	private final TokenBucket globalBucket;
+
+	private final Map<String, ChatQueue> chats = new ConcurrentHashMap<>();
+	/** Chats with a message ready to go, in turn order. */
+	private final ConcurrentLinkedDeque<ChatQueue> ready = new ConcurrentLinkedDeque<>();
+	/** Chats with nothing left to send, kept until their interval ends, roughly in nextSendAt order. */
+	private final ConcurrentLinkedQueue<ChatQueue> coolingDown = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queuedMessages = new AtomicInteger();
+
+	private final Timer sendLatency;
+	private final Counter mergedCounter;
+	private final Counter retriedCounter;
+	private final Counter droppedQueueFull;
+	private final Counter droppedRejected;
+	private final Counter droppedRetriesExhausted;
+
+	@Autowired
+	public TelegramOutboundQueue(
+			WebClient.Builder webClientBuilder,
+			@Value("${telegram.bot.token}") String botToken,
+			TelegramOutboundProperties properties,
+			MeterRegistry meterRegistry) {
+		this(sendMessageCall(webClientBuilder, botToken), properties, meterRegistry, System::currentTimeMillis);
+	}
+
+	TelegramOutboundQueue(
+			MessageSender sender,
+			TelegramOutboundProperties properties,
+			MeterRegistry meterRegistry,
+			LongSupplier clock) {
+		this.sender = sender;
+		this.clock = clock;
+		this.properties = properties;
+		this.globalBucket = new TokenBucket(properties.getGlobalPerSecond(), clock);
+
+		Gauge.builder("taxi.telegram.outbound.queue.depth", queuedMessages, AtomicInteger::get)
+				.description("Telegram messages waiting to be sent")
+				.register(meterRegistry);
+		this.sendLatency = Timer.builder("taxi.telegram.outbound.latency")
+				.description("Time from enqueue to successful delivery")
+				.register(meterRegistry);
+		this.mergedCounter = Counter.builder("taxi.telegram.outbound.merged")
+				.description("Messages merged into a pending message for the same chat")
+				.register(meterRegistry);
+		this.retriedCounter = Counter.builder("taxi.telegram.outbound.retries")
+				.description("Failed sends scheduled for another attempt")
+				.register(meterRegistry);
+		this.droppedQueueFull = droppedCounter(meterRegistry, "queue_full");
+		this.droppedRejected = droppedCounter(meterRegistry, "rejected");
+		this.droppedRetriesExhausted = droppedCounter(meterRegistry, "retries_exhausted");
+	}
+
+	/**
+     * Queues the message for delivery. Never blocks; drops the message if the queue is full.
+     */
+	public void enqueue(String chatId, String text, InlineKeyboardMarkup keyboard) {
+		if (queuedMessages.get() >= properties.getMaxQueueSize()) {
+			droppedQueueFull.increment();
+			log.warn("Telegram outbound queue is full, dropping message for chatId={}", chatId);
+			return;
+		}
+
+		OutboundMessage message = new OutboundMessage(chatId, text, keyboard, System.nanoTime());
+
+		// Adding inside compute() so an idle chat can't be removed concurrently
+		chats.compute(chatId, (id, chat) -> {
+			ChatQueue target = (chat != null) ? chat : new ChatQueue(id);
+			synchronized (target) {
+				if (tryMerge(target, message)) {
+					mergedCounter.increment();
+				} else {
+					target.messages.addLast(message);
+					queuedMessages.incrementAndGet();
+				}
+			}
+			return target;
+		});
+
+		scheduleIfReady(chats.get(chatId));
+	}
+
+	/**
+     * Sends as many ready messages as the global and per-chat limits allow.
+     */
+	@Scheduled(fixedDelayString = "${telegram.outbound.dispatchIntervalMs:50}")
+	public void dispatch() {
+		long now = clock.getAsLong();
+		forgetIdleChats(now);
+		int turns = ready.size();
+
+		for (int i = 0; i < turns; i++) {
+			ChatQueue chat = ready.pollFirst();
+			if (chat == null) {
+				return;
+			}
+
+			OutboundMessage message;
+			synchronized (chat) {
+				if (chat.nextSendAt > now) {
+					// Still cooling down, keep its place in the rotation
+					ready.offerLast(chat);
+					continue;
+				}
+				if (!globalBucket.tryAcquire()) {
+					ready.offerFirst(chat);
+					return;
+				}
+				message = chat.messages.pollFirst();
+				chat.scheduled = false;
+				if (message == null) {
+					continue;
+				}
+				chat.inFlight = true;
+				chat.nextSendAt = now + properties.getPerChatInterval().toMillis();
+			}
+			queuedMessages.decrementAndGet();
+			send(chat, message);
+		}
+	}
+
+	// Private Helpers
+
+	private void send(ChatQueue chat, OutboundMessage message) {
+		Map<String, Object> body = new HashMap<>();
+		body.put("chat_id", message.chatId());
+		body.put("text", message.text());
+		body.put("parse_mode", "HTML");
+		if (message.keyboard() != null) {
+			body.put("reply_markup", message.keyboard());
+		}
+
+		sender.send(body)
+				.timeout(properties.getRequestTimeout())
+				.subscribe(
+						response -> onDelivered(chat, message),
+						error -> onFailed(chat, message, error));
+	}
+
+	private void onDelivered(ChatQueue chat, OutboundMessage message) {
+		sendLatency.record(System.nanoTime() - message.enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+		release(chat, null, 0);
+	}
+
+	private void onFailed(ChatQueue chat, OutboundMessage message, Throwable error) {
+		Integer status = (error instanceof WebClientResponseException e) ? e.getStatusCode().value() : null;
+		boolean rateLimited = status != null && status == HttpStatus.TOO_MANY_REQUESTS.value();
+		boolean rejected = status != null && status >= 400 && status < 500 && !rateLimited;
+
+		if (rejected) {
+			droppedRejected.increment();
+			log.error("Telegram API rejected message [chatId: {}]: {}", message.chatId(), error.getMessage());
+			release(chat, null, 0);
+			return;
+		}
+
+		int attempt = message.attempt() + 1;
+		if (attempt >= properties.getMaxAttempts()) {
+			droppedRetriesExhausted.increment();
+			log.error("Telegram API error, giving up after {} attempts [chatId: {}]: {}",
+					attempt, message.chatId(), error.getMessage());
+			release(chat, null, 0);
+			return;
+		}
+
+		long delayMs = rateLimited
+				? retryAfterMs((WebClientResponseException) error, attempt)
+				: backoffMs(attempt);
+		log.warn("Telegram API error, retrying in {} ms [chatId: {}]: {}", delayMs, message.chatId(), error.getMessage());
+		retriedCounter.increment();
+		release(chat, message.nextAttempt(), delayMs);
+	}
+
+	/**
+     * Ends the in-flight send; a message to retry goes back to the head of the chat queue.
+     */
+	private void release(ChatQueue chat, OutboundMessage retry, long delayMs) {
+		synchronized (chat) {
+			chat.inFlight = false;
+			if (retry != null) {
+				chat.messages.addFirst(retry);
+				queuedMessages.incrementAndGet();
+				chat.nextSendAt = Math.max(chat.nextSendAt, clock.getAsLong() + delayMs);
+			}
+		}
+
+		if (!scheduleIfReady(chat)) {
+			// Kept until its interval ends, a new ChatQueue would send again at once
+			coolingDown.offer(chat);
+		}
+	}
+
+	private void forgetIdleChats(long now) {
+		ChatQueue chat;
+		while ((chat = coolingDown.peek()) != null) {
+			synchronized (chat) {
+				if (chat.nextSendAt > now) {
+					return;
+				}
+			}
+			coolingDown.poll();
+			chats.computeIfPresent(chat.chatId, (id, current) -> {
+				synchronized (current) {
+					return current.isIdle(now) ? null : current;
+				}
+			});
+		}
+	}
+
+	// Chats still tracked, including those cooling down; for tests
+	int trackedChats() {
+		return chats.size();
+	}
+
+	private boolean scheduleIfReady(ChatQueue chat) {
+		if (chat == null) {
+			return false;
+		}
+		synchronized (chat) {
+			if (chat.scheduled) {
+				return true;
+			}
+			if (chat.inFlight || chat.messages.isEmpty()) {
+				return false;
+			}
+			chat.scheduled = true;
+		}
+		ready.offerLast(chat);
+		return true;
+	}
+
+	private boolean tryMerge(ChatQueue chat, OutboundMessage message) {
+		OutboundMessage last = chat.messages.peekLast();
+		if (last == null || last.keyboard() != null || message.keyboard() != null || last.attempt() > 0) {
+			return false;
+		}
+
+		int mergedLength = last.text().length() + MERGE_SEPARATOR.length() + message.text().length();
+		if (mergedLength > properties.getMaxMessageLength()) {
+			return false;
+		}
+
+		chat.messages.pollLast();
+		chat.messages.addLast(last.append(MERGE_SEPARATOR + message.text()));
+		return true;
+	}
+
+	private long retryAfterMs(WebClientResponseException error, int attempt) {
+		try {
+			TelegramErrorResponse response = error.getResponseBodyAs(TelegramErrorResponse.class);
+			if (response != null && response.parameters() != null && response.parameters().retryAfter() != null) {
+				return Duration.ofSeconds(response.parameters().retryAfter()).toMillis();
+			}
+		} catch (Exception e) {
+			log.debug("Could not read retry_after from Telegram response", e);
+		}
+		return backoffMs(attempt);
+	}
+
+	private long backoffMs(int attempt) {
+		long initial = properties.getInitialBackoff().toMillis();
+		long delay = initial << Math.min(attempt - 1, 20);
+		return Math.min(delay, properties.getMaxBackoff().toMillis());
+	}
+
+	private static MessageSender sendMessageCall(WebClient.Builder webClientBuilder, String botToken) {
+		WebClient webClient = webClientBuilder.baseUrl("https://api.telegram.org").build();
+		String sendMessagePath = String.format("/bot%s/sendMessage", botToken);
+		return body -> webClient.post()
+				.uri(sendMessagePath)
+				.bodyValue(body)
+				.retrieve()
+				.toBodilessEntity();
+	}
+
+	private static Counter droppedCounter(MeterRegistry meterRegistry, String reason) {
+		return Counter.builder("taxi.telegram.outbound.dropped")
+				.description("Telegram messages that were never delivered")
+				.tag("reason", reason)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * The sendMessage call; completes with a value on delivery, fails with the API error.
+	 */
+	@FunctionalInterface
+	interface MessageSender {
+		Mono<?> send(Map<String, Object> body);
+	}
+
+	/**
+	 * Pending messages of one chat; all fields are guarded by the instance lock.
+	 */
+	private static final class ChatQueue {
+
+		private final String chatId;
+		private final Deque<OutboundMessage> messages = new ArrayDeque<>();
+		private long nextSendAt;
+		private boolean inFlight;
+		private boolean scheduled;
+
+		private ChatQueue(String chatId) {
+			this.chatId = chatId;
+		}
+
+		private boolean isIdle(long now) {
+			return !inFlight && !scheduled && messages.isEmpty() && nextSendAt <= now;
+		}
+	}
+
+	private record OutboundMessage(
+			String chatId,
+			String text,
+			InlineKeyboardMarkup keyboard,
+			long enqueuedAtNanos,
+			int attempt) {
+
+		private OutboundMessage(String chatId, String text, InlineKeyboardMarkup keyboard, long enqueuedAtNanos) {
+			this(chatId, text, keyboard, enqueuedAtNanos, 0);
+		}
+
+		private OutboundMessage append(String suffix) {
+			return new OutboundMessage(chatId, text + suffix, keyboard, enqueuedAtNanos, attempt);
+		}
+
+		private OutboundMessage nextAttempt() {
+			return new OutboundMessage(chatId, text, keyboard, enqueuedAtNanos, attempt + 1);
+		}
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	record TelegramErrorResponse(ResponseParameters parameters) {
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	record ResponseParameters(@JsonProperty("retry_after") Integer retryAfter) {
+	}
+}
@@ -0,0 +1,36 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.telegram;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket refilled continuously at a fixed rate; the capacity bounds bursts.
+ */
+class TokenBucket {
+
+	private final double capacity;
+	private final double tokensPerMilli;
+	private final LongSupplier clock;
+
+	private double tokens;
+	private long lastRefillMillis;
+
+	TokenBucket(int tokensPerSecond, LongSupplier clock) {
+		this.capacity = tokensPerSecond;
+		this.tokensPerMilli = tokensPerSecond / 1_000.0;
+		this.clock = clock;
+		this.tokens = tokensPerSecond;
+		this.lastRefillMillis = clock.getAsLong();
+	}
+
+	synchronized boolean tryAcquire() {
+		long now = clock.getAsLong();
+		tokens = Math.min(capacity, tokens + Math.max(0, now - lastRefillMillis) * tokensPerMilli);
+		lastRefillMillis = now;
+
+		if (tokens < 1) {
+			return false;
+		}
+		tokens -= 1;
+		return true;
+	}
+}
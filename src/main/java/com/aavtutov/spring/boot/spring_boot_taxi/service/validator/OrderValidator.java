@@ -5,7 +5,7 @@ import java.util.List;
 import org.springframework.stereotype.Component;
 
 import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
-import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverSnapshot;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
@@ -67,9 +67,9 @@ public class OrderValidator {
 		}
 	}
 	
-	public void throwIfDriverNotActive(DriverEntity driver) {
-		if (driver.getStatus() != DriverStatus.ACTIVE) {
-			throw new DriverOfflineException("Driver is not ACTIVE (current status: " + driver.getStatus() + ")");
+	public void throwIfDriverNotActive(DriverSnapshot driver) {
+		if (driver.status() != DriverStatus.ACTIVE) {
+			throw new DriverOfflineException("Driver is not ACTIVE (current status: " + driver.status() + ")");
 		}
 	}
 	
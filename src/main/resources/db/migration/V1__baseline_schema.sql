@@ -0,0 +1,61 @@
+-- Schema as it was created by hand before migrations were introduced.
+-- Existing databases are baselined at this version and skip this script.
+
+CREATE TABLE clients (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    telegram_user_id    BIGINT                      NOT NULL,
+    telegram_chat_id    VARCHAR(255)                NOT NULL,
+    full_name           VARCHAR(255),
+    phone_number        VARCHAR(255),
+    created_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_clients_telegram_user_id UNIQUE (telegram_user_id),
+    CONSTRAINT uk_clients_telegram_chat_id UNIQUE (telegram_chat_id),
+    CONSTRAINT uk_clients_phone_number UNIQUE (phone_number)
+);
+
+CREATE TABLE drivers (
+    id                   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    telegram_user_id     BIGINT                      NOT NULL,
+    telegram_chat_id     VARCHAR(255)                NOT NULL,
+    full_name            VARCHAR(255),
+    phone_number         VARCHAR(255),
+    status               VARCHAR(255)                NOT NULL,
+    car_model            VARCHAR(255),
+    car_color            VARCHAR(255),
+    license_plate        VARCHAR(255),
+    driver_license_url   VARCHAR(255),
+    car_registration_url VARCHAR(255),
+    created_at           TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_drivers_telegram_user_id UNIQUE (telegram_user_id),
+    CONSTRAINT uk_drivers_telegram_chat_id UNIQUE (telegram_chat_id),
+    CONSTRAINT uk_drivers_phone_number UNIQUE (phone_number),
+    CONSTRAINT uk_drivers_license_plate UNIQUE (license_plate)
+);
+
+CREATE TABLE orders (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    client_id           BIGINT                      NOT NULL,
+    driver_id           BIGINT,
+    status              VARCHAR(255),
+    cancellation_source VARCHAR(255),
+    start_address       VARCHAR(255)                NOT NULL,
+    end_address         VARCHAR(255)                NOT NULL,
+    start_latitude      NUMERIC(10, 8)              NOT NULL,
+    start_longitude     NUMERIC(11, 8)              NOT NULL,
+    end_latitude        NUMERIC(10, 8)              NOT NULL,
+    end_longitude       NUMERIC(11, 8)              NOT NULL,
+    aproximate_distance NUMERIC(10, 3),
+    aproximate_duration NUMERIC(10, 2),
+    actual_duration     NUMERIC(10, 2),
+    price               NUMERIC(38, 2)              NOT NULL,
+    bonus_fare          NUMERIC(38, 2)              NOT NULL,
+    total_price         NUMERIC(38, 2)              NOT NULL,
+    notes               VARCHAR(255),
+    created_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    accepted_at         TIMESTAMP(6) WITH TIME ZONE,
+    started_at          TIMESTAMP(6) WITH TIME ZONE,
+    completed_at        TIMESTAMP(6) WITH TIME ZONE,
+    cancelled_at        TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT fk_orders_client FOREIGN KEY (client_id) REFERENCES clients (id),
+    CONSTRAINT fk_orders_driver FOREIGN KEY (driver_id) REFERENCES drivers (id)
+);
@@ -0,0 +1,42 @@
+-- Order event outbox (OrderOutboxEntity, written with every order change and drained by
+-- OrderOutboxRelay). Not part of the hand-made schema, so it is created here, where
+-- databases baselined at V1 get it as well.
+CREATE TABLE IF NOT EXISTS order_outbox (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_id            BIGINT                      NOT NULL,
+    status              VARCHAR(255)                NOT NULL,
+    cancellation_source VARCHAR(255),
+    attempts            INTEGER                     NOT NULL,
+    created_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_order_outbox_order_id ON order_outbox (order_id);
+
+-- Indexes behind the order lookups on the request path.
+-- IF NOT EXISTS: databases baselined at V1 may already carry some of them.
+-- clients / drivers are looked up by telegram_user_id through their unique constraints (V1).
+
+-- At most one active order per client and per driver. OrderValidator checks this
+-- before writing; these indexes close the race between two concurrent requests.
+-- They also serve existsByClientIdAndStatusIn / existsByDriverIdAndStatusIn,
+-- findFirstByDriverIdAndStatusIn, findDriverIdsWithOrderStatusIn and findActiveOrderForChat.
+CREATE UNIQUE INDEX IF NOT EXISTS ux_orders_client_active
+    ON orders (client_id)
+    WHERE status IN ('PENDING', 'ACCEPTED', 'IN_PROGRESS');
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_orders_driver_active
+    ON orders (driver_id)
+    WHERE status IN ('PENDING', 'ACCEPTED', 'IN_PROGRESS');
+
+-- Pending orders for dispatch (findAllByStatus, findAllByStatusWithClient); stays small
+-- because completed and cancelled orders are not part of it.
+CREATE INDEX IF NOT EXISTS idx_orders_pending
+    ON orders (created_at)
+    WHERE status = 'PENDING';
+
+-- Order histories (keyset pages) and findTopByClientIdOrderByCreatedAtDesc
+CREATE INDEX IF NOT EXISTS idx_orders_client_history
+    ON orders (client_id, created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_orders_driver_history
+    ON orders (driver_id, created_at DESC, id DESC);
@@ -0,0 +1,28 @@
+-- Ids come from pooled sequences: Hibernate reserves 50 ids per nextval (allocationSize = 50,
+-- hence INCREMENT BY 50) and can batch inserts, which identity columns rule out.
+-- Each sequence continues after the current maximum id. The column defaults keep plain
+-- SQL inserts working; such an insert takes a whole block, so it never collides with Hibernate.
+
+CREATE SEQUENCE clients_seq INCREMENT BY 50;
+SELECT setval('clients_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM clients));
+ALTER TABLE clients ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE clients ALTER COLUMN id SET DEFAULT nextval('clients_seq');
+ALTER SEQUENCE clients_seq OWNED BY clients.id;
+
+CREATE SEQUENCE drivers_seq INCREMENT BY 50;
+SELECT setval('drivers_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM drivers));
+ALTER TABLE drivers ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE drivers ALTER COLUMN id SET DEFAULT nextval('drivers_seq');
+ALTER SEQUENCE drivers_seq OWNED BY drivers.id;
+
+CREATE SEQUENCE orders_seq INCREMENT BY 50;
+SELECT setval('orders_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM orders));
+ALTER TABLE orders ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE orders ALTER COLUMN id SET DEFAULT nextval('orders_seq');
+ALTER SEQUENCE orders_seq OWNED BY orders.id;
+
+CREATE SEQUENCE order_outbox_seq INCREMENT BY 50;
+SELECT setval('order_outbox_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM order_outbox));
+ALTER TABLE order_outbox ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE order_outbox ALTER COLUMN id SET DEFAULT nextval('order_outbox_seq');
+ALTER SEQUENCE order_outbox_seq OWNED BY order_outbox.id;
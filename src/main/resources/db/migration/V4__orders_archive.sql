@@ -0,0 +1,46 @@
+-- Cold order history. OrderArchiver moves completed and cancelled orders older than
+-- order.archive.olderThan here, so orders and its indexes only carry the recent history.
+-- A hot/archive split instead of range partitioning on created_at: unique indexes of a
+-- partitioned table must contain the partition key, which would turn ux_orders_client_active
+-- and ux_orders_driver_active (one active order per client / driver) into per-month checks.
+-- Rows keep their id, so no default here; history reads merge both tables by (created_at, id).
+CREATE TABLE orders_archive (
+    id                  BIGINT                      PRIMARY KEY,
+    client_id           BIGINT                      NOT NULL,
+    driver_id           BIGINT,
+    status              VARCHAR(255),
+    cancellation_source VARCHAR(255),
+    start_address       VARCHAR(255)                NOT NULL,
+    end_address         VARCHAR(255)                NOT NULL,
+    start_latitude      NUMERIC(10, 8)              NOT NULL,
+    start_longitude     NUMERIC(11, 8)              NOT NULL,
+    end_latitude        NUMERIC(10, 8)              NOT NULL,
+    end_longitude       NUMERIC(11, 8)              NOT NULL,
+    aproximate_distance NUMERIC(10, 3),
+    aproximate_duration NUMERIC(10, 2),
+    actual_duration     NUMERIC(10, 2),
+    price               NUMERIC(38, 2)              NOT NULL,
+    bonus_fare          NUMERIC(38, 2)              NOT NULL,
+    total_price         NUMERIC(38, 2)              NOT NULL,
+    notes               VARCHAR(255),
+    created_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    accepted_at         TIMESTAMP(6) WITH TIME ZONE,
+    started_at          TIMESTAMP(6) WITH TIME ZONE,
+    completed_at        TIMESTAMP(6) WITH TIME ZONE,
+    cancelled_at        TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT fk_orders_archive_client FOREIGN KEY (client_id) REFERENCES clients (id),
+    CONSTRAINT fk_orders_archive_driver FOREIGN KEY (driver_id) REFERENCES drivers (id)
+);
+
+-- Archived histories, read with the same keyset cursor as idx_orders_client_history
+CREATE INDEX idx_orders_archive_client_history
+    ON orders_archive (client_id, created_at DESC, id DESC);
+
+CREATE INDEX idx_orders_archive_driver_history
+    ON orders_archive (driver_id, created_at DESC, id DESC);
+
+-- Orders due for archiving (OrderArchiver); once the backlog is moved it only covers
+-- the terminal orders of the retention window.
+CREATE INDEX idx_orders_archivable
+    ON orders (created_at)
+    WHERE status IN ('COMPLETED', 'CANCELED');
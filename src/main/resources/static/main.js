@@ -790,6 +790,9 @@ function subscribeToOrderStatus(orderId) {
                 lastKnownOrder = updatedOrder;
                 processFinalStatus(updatedOrder);
             }
+        } else {
+            // Same status, e.g. the route estimate has arrived
+            currentOrder = updatedOrder;
         }
     });
 }
@@ -799,6 +802,8 @@ function processFinalStatus(order) {
         case 'CANCELED':
 			if(order.cancellationSource === 'DRIVER') {
 				tg.showAlert("Your ride was cancelled by the driver");
+			} else if (order.cancellationSource === 'SYSTEM') {
+				tg.showAlert("We could not build a route for this ride. Please check the addresses and try again.");
 			}
 			formInactive(order.cancellationSource !== 'DRIVER');
             break;
@@ -0,0 +1,98 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DispatchProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.dispatch.AssignmentSolver;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.DriverLocationIndex;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.DriverLocationIndex.NearbyDriver;
+
+/**
+ * Time to solve one batch dispatch window of {@code size} orders and
+ * {@code size} drivers, spread uniformly over a 20 x 20 km city or crowded
+ * into a 2 x 2 km hotspot. Candidates come from {@link DriverLocationIndex}
+ * with the default dispatch settings; only the solver is measured.
+ *
+ * <p>
+ * Run with {@code main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp target/test-classes:<test classpath> ...AssignmentSolverBenchmark}.
+ * Solving must stay well below {@code dispatch.batchWindowMs} at 5000.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssignmentSolverBenchmark {
+
+	// Roughly 20 km north-south and east-west around 50N
+	private static final double LAT = 50.0;
+	private static final double LNG = 14.0;
+	private static final double CITY_SPAN = 0.18;
+	private static final double HOTSPOT_SPAN = 0.018;
+
+	@Param({ "500", "2000", "5000" })
+	private int size;
+
+	@Param({ "CITY", "HOTSPOT" })
+	private String layout;
+
+	private AssignmentSolver.Problem problem;
+
+	@Setup
+	public void setup() {
+		DispatchProperties properties = new DispatchProperties();
+		DriverLocationIndex index = new DriverLocationIndex(properties);
+		Random random = new Random(42);
+
+		for (int driver = 0; driver < size; driver++) {
+			index.update((long) driver, LAT + random.nextDouble() * CITY_SPAN, LNG + random.nextDouble() * CITY_SPAN * 1.5);
+		}
+
+		double orderSpan = "HOTSPOT".equals(layout) ? HOTSPOT_SPAN : CITY_SPAN;
+		double radiusMeters = properties.getSearchRadiusKm() * 1000;
+		problem = new AssignmentSolver.Problem(size, (long) Math.ceil(radiusMeters), size,
+				size * properties.getMaxCandidates());
+		for (int order = 0; order < size; order++) {
+			double lat = LAT + CITY_SPAN / 2 + (random.nextDouble() - 0.5) * orderSpan;
+			double lng = LNG + (CITY_SPAN / 2 + (random.nextDouble() - 0.5) * orderSpan) * 1.5;
+			List<NearbyDriver> nearby = index.findNearest(lat, lng, properties.getMaxCandidates(), radiusMeters);
+
+			problem.addOrder();
+			for (NearbyDriver driver : nearby) {
+				problem.addCandidate(driver.driverId().intValue(), Math.round(driver.distanceMeters()));
+			}
+		}
+	}
+
+	@Benchmark
+	public int[] solve() {
+		return AssignmentSolver.solve(problem);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(AssignmentSolverBenchmark.class.getSimpleName())
+				.build())
+				.run();
+	}
+}
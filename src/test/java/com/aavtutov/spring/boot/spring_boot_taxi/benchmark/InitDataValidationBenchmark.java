@@ -0,0 +1,130 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.benchmark;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.TelegramAuthProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.telegram.TelegramUserDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.security.InitDataFixtures;
+import com.aavtutov.spring.boot.spring_boot_taxi.security.TelegramWebAppAuthValidator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Cost of validating one initData string: the previous implementation, the
+ * current one with the cache disabled, and the current one on a cache hit.
+ *
+ * <p>
+ * Run with {@code main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp target/test-classes:<test classpath> ...InitDataValidationBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InitDataValidationBenchmark {
+
+	private static final String BOT_TOKEN = "7412563980:AAF-benchmark-token-value-1234567890";
+
+	private ObjectMapper objectMapper;
+	private TelegramWebAppAuthValidator uncachedValidator;
+	private TelegramWebAppAuthValidator cachedValidator;
+	private String initData;
+
+	@Setup
+	public void setup() {
+		objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		initData = InitDataFixtures.signedInitData(BOT_TOKEN, 402117853L, "Anna", Instant.now().getEpochSecond());
+
+		TelegramAuthProperties noCache = new TelegramAuthProperties();
+		noCache.setCacheSize(0);
+		uncachedValidator = new TelegramWebAppAuthValidator(BOT_TOKEN, objectMapper, noCache, new SimpleMeterRegistry());
+
+		TelegramAuthProperties withCache = new TelegramAuthProperties();
+		withCache.setInitDataMaxAge(Duration.ofHours(1));
+		cachedValidator = new TelegramWebAppAuthValidator(BOT_TOKEN, objectMapper, withCache, new SimpleMeterRegistry());
+	}
+
+	@Benchmark
+	public TelegramUserDTO previousImplementation() throws Exception {
+		return legacyValidate(initData);
+	}
+
+	@Benchmark
+	public TelegramUserDTO precomputedKeyNoCache() {
+		return uncachedValidator.validate(initData);
+	}
+
+	@Benchmark
+	public TelegramUserDTO cacheHit() {
+		return cachedValidator.validate(initData);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(InitDataValidationBenchmark.class.getSimpleName())
+				.build())
+				.run();
+	}
+
+	// The validator as it was before the key was precomputed, kept for comparison
+
+	private TelegramUserDTO legacyValidate(String data) throws Exception {
+		Map<String, String> dataMap = Arrays.stream(data.split("&"))
+				.map(s -> s.split("=", 2))
+				.collect(Collectors.toMap(
+						a -> a[0],
+						a -> a.length > 1 ? URLDecoder.decode(a[1], StandardCharsets.UTF_8) : "",
+						(a, b) -> a,
+						TreeMap::new));
+
+		String receivedHash = dataMap.remove("hash");
+		String dataCheckString = dataMap.entrySet().stream()
+				.map(entry -> entry.getKey() + "=" + entry.getValue())
+				.collect(Collectors.joining("\n"));
+
+		Mac keyMac = Mac.getInstance("HmacSHA256");
+		keyMac.init(new SecretKeySpec("WebAppData".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+		SecretKeySpec secretKey = new SecretKeySpec(keyMac.doFinal(BOT_TOKEN.getBytes(StandardCharsets.UTF_8)), "HmacSHA256");
+
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(secretKey);
+		StringBuilder hex = new StringBuilder();
+		for (byte b : mac.doFinal(dataCheckString.getBytes(StandardCharsets.UTF_8))) {
+			hex.append(String.format("%02x", b));
+		}
+		if (!hex.toString().equalsIgnoreCase(receivedHash)) {
+			throw new SecurityException("Hash mismatch");
+		}
+		return objectMapper.readValue(dataMap.get("user"), TelegramUserDTO.class);
+	}
+}
@@ -0,0 +1,141 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.SpringBootTaxiApplication;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.ClientRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Time to insert 100k orders through JPA, flushed every 1000 orders, with
+ * JDBC batching off ({@code batchSize} 1: one round trip per order, as with
+ * identity ids) and at the configured default of 50. Ids come from the pooled
+ * {@code orders_seq}, one sequence call per 50 orders.
+ * Orders per second = 100000 / score (ms) * 1000.
+ *
+ * <p>
+ * Boots the application on the {@code test} profile (in-memory H2). Run with
+ * {@code main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp target/test-classes:<test classpath> ...OrderBulkInsertBenchmark}.
+ * For PostgreSQL, where the round trips dominate, pass
+ * {@code -jvmArgsAppend "-Dspring.datasource.url=jdbc:postgresql://...?reWriteBatchedInserts=true
+ * -Dspring.datasource.driver-class-name=org.postgresql.Driver -Dspring.flyway.enabled=true
+ * -Dspring.jpa.hibernate.ddl-auto=none -Dspring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect"}
+ * (plus username and password) against an empty database.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OrderBulkInsertBenchmark {
+
+	private static final int ORDERS = 100_000;
+	private static final int FLUSH_EVERY = 1_000;
+
+	@Param({ "1", "50" })
+	private int batchSize;
+
+	private ConfigurableApplicationContext context;
+	private EntityManager entityManager;
+	private TransactionTemplate transactionTemplate;
+	private JdbcTemplate jdbcTemplate;
+	private ClientEntity client;
+
+	@Setup
+	public void setup() {
+		context = new SpringApplicationBuilder(SpringBootTaxiApplication.class)
+				.profiles("test")
+				.properties("server.port=0",
+						"spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+						"spring.autoconfigure.exclude=org.telegram.telegrambots.longpolling.starter.TelegramBotStarterConfiguration")
+				.run();
+		entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+		transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		jdbcTemplate = context.getBean(JdbcTemplate.class);
+		client = context.getBean(ClientRepository.class).save(createClient(1L));
+	}
+
+	@Setup(Level.Iteration)
+	public void deleteOrders() {
+		jdbcTemplate.update("DELETE FROM orders");
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public int insertOrders() {
+		return transactionTemplate.execute(status -> {
+			for (int i = 1; i <= ORDERS; i++) {
+				entityManager.persist(createOrder(client));
+				if (i % FLUSH_EVERY == 0) {
+					entityManager.flush();
+					entityManager.clear();
+				}
+			}
+			return ORDERS;
+		});
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(OrderBulkInsertBenchmark.class.getSimpleName())
+				.build())
+				.run();
+	}
+
+	// Helpers
+
+	private static ClientEntity createClient(Long tgId) {
+		ClientEntity client = new ClientEntity();
+		client.setTelegramId(tgId);
+		client.setTelegramChatId(String.valueOf(tgId));
+		client.setFullName("Client");
+		return client;
+	}
+
+	private static OrderEntity createOrder(ClientEntity client) {
+		OrderEntity order = new OrderEntity();
+		order.setClient(client);
+		order.setStartAddress("A");
+		order.setEndAddress("B");
+		order.setStartLatitude(new BigDecimal("52.52"));
+		order.setStartLongitude(new BigDecimal("13.40"));
+		order.setEndLatitude(new BigDecimal("52.50"));
+		order.setEndLongitude(new BigDecimal("13.45"));
+		return order;
+	}
+}
@@ -0,0 +1,192 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.SpringBootTaxiApplication;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.ClientRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.DriverRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderResponseDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.mapper.OrderMapper;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.OrderService;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Allocation per request of the read-only order endpoints: a history page of
+ * 20 orders and the list of 50 pending orders. The {@code *Entities} methods
+ * read managed {@link OrderEntity} graphs and map them the way the endpoints
+ * did before, the {@code *Rows} methods go through the {@code OrderRow}
+ * projections the endpoints use now.
+ *
+ * <p>
+ * Boots the application on the {@code test} profile (in-memory H2). Run with
+ * {@code main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp target/test-classes:<test classpath> ...OrderReadPathBenchmark}.
+ * Compare {@code gc.alloc.rate.norm} (bytes per request) of the pairs.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderReadPathBenchmark {
+
+	private static final int PAGE_SIZE = 20;
+	private static final int HISTORY_ORDERS = 200;
+	private static final int PENDING_ORDERS = 50;
+
+	private static final String HISTORY_ENTITIES = "SELECT o FROM OrderEntity o "
+			+ "JOIN FETCH o.client LEFT JOIN FETCH o.driver WHERE o.client.id = :clientId "
+			+ "ORDER BY o.createdAt DESC, o.id DESC";
+
+	private ConfigurableApplicationContext context;
+	private OrderService orderService;
+	private OrderRepository orderRepository;
+	private OrderMapper orderMapper;
+	private EntityManager entityManager;
+	private TransactionTemplate readOnlyTransaction;
+	private Long clientId;
+
+	@Setup
+	public void setup() {
+		context = new SpringApplicationBuilder(SpringBootTaxiApplication.class)
+				.profiles("test")
+				.properties("server.port=0",
+						"spring.autoconfigure.exclude=org.telegram.telegrambots.longpolling.starter.TelegramBotStarterConfiguration")
+				.run();
+		orderService = context.getBean(OrderService.class);
+		orderRepository = context.getBean(OrderRepository.class);
+		orderMapper = context.getBean(OrderMapper.class);
+		entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+		readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTransaction.setReadOnly(true);
+
+		ClientRepository clientRepository = context.getBean(ClientRepository.class);
+		DriverEntity driver = context.getBean(DriverRepository.class).save(createDriver(1L));
+		ClientEntity client = clientRepository.save(createClient(1L));
+		clientId = client.getId();
+
+		List<OrderEntity> orders = new ArrayList<>();
+		for (int i = 0; i < HISTORY_ORDERS; i++) {
+			OrderEntity order = createOrder(client);
+			order.setDriver(driver);
+			order.setStatus(OrderStatus.COMPLETED);
+			orders.add(order);
+		}
+		for (int i = 0; i < PENDING_ORDERS; i++) {
+			orders.add(createOrder(clientRepository.save(createClient(100L + i))));
+		}
+		orderRepository.saveAll(orders);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<OrderResponseDTO> historyPageEntities() {
+		return readOnlyTransaction.execute(status -> entityManager
+				.createQuery(HISTORY_ENTITIES, OrderEntity.class)
+				.setParameter("clientId", clientId)
+				.setMaxResults(PAGE_SIZE + 1)
+				.getResultList().stream()
+				.map(orderMapper::toResponseDto)
+				.toList());
+	}
+
+	@Benchmark
+	public List<OrderResponseDTO> historyPageRows() {
+		return orderService.findClientHistory(clientId, null, PAGE_SIZE + 1).stream()
+				.map(orderMapper::toResponseDto)
+				.toList();
+	}
+
+	// Clients are loaded lazily while mapping, as GET /api/orders did
+	@Benchmark
+	public List<OrderResponseDTO> availableOrdersEntities() {
+		return readOnlyTransaction.execute(status -> orderRepository.findAllByStatus(OrderStatus.PENDING).stream()
+				.map(orderMapper::toResponseDto)
+				.toList());
+	}
+
+	@Benchmark
+	public List<OrderResponseDTO> availableOrdersRows() {
+		return orderService.findAvailableOrders().stream()
+				.map(orderMapper::toResponseDto)
+				.toList();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(OrderReadPathBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build())
+				.run();
+	}
+
+	// Helpers
+
+	private static ClientEntity createClient(Long tgId) {
+		ClientEntity client = new ClientEntity();
+		client.setTelegramId(tgId);
+		client.setTelegramChatId(String.valueOf(tgId));
+		client.setFullName("Client");
+		return client;
+	}
+
+	private static DriverEntity createDriver(Long tgId) {
+		DriverEntity driver = new DriverEntity();
+		driver.setTelegramId(tgId);
+		driver.setTelegramChatId(String.valueOf(tgId));
+		driver.setFullName("Driver");
+		driver.setCarModel("Skoda Octavia");
+		driver.setCarColor("White");
+		driver.setLicensePlate("B-TX 100");
+		return driver;
+	}
+
+	private static OrderEntity createOrder(ClientEntity client) {
+		OrderEntity order = new OrderEntity();
+		order.setClient(client);
+		order.setStartAddress("A");
+		order.setEndAddress("B");
+		order.setStartLatitude(new BigDecimal("52.52"));
+		order.setStartLongitude(new BigDecimal("13.40"));
+		order.setEndLatitude(new BigDecimal("52.50"));
+		order.setEndLongitude(new BigDecimal("13.45"));
+		return order;
+	}
+}
@@ -0,0 +1,118 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.telegram.telegrambots.longpolling.util.LongPollingSingleThreadUpdateConsumer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.bot.PartitionedUpdateDispatcher;
+import com.aavtutov.spring.boot.spring_boot_taxi.config.TelegramUpdatesProperties;
+
+/**
+ * Time to handle one long-polling batch of 400 updates from 40 users, each
+ * update blocking for 5 ms (a Telegram API call or a database round trip):
+ * the previous single-thread consumer against {@link PartitionedUpdateDispatcher}
+ * with the default 8 lanes.
+ *
+ * <p>
+ * Run with {@code main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp target/test-classes:<test classpath> ...UpdateDispatchBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpdateDispatchBenchmark {
+
+	private static final int USERS = 40;
+	private static final int UPDATES_PER_USER = 10;
+	private static final long HANDLING_MILLIS = 5;
+
+	private final AtomicReference<CountDownLatch> pending = new AtomicReference<>();
+	private List<Update> updates;
+	private LongPollingSingleThreadUpdateConsumer handler;
+	private PartitionedUpdateDispatcher dispatcher;
+
+	@Setup
+	public void setup() {
+		updates = createInterleavedUpdates();
+		handler = update -> {
+			try {
+				Thread.sleep(HANDLING_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			pending.get().countDown();
+		};
+		dispatcher = new PartitionedUpdateDispatcher(handler, new TelegramUpdatesProperties());
+	}
+
+	@TearDown
+	public void tearDown() {
+		dispatcher.shutdown();
+	}
+
+	@Benchmark
+	public void singleThreadConsumer() {
+		pending.set(new CountDownLatch(updates.size()));
+		handler.consume(updates);
+	}
+
+	@Benchmark
+	public void partitionedDispatcher() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(updates.size());
+		pending.set(done);
+		dispatcher.consume(updates);
+		done.await();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(UpdateDispatchBenchmark.class.getSimpleName())
+				.build())
+				.run();
+	}
+
+	// Helpers
+
+	private static List<Update> createInterleavedUpdates() {
+		List<Update> updates = new ArrayList<>();
+		int updateId = 0;
+		for (int round = 0; round < UPDATES_PER_USER; round++) {
+			for (long userId = 1; userId <= USERS; userId++) {
+				Message message = new Message();
+				message.setFrom(new User(userId, "User" + userId, false));
+				message.setText("hello");
+
+				Update update = new Update();
+				update.setUpdateId(++updateId);
+				update.setMessage(message);
+				updates.add(update);
+			}
+		}
+		return updates;
+	}
+}
@@ -0,0 +1,130 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.bot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.longpolling.util.LongPollingSingleThreadUpdateConsumer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.TelegramUpdatesProperties;
+
+public class PartitionedUpdateDispatcherTest {
+
+	private static final int USERS = 40;
+	private static final int UPDATES_PER_USER = 10;
+
+	private final Map<Long, List<Integer>> handledByUser = new ConcurrentHashMap<>();
+	private PartitionedUpdateDispatcher dispatcher;
+
+	@AfterEach
+	void tearDown() {
+		if (dispatcher != null) {
+			dispatcher.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("Updates of one user keep their order across the parallel lanes")
+	void testConsume_shouldKeepPerUserOrder() throws Exception {
+
+		// arrange
+		List<Update> updates = createInterleavedUpdates();
+		CountDownLatch done = new CountDownLatch(updates.size());
+		dispatcher = new PartitionedUpdateDispatcher(recordingConsumer(done), properties(8, 64));
+
+		// act
+		dispatcher.consume(updates);
+		assertTrue(done.await(30, TimeUnit.SECONDS), "All updates should be processed");
+
+		// assert
+		assertEquals(USERS, handledByUser.size());
+		handledByUser.values().forEach(updateIds -> {
+			List<Integer> sorted = new ArrayList<>(updateIds);
+			sorted.sort(Integer::compare);
+			assertEquals(sorted, updateIds, "Updates of a user must be handled in arrival order");
+		});
+	}
+
+	@Test
+	@DisplayName("tryDispatch refuses updates once the user's lane is full")
+	void testTryDispatch_fullLane_shouldReject() throws Exception {
+
+		CountDownLatch taken = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		dispatcher = new PartitionedUpdateDispatcher(update -> {
+			taken.countDown();
+			awaitQuietly(release);
+		}, properties(1, 2));
+
+		// The first update is taken by the worker, the next two fill the queue
+		assertTrue(dispatcher.tryDispatch(createUpdate(1, 1L)));
+		assertTrue(taken.await(10, TimeUnit.SECONDS), "The worker should take the first update");
+		assertTrue(dispatcher.tryDispatch(createUpdate(2, 1L)));
+		assertTrue(dispatcher.tryDispatch(createUpdate(3, 1L)));
+
+		boolean accepted = dispatcher.tryDispatch(createUpdate(4, 1L));
+		release.countDown();
+
+		assertFalse(accepted);
+	}
+
+	// Helpers
+	private LongPollingSingleThreadUpdateConsumer recordingConsumer(CountDownLatch done) {
+		return update -> {
+			handledByUser.computeIfAbsent(update.getMessage().getFrom().getId(), id -> new CopyOnWriteArrayList<>())
+					.add(update.getUpdateId());
+			done.countDown();
+		};
+	}
+
+	private List<Update> createInterleavedUpdates() {
+		List<Update> updates = new ArrayList<>();
+		int updateId = 0;
+		for (int round = 0; round < UPDATES_PER_USER; round++) {
+			for (long userId = 1; userId <= USERS; userId++) {
+				updates.add(createUpdate(++updateId, userId));
+			}
+		}
+		return updates;
+	}
+
+	private Update createUpdate(int updateId, Long userId) {
+		Message message = new Message();
+		message.setFrom(new User(userId, "User" + userId, false));
+		message.setText("hello");
+
+		Update update = new Update();
+		update.setUpdateId(updateId);
+		update.setMessage(message);
+		return update;
+	}
+
+	private TelegramUpdatesProperties properties(int workers, int queueCapacity) {
+		TelegramUpdatesProperties properties = new TelegramUpdatesProperties();
+		properties.setWorkers(workers);
+		properties.setQueueCapacity(queueCapacity);
+		return properties;
+	}
+
+	private void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
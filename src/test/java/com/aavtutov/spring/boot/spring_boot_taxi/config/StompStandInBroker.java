@@ -0,0 +1,192 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Just enough of a STOMP 1.2 broker for the relay: CONNECT, SUBSCRIBE,
+ * UNSUBSCRIBE, SEND and DISCONNECT over plain TCP, topics matched by exact
+ * destination, no heartbeats. Stands in for RabbitMQ/ActiveMQ in tests.
+ */
+public class StompStandInBroker implements AutoCloseable {
+
+	private final ServerSocket serverSocket;
+	private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+	private final AtomicLong messageIds = new AtomicLong();
+
+	public StompStandInBroker() throws IOException {
+		this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(this::acceptLoop, "stomp-stand-in-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		connections.forEach(Connection::close);
+	}
+
+	private void acceptLoop() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Connection connection = new Connection(serverSocket.accept());
+				connections.add(connection);
+				Thread reader = new Thread(connection::readLoop, "stomp-stand-in-connection");
+				reader.setDaemon(true);
+				reader.start();
+			} catch (IOException e) {
+				// Socket closed
+			}
+		}
+	}
+
+	private void broadcast(Frame send) {
+		String destination = send.headers().get("destination");
+		for (Connection connection : connections) {
+			connection.subscriptions.forEach((subscriptionId, subscribed) -> {
+				if (subscribed.equals(destination)) {
+					Map<String, String> headers = new LinkedHashMap<>();
+					headers.put("destination", destination);
+					headers.put("subscription", subscriptionId);
+					headers.put("message-id", String.valueOf(messageIds.incrementAndGet()));
+					if (send.headers().containsKey("content-type")) {
+						headers.put("content-type", send.headers().get("content-type"));
+					}
+					connection.write(new Frame("MESSAGE", headers, send.body()));
+				}
+			});
+		}
+	}
+
+	private record Frame(String command, Map<String, String> headers, byte[] body) {
+	}
+
+	private final class Connection {
+
+		private final Socket socket;
+		private final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+
+		Connection(Socket socket) {
+			this.socket = socket;
+		}
+
+		void readLoop() {
+			try (InputStream in = new BufferedInputStream(socket.getInputStream())) {
+				Frame frame;
+				while ((frame = readFrame(in)) != null) {
+					handle(frame);
+				}
+			} catch (IOException e) {
+				// Peer went away
+			} finally {
+				close();
+			}
+		}
+
+		private void handle(Frame frame) {
+			switch (frame.command()) {
+				case "CONNECT", "STOMP" -> write(new Frame("CONNECTED",
+						Map.of("version", "1.2", "heart-beat", "0,0"), new byte[0]));
+				case "SUBSCRIBE" -> subscriptions.put(frame.headers().get("id"), frame.headers().get("destination"));
+				case "UNSUBSCRIBE" -> subscriptions.remove(frame.headers().get("id"));
+				case "SEND" -> broadcast(frame);
+				case "DISCONNECT" -> close();
+				default -> {
+				}
+			}
+			String receipt = frame.headers().get("receipt");
+			if (receipt != null && !socket.isClosed()) {
+				write(new Frame("RECEIPT", Map.of("receipt-id", receipt), new byte[0]));
+			}
+		}
+
+		synchronized void write(Frame frame) {
+			try {
+				OutputStream out = socket.getOutputStream();
+				StringBuilder head = new StringBuilder(frame.command()).append('\n');
+				frame.headers().forEach((name, value) -> head.append(name).append(':').append(value).append('\n'));
+				head.append("content-length:").append(frame.body().length).append("\n\n");
+				out.write(head.toString().getBytes(StandardCharsets.UTF_8));
+				out.write(frame.body());
+				out.write(0);
+				out.flush();
+			} catch (IOException e) {
+				close();
+			}
+		}
+
+		void close() {
+			connections.remove(this);
+			try {
+				socket.close();
+			} catch (IOException ignored) {
+			}
+		}
+
+		// Returns null at end of stream; heartbeat newlines between frames are skipped
+		private Frame readFrame(InputStream in) throws IOException {
+			int b;
+			do {
+				b = in.read();
+			} while (b == '\n' || b == '\r');
+			if (b < 0) {
+				return null;
+			}
+
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			line.write(b);
+			String command = readLine(in, line);
+
+			Map<String, String> headers = new LinkedHashMap<>();
+			String header;
+			while (!(header = readLine(in, new ByteArrayOutputStream())).isEmpty()) {
+				int colon = header.indexOf(':');
+				// STOMP keeps the first occurrence of a repeated header
+				headers.putIfAbsent(header.substring(0, colon), header.substring(colon + 1));
+			}
+
+			byte[] body;
+			String contentLength = headers.get("content-length");
+			if (contentLength != null) {
+				body = in.readNBytes(Integer.parseInt(contentLength));
+				in.read(); // trailing NULL
+			} else {
+				ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+				while ((b = in.read()) > 0) {
+					buffer.write(b);
+				}
+				body = buffer.toByteArray();
+			}
+			return new Frame(command, headers, body);
+		}
+
+		private String readLine(InputStream in, ByteArrayOutputStream line) throws IOException {
+			int b;
+			while ((b = in.read()) >= 0 && b != '\n') {
+				line.write(b);
+			}
+			if (b < 0) {
+				throw new IOException("Connection closed mid-frame");
+			}
+			String value = line.toString(StandardCharsets.UTF_8);
+			return value.endsWith("\r") ? value.substring(0, value.length() - 1) : value;
+		}
+	}
+}
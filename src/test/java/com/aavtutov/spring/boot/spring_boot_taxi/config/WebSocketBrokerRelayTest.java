@@ -0,0 +1,167 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.SpringBootTaxiApplication;
+import com.aavtutov.spring.boot.spring_boot_taxi.security.InitDataFixtures;
+import com.aavtutov.spring.boot.spring_boot_taxi.security.TelegramStompAuthInterceptor;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.offer.OrderOfferDispatcher;
+
+/**
+ * Two application instances in one JVM, sharing a database and a stand-in
+ * STOMP broker, as they would behind a load balancer in RELAY mode.
+ */
+public class WebSocketBrokerRelayTest {
+
+	private static final String TOPIC = "/topic/cluster-check";
+	private static final String BOT_TOKEN = "12345:test";
+	private static final long DRIVER_TELEGRAM_ID = 4242L;
+
+	private static StompStandInBroker broker;
+	private static ConfigurableApplicationContext nodeA;
+	private static ConfigurableApplicationContext nodeB;
+
+	@BeforeAll
+	static void startCluster() throws Exception {
+		broker = new StompStandInBroker();
+		nodeA = startNode("create-drop");
+		// The second instance uses the schema the first one created
+		nodeB = startNode("none");
+		awaitBrokerAvailable(nodeA);
+		awaitBrokerAvailable(nodeB);
+	}
+
+	@AfterAll
+	static void stopCluster() throws Exception {
+		nodeB.close();
+		nodeA.close();
+		broker.close();
+	}
+
+	@Test
+	@DisplayName("A message sent on one instance reaches a subscriber connected to the other")
+	void testRelay_sendOnNodeA_shouldReachSubscriberOnNodeB() throws Exception {
+
+		// arrange
+		BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+		StompSession session = connect(nodeB, new StompHeaders());
+		session.subscribe(TOPIC, collectingHandler(received));
+		SimpMessagingTemplate nodeATemplate = nodeA.getBean(SimpMessagingTemplate.class);
+
+		// act (the subscription reaches the broker asynchronously, so keep sending until it lands)
+		Map<?, ?> message = null;
+		for (int attempt = 0; attempt < 50 && message == null; attempt++) {
+			nodeATemplate.convertAndSend(TOPIC, Map.of("from", "node-a"));
+			message = received.poll(100, TimeUnit.MILLISECONDS);
+		}
+		session.disconnect();
+
+		// assert
+		assertNotNull(message, "Node B subscriber should receive the message sent on node A");
+		assertEquals("node-a", message.get("from"));
+	}
+
+	@Test
+	@DisplayName("An offer sent on one instance reaches the driver's session on the other")
+	void testRelay_userDestinationOnNodeA_shouldReachDriverOnNodeB() throws Exception {
+
+		// arrange
+		String initData = InitDataFixtures.signedInitData(BOT_TOKEN, DRIVER_TELEGRAM_ID, "Driver",
+				Instant.now().getEpochSecond());
+		StompHeaders connectHeaders = new StompHeaders();
+		connectHeaders.add(TelegramStompAuthInterceptor.INIT_DATA_HEADER, initData);
+
+		BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+		StompSession session = connect(nodeB, connectHeaders);
+		session.subscribe("/user" + OrderOfferDispatcher.DESTINATION, collectingHandler(received));
+		SimpMessagingTemplate nodeATemplate = nodeA.getBean(SimpMessagingTemplate.class);
+
+		// act
+		Map<?, ?> message = null;
+		for (int attempt = 0; attempt < 50 && message == null; attempt++) {
+			nodeATemplate.convertAndSendToUser(String.valueOf(DRIVER_TELEGRAM_ID), OrderOfferDispatcher.DESTINATION,
+					Map.of("orderId", 7));
+			message = received.poll(100, TimeUnit.MILLISECONDS);
+		}
+		session.disconnect();
+
+		// assert
+		assertNotNull(message, "Driver connected to node B should receive the offer sent on node A");
+		assertEquals(7, message.get("orderId"));
+	}
+
+	// Helpers
+
+	private static ConfigurableApplicationContext startNode(String ddlAuto) {
+		return new SpringApplicationBuilder(SpringBootTaxiApplication.class)
+				.profiles("test")
+				.properties(
+						"spring.autoconfigure.exclude=org.telegram.telegrambots.longpolling.starter.TelegramBotStarterConfiguration",
+						"server.port=0",
+						"spring.datasource.url=jdbc:h2:mem:taxi_cluster_db;DB_CLOSE_DELAY=-1",
+						"spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+						"websocket.broker.mode=RELAY",
+						"websocket.broker.relayHost=127.0.0.1",
+						"websocket.broker.relayPort=" + broker.getPort())
+				.run();
+	}
+
+	private static void awaitBrokerAvailable(ConfigurableApplicationContext node) throws InterruptedException {
+		AbstractBrokerMessageHandler relay =
+				node.getBean("stompBrokerRelayMessageHandler", AbstractBrokerMessageHandler.class);
+		for (int attempt = 0; attempt < 50 && !relay.isBrokerAvailable(); attempt++) {
+			Thread.sleep(100);
+		}
+		assertTrue(relay.isBrokerAvailable(), "Relay should connect to the stand-in broker");
+	}
+
+	private static StompSession connect(ConfigurableApplicationContext node, StompHeaders connectHeaders)
+			throws Exception {
+		WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+		client.setMessageConverter(new MappingJackson2MessageConverter());
+		String url = "ws://localhost:" + node.getEnvironment().getProperty("local.server.port") + "/api/ws-taxi/websocket";
+		return client.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {
+				})
+				.get(5, TimeUnit.SECONDS);
+	}
+
+	private static StompFrameHandler collectingHandler(BlockingQueue<Map<?, ?>> received) {
+		return new StompFrameHandler() {
+			@Override
+			public Type getPayloadType(StompHeaders headers) {
+				return Map.class;
+			}
+
+			@Override
+			public void handleFrame(StompHeaders headers, Object payload) {
+				received.add((Map<?, ?>) payload);
+			}
+		};
+	}
+}
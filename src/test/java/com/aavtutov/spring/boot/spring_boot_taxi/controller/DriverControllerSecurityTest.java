@@ -22,6 +22,7 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.aavtutov.spring.boot.spring_boot_taxi.config.SecurityConfig;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.routing.ReadYourWritesTracker;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverUpdateDTO;
 import com.aavtutov.spring.boot.spring_boot_taxi.dto.mapper.DriverMapper;
 import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
@@ -63,6 +64,9 @@ public class DriverControllerSecurityTest {
     @MockitoBean
     private ClientArgumentResolver clientResolver;
     
+    @MockitoBean
+    private ReadYourWritesTracker readYourWritesTracker;
+    
     private DriverUpdateDTO dto;
     private static final MediaType JSON = MediaType.APPLICATION_JSON;
     
@@ -0,0 +1,174 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.bot.PartitionedUpdateDispatcher;
+import com.aavtutov.spring.boot.spring_boot_taxi.config.SecurityConfig;
+import com.aavtutov.spring.boot.spring_boot_taxi.config.TelegramWebhookProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.routing.ReadYourWritesTracker;
+import com.aavtutov.spring.boot.spring_boot_taxi.security.ClientArgumentResolver;
+import com.aavtutov.spring.boot.spring_boot_taxi.security.DriverArgumentResolver;
+import com.aavtutov.spring.boot.spring_boot_taxi.security.TelegramAuthInterceptor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+@WebMvcTest(TelegramWebhookController.class)
+@Import({SecurityConfig.class, TelegramWebhookProperties.class})
+@TestPropertySource(properties = {
+		"telegram.bot.mode=WEBHOOK",
+		"telegram.webhook.secret=test-webhook-secret"
+})
+public class TelegramWebhookControllerTest {
+
+	private static final String URL = "/api/public/telegram/webhook";
+	private static final String SECRET = "test-webhook-secret";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@MockitoBean
+	private PartitionedUpdateDispatcher updateDispatcher;
+
+	@MockitoBean
+	private TelegramAuthInterceptor telegramAuthInterceptor;
+
+	@MockitoBean
+	private DriverArgumentResolver driverResolver;
+
+	@MockitoBean
+	private ClientArgumentResolver clientResolver;
+
+	@MockitoBean
+	private ReadYourWritesTracker readYourWritesTracker;
+
+	private String textMessageJson;
+	private String startCommandJson;
+
+	@BeforeEach
+	void setup() throws IOException {
+		textMessageJson = readRecorded("telegram/update-text-message.json");
+		startCommandJson = readRecorded("telegram/update-start-command.json");
+		when(updateDispatcher.tryDispatch(any())).thenReturn(true);
+	}
+
+	@Test
+	@DisplayName("Recorded update with the right secret - Should be parsed and queued")
+	void testReceiveUpdate_ValidSecret_ShouldDispatch() throws Exception {
+
+		mockMvc.perform(post(URL)
+				.header(TelegramWebhookController.SECRET_HEADER, SECRET)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(textMessageJson))
+				.andExpect(status().isOk());
+
+		ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+		verify(updateDispatcher).tryDispatch(captor.capture());
+		assertEquals(402117853L, captor.getValue().getMessage().getFrom().getId());
+		assertEquals("I'm at the main entrance", captor.getValue().getMessage().getText());
+	}
+
+	@Test
+	@DisplayName("Missing or wrong secret - Should return 401 and not queue the update")
+	void testReceiveUpdate_WrongSecret_ShouldReturn401() throws Exception {
+
+		mockMvc.perform(post(URL)
+				.header(TelegramWebhookController.SECRET_HEADER, "guess")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(textMessageJson))
+				.andExpect(status().isUnauthorized());
+
+		mockMvc.perform(post(URL)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(textMessageJson))
+				.andExpect(status().isUnauthorized());
+
+		verify(updateDispatcher, never()).tryDispatch(any());
+	}
+
+	@Test
+	@DisplayName("User lane is full - Should return 429 so Telegram retries later")
+	void testReceiveUpdate_LaneFull_ShouldReturn429() throws Exception {
+
+		when(updateDispatcher.tryDispatch(any())).thenReturn(false);
+
+		mockMvc.perform(post(URL)
+				.header(TelegramWebhookController.SECRET_HEADER, SECRET)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(startCommandJson))
+				.andExpect(status().isTooManyRequests());
+	}
+
+	@Test
+	@DisplayName("Burst of recorded updates from parallel connections - Should all be accepted")
+	void testReceiveUpdate_HighRate_ShouldAcceptAll() throws Exception {
+
+		// arrange
+		int requests = 2_000;
+		ExecutorService pool = Executors.newFixedThreadPool(40); // Telegram's default max_connections
+		List<Future<Integer>> responses = new ArrayList<>();
+
+		// act
+		for (int i = 0; i < requests; i++) {
+			String body = withUpdateId(i % 2 == 0 ? textMessageJson : startCommandJson, 900_000 + i);
+			responses.add(pool.submit(() -> mockMvc.perform(post(URL)
+					.header(TelegramWebhookController.SECRET_HEADER, SECRET)
+					.contentType(MediaType.APPLICATION_JSON)
+					.content(body))
+					.andReturn().getResponse().getStatus()));
+		}
+		for (Future<Integer> response : responses) {
+			assertEquals(200, response.get(30, TimeUnit.SECONDS));
+		}
+		pool.shutdown();
+
+		// assert
+		verify(updateDispatcher, times(requests)).tryDispatch(any());
+		verify(updateDispatcher, never()).dispatch(any());
+	}
+
+	// Helpers
+	private String readRecorded(String path) throws IOException {
+		try (InputStream in = getClass().getClassLoader().getResourceAsStream(path)) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private String withUpdateId(String json, int updateId) throws IOException {
+		ObjectNode node = (ObjectNode) objectMapper.readTree(json);
+		node.put("update_id", updateId);
+		return objectMapper.writeValueAsString(node);
+	}
+}
@@ -0,0 +1,176 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dao;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.StringJoiner;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.TelegramBotService;
+
+/**
+ * Checks on PostgreSQL that the Flyway schema validates against the entities
+ * and that the hot-path order queries are planned on the V2 indexes.
+ *
+ * <p>
+ * H2 has no partial indexes, so this test only runs when
+ * {@code TAXI_TEST_POSTGRES_URL} points at an empty, disposable database
+ * ({@code TAXI_TEST_POSTGRES_USER} / {@code TAXI_TEST_POSTGRES_PASSWORD},
+ * default {@code postgres}).
+ * The tables are seeded and analyzed, and sequential scans are disabled for
+ * the EXPLAIN session, so the planner picks the cheapest usable index.
+ * </p>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+properties = "spring.autoconfigure.exclude=org.telegram.telegrambots.longpolling.starter.TelegramBotStarterConfiguration")
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "TAXI_TEST_POSTGRES_URL", matches = ".+")
+public class OrderIndexUsageTest {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@MockitoBean
+	private TelegramBotService telegramBotService;
+
+	@DynamicPropertySource
+	static void postgres(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", () -> System.getenv("TAXI_TEST_POSTGRES_URL"));
+		registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("TAXI_TEST_POSTGRES_USER", "postgres"));
+		registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("TAXI_TEST_POSTGRES_PASSWORD", "postgres"));
+		registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+		registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+		registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+		registry.add("spring.flyway.enabled", () -> "true");
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.update("DELETE FROM orders");
+		jdbcTemplate.update("DELETE FROM clients");
+		jdbcTemplate.update("DELETE FROM drivers");
+	}
+
+	@Test
+	@DisplayName("Active-order checks, pending orders, histories and chat lookup use the V2 indexes")
+	void testHotPathQueries_shouldUseIndexes() {
+
+		// arrange (50 clients and drivers with 100 finished trips each, 10 pending and 10 accepted orders)
+		seedOrders();
+		long clientId = jdbcTemplate.queryForObject("SELECT id FROM clients WHERE telegram_user_id = 1", Long.class);
+		long driverId = jdbcTemplate.queryForObject("SELECT id FROM drivers WHERE telegram_user_id = 11", Long.class);
+
+		// act & assert
+		assertPlanUses("ux_orders_client_active", "SELECT 1 FROM orders WHERE client_id = " + clientId
+				+ " AND status IN ('PENDING', 'ACCEPTED', 'IN_PROGRESS') LIMIT 1");
+		assertPlanUses("ux_orders_driver_active", "SELECT 1 FROM orders WHERE driver_id = " + driverId
+				+ " AND status IN ('PENDING', 'ACCEPTED', 'IN_PROGRESS') LIMIT 1");
+		assertPlanUses("idx_orders_pending",
+				"SELECT * FROM orders WHERE status = 'PENDING'");
+		assertPlanUses("idx_orders_client_history", "SELECT * FROM orders WHERE client_id = " + clientId
+				+ " ORDER BY created_at DESC LIMIT 1");
+		assertPlanUses("idx_orders_driver_history", "SELECT * FROM orders WHERE driver_id = " + driverId
+				+ " AND created_at <= now() AND (created_at < now() OR id < 10) ORDER BY created_at DESC, id DESC LIMIT 21");
+
+		String chatLookup = "SELECT o.* FROM orders o "
+				+ "WHERE (o.client_id = (SELECT c.id FROM clients c WHERE c.telegram_user_id = 11) "
+				+ "OR o.driver_id = (SELECT d.id FROM drivers d WHERE d.telegram_user_id = 11)) "
+				+ "AND o.status IN ('ACCEPTED', 'IN_PROGRESS')";
+		assertPlanUses("uk_clients_telegram_user_id", chatLookup);
+		assertPlanUses("ux_orders_client_active", chatLookup);
+		assertPlanUses("ux_orders_driver_active", chatLookup);
+	}
+
+	@Test
+	@DisplayName("A second active order for the same client is rejected by the database")
+	void testSecondActiveOrder_shouldViolateUniqueIndex() {
+
+		// arrange
+		ClientEntity client = clientRepository.save(createClient(1_000L));
+		orderRepository.save(createOrder(client));
+
+		// act & assert
+		assertThrows(DataIntegrityViolationException.class, () -> orderRepository.save(createOrder(client)));
+	}
+
+	// Helpers
+	private void seedOrders() {
+		jdbcTemplate.update("INSERT INTO clients (telegram_user_id, telegram_chat_id, created_at) "
+				+ "SELECT g, g::text, now() FROM generate_series(1, 50) g");
+		jdbcTemplate.update("INSERT INTO drivers (telegram_user_id, telegram_chat_id, status, created_at) "
+				+ "SELECT g, g::text, 'ACTIVE', now() FROM generate_series(1, 50) g");
+		String columns = "INSERT INTO orders (client_id, driver_id, status, start_address, end_address, "
+				+ "start_latitude, start_longitude, end_latitude, end_longitude, price, bonus_fare, total_price, created_at) ";
+		String values = "'A', 'B', 52.52, 13.40, 52.50, 13.45, 0, 0, 0, ";
+		jdbcTemplate.update(columns + "SELECT c.id, d.id, 'COMPLETED', " + values + "now() - g * interval '1 minute' "
+				+ "FROM generate_series(1, 5000) g "
+				+ "JOIN clients c ON c.telegram_user_id = 1 + g % 50 JOIN drivers d ON d.telegram_user_id = 1 + g % 50");
+		jdbcTemplate.update(columns + "SELECT c.id, NULL, 'PENDING', " + values + "now() "
+				+ "FROM clients c WHERE c.telegram_user_id BETWEEN 1 AND 10");
+		jdbcTemplate.update(columns + "SELECT c.id, d.id, 'ACCEPTED', " + values + "now() "
+				+ "FROM clients c JOIN drivers d ON d.telegram_user_id = c.telegram_user_id "
+				+ "WHERE c.telegram_user_id BETWEEN 11 AND 20");
+		jdbcTemplate.execute("ANALYZE orders");
+	}
+
+	private void assertPlanUses(String indexName, String sql) {
+		String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("SET enable_seqscan = off");
+				StringJoiner lines = new StringJoiner("\n");
+				try (ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+					while (rs.next()) {
+						lines.add(rs.getString(1));
+					}
+				}
+				statement.execute("RESET enable_seqscan");
+				return lines.toString();
+			}
+		});
+		assertTrue(plan.contains(indexName), "Expected " + indexName + " in plan of: " + sql + "\n" + plan);
+	}
+
+	private ClientEntity createClient(Long tgId) {
+		ClientEntity client = new ClientEntity();
+		client.setTelegramId(tgId);
+		client.setTelegramChatId(String.valueOf(tgId));
+		client.setFullName("Client");
+		return client;
+	}
+
+	private OrderEntity createOrder(ClientEntity client) {
+		OrderEntity order = new OrderEntity();
+		order.setClient(client);
+		order.setStartAddress("A");
+		order.setEndAddress("B");
+		order.setStartLatitude(new BigDecimal("52.52"));
+		order.setStartLongitude(new BigDecimal("13.40"));
+		order.setEndLatitude(new BigDecimal("52.50"));
+		order.setEndLongitude(new BigDecimal("13.45"));
+		return order;
+	}
+}
@@ -0,0 +1,290 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.dao.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.telegram.TelegramUserDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.security.InitDataFixtures;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.OrderService;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.TelegramBotService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs against two in-memory databases: the regular test database as the
+ * primary and a second one, with the same schema, as the replica. The same
+ * pending order is stored in both with a different pickup address, so the
+ * address returned tells which database served the read.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+properties = {
+		"spring.autoconfigure.exclude=org.telegram.telegrambots.longpolling.starter.TelegramBotStarterConfiguration",
+		"spring.datasource.url=jdbc:h2:mem:taxi_routing_primary;DB_CLOSE_DELAY=-1",
+		"datasource.replica.url=" + ReadReplicaRoutingTest.REPLICA_URL,
+		"datasource.replica.username=sa",
+		"datasource.replica.password="
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Import(ReadReplicaRoutingTest.ReadThenWriteController.class)
+public class ReadReplicaRoutingTest {
+
+	static final String REPLICA_URL = "jdbc:h2:mem:taxi_routing_replica;DB_CLOSE_DELAY=-1";
+
+	private static final long ORDER_ID = 1L;
+	private static final long TELEGRAM_ID = 1_000L;
+	private static final String BOT_TOKEN = "12345:test";
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ReadRoutingInterceptor readRoutingInterceptor;
+
+	@Autowired
+	private JdbcTemplate primaryJdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockitoBean
+	private TelegramBotService telegramBotService;
+
+	private JdbcTemplate replicaJdbcTemplate;
+
+	@BeforeEach
+	void setup() {
+		replicaJdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+		Integer tables = replicaJdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'ORDERS'", Integer.class);
+		if (tables == 0) {
+			// Same schema as the primary, created by Hibernate there
+			primaryJdbcTemplate.queryForList("SCRIPT NODATA", String.class).stream()
+					.filter(statement -> !statement.startsWith("--"))
+					.forEach(replicaJdbcTemplate::execute);
+		}
+
+		insertOrder(primaryJdbcTemplate, "Primary street");
+		insertOrder(replicaJdbcTemplate, "Replica street");
+	}
+
+	@AfterEach
+	void tearDown() {
+		ReadRouting.reset();
+		for (JdbcTemplate jdbcTemplate : List.of(primaryJdbcTemplate, replicaJdbcTemplate)) {
+			jdbcTemplate.update("DELETE FROM orders");
+			jdbcTemplate.update("DELETE FROM clients");
+		}
+	}
+
+	@Test
+	@DisplayName("Read-only transactions of a web request read from the replica, read-write ones from the primary")
+	void testWebRequest_readOnlyOnReplica_readWriteOnPrimary() {
+
+		// arrange
+		TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+		// act
+		ReadRouting.allowReplica();
+		String readOnlyAddress = orderService.findOrderById(ORDER_ID).startAddress();
+		String readWriteAddress = readWrite.execute(status -> orderRepository.findById(ORDER_ID).orElseThrow().getStartAddress());
+
+		// assert
+		assertEquals("Replica street", readOnlyAddress);
+		assertEquals("Primary street", readWriteAddress);
+	}
+
+	@Test
+	@DisplayName("Outside web requests (listeners, schedulers) read-only transactions stay on the primary")
+	void testBackgroundThread_shouldReadPrimary() {
+
+		// act
+		String address = orderService.findAvailableOrders().get(0).startAddress();
+
+		// assert
+		assertEquals("Primary street", address);
+	}
+
+	@Test
+	@DisplayName("After a write request the same user reads from the primary, other users keep the replica")
+	void testReadYourWrites_shouldPinWriterToPrimary() throws Exception {
+
+		// act
+		String beforeWrite = readInRequest("GET", TELEGRAM_ID);
+		completeRequest("POST", TELEGRAM_ID, 200);
+		String afterWrite = readInRequest("GET", TELEGRAM_ID);
+		String otherUser = readInRequest("GET", TELEGRAM_ID + 1);
+
+		// assert
+		assertEquals("Replica street", beforeWrite);
+		assertEquals("Primary street", afterWrite);
+		assertEquals("Replica street", otherUser);
+	}
+
+	@Test
+	@DisplayName("A rejected write request does not pin the user to the primary")
+	void testReadYourWrites_failedWrite_shouldKeepReplica() throws Exception {
+
+		// act
+		completeRequest("POST", TELEGRAM_ID + 2, 409);
+		String address = readInRequest("GET", TELEGRAM_ID + 2);
+
+		// assert
+		assertEquals("Replica street", address);
+	}
+
+	@Test
+	@DisplayName("A write after a replica read in the same web request goes to the primary")
+	void testWebRequest_readThenWrite_shouldWriteToPrimary() throws Exception {
+
+		// arrange
+		String initData = InitDataFixtures.signedInitData(BOT_TOKEN, TELEGRAM_ID + 3, "Client",
+				Instant.now().getEpochSecond());
+
+		// act
+		ResultActions result = mockMvc.perform(post("/api/test/read-then-write")
+				.header("X-Telegram-Init-Data", initData));
+
+		// assert
+		result.andExpect(status().isOk())
+				.andExpect(content().string("Replica street|Primary street"));
+		assertEquals("Written", primaryJdbcTemplate.queryForObject(
+				"SELECT end_address FROM orders WHERE id = ?", String.class, ORDER_ID));
+	}
+
+	@Test
+	@DisplayName("An unreachable replica falls back to the primary and is not retried until the interval passes")
+	void testReplicaDown_shouldFallBackToPrimary() throws Exception {
+
+		// arrange
+		DataSource replica = mock(DataSource.class);
+		DataSource primary = mock(DataSource.class);
+		Connection primaryConnection = mock(Connection.class);
+		when(replica.getConnection()).thenThrow(new SQLTransientConnectionException("replica - Connection is not available"));
+		when(primary.getConnection()).thenReturn(primaryConnection);
+		ReadReplicaDataSource dataSource = new ReadReplicaDataSource(replica, primary, Duration.ofMinutes(1),
+				new SimpleMeterRegistry());
+		ReadRouting.allowReplica();
+
+		// act
+		Connection first = dataSource.getConnection();
+		Connection second = dataSource.getConnection();
+
+		// assert
+		assertSame(primaryConnection, first);
+		assertSame(primaryConnection, second);
+		verify(replica, times(1)).getConnection();
+	}
+
+	// Helpers
+
+	// Runs a read-only lookup the way a request with this method and user would
+	private String readInRequest(String method, Long telegramId) throws Exception {
+		MockHttpServletRequest request = createRequest(method, telegramId);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		readRoutingInterceptor.preHandle(request, response, new Object());
+		try {
+			return orderService.findOrderById(ORDER_ID).startAddress();
+		} finally {
+			readRoutingInterceptor.afterCompletion(request, response, new Object(), null);
+		}
+	}
+
+	private void completeRequest(String method, Long telegramId, int status) throws Exception {
+		MockHttpServletRequest request = createRequest(method, telegramId);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		readRoutingInterceptor.preHandle(request, response, new Object());
+		response.setStatus(status);
+		readRoutingInterceptor.afterCompletion(request, response, new Object(), null);
+	}
+
+	private MockHttpServletRequest createRequest(String method, Long telegramId) {
+		TelegramUserDTO user = new TelegramUserDTO();
+		user.setId(telegramId);
+		MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/orders/" + ORDER_ID);
+		request.setAttribute("tgUser", user);
+		return request;
+	}
+
+	// Reads the order read-only, then changes it in a read-write transaction, within one request
+	@RestController
+	static class ReadThenWriteController {
+
+		private final OrderService orderService;
+		private final OrderRepository orderRepository;
+		private final TransactionTemplate readWrite;
+
+		ReadThenWriteController(OrderService orderService, OrderRepository orderRepository,
+				PlatformTransactionManager transactionManager) {
+			this.orderService = orderService;
+			this.orderRepository = orderRepository;
+			this.readWrite = new TransactionTemplate(transactionManager);
+		}
+
+		@PostMapping("/api/test/read-then-write")
+		String readThenWrite() {
+			String readOnlyAddress = orderService.findOrderById(ORDER_ID).startAddress();
+			String readWriteAddress = readWrite.execute(status -> {
+				OrderEntity order = orderRepository.findById(ORDER_ID).orElseThrow();
+				order.setEndAddress("Written");
+				return order.getStartAddress();
+			});
+			return readOnlyAddress + "|" + readWriteAddress;
+		}
+	}
+
+	private void insertOrder(JdbcTemplate jdbcTemplate, String startAddress) {
+		Timestamp now = Timestamp.from(Instant.now());
+		jdbcTemplate.update("INSERT INTO clients (id, telegram_user_id, telegram_chat_id, full_name, created_at) "
+				+ "VALUES (1, ?, ?, 'Client', ?)", TELEGRAM_ID, String.valueOf(TELEGRAM_ID), now);
+		jdbcTemplate.update("INSERT INTO orders (id, client_id, status, start_address, end_address, "
+				+ "start_latitude, start_longitude, end_latitude, end_longitude, price, bonus_fare, total_price, created_at) "
+				+ "VALUES (?, 1, 'PENDING', ?, 'B', 52.52, 13.40, 52.50, 13.45, 0, 0, 0, ?)",
+				ORDER_ID, startAddress, now);
+	}
+}
@@ -0,0 +1,53 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.security;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Builds initData strings signed the way the Telegram WebApp does it.
+ */
+public final class InitDataFixtures {
+
+	private InitDataFixtures() {
+	}
+
+	public static String signedInitData(String botToken, long telegramId, String firstName, long authDate) {
+		Map<String, String> fields = new TreeMap<>();
+		fields.put("auth_date", String.valueOf(authDate));
+		fields.put("query_id", "AAHdF6IQAAAAAN0XohDhrOrc");
+		fields.put("user", String.format(
+				"{\"id\":%d,\"first_name\":\"%s\",\"username\":\"user%d\",\"language_code\":\"en\"}",
+				telegramId, firstName, telegramId));
+
+		String dataCheckString = fields.entrySet().stream()
+				.map(entry -> entry.getKey() + "=" + entry.getValue())
+				.collect(Collectors.joining("\n"));
+
+		String query = fields.entrySet().stream()
+				.map(entry -> entry.getKey() + "=" + URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8))
+				.collect(Collectors.joining("&"));
+
+		return query + "&hash=" + HexFormat.of().formatHex(hmac(secretKey(botToken), dataCheckString));
+	}
+
+	private static byte[] secretKey(String botToken) {
+		return hmac("WebAppData".getBytes(StandardCharsets.UTF_8), botToken);
+	}
+
+	private static byte[] hmac(byte[] key, String data) {
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(key, "HmacSHA256"));
+			return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
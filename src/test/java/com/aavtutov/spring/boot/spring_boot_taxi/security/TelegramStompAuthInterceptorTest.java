@@ -0,0 +1,123 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.TelegramAuthProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.telegram.TelegramUserDTO;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TelegramStompAuthInterceptorTest {
+
+	private static final String BOT_TOKEN = "12345:test";
+	private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+
+	private TelegramStompAuthInterceptor interceptor;
+	private final MessageChannel channel = mock(MessageChannel.class);
+
+	@BeforeEach
+	void setup() {
+		ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		TelegramWebAppAuthValidator validator = new TelegramWebAppAuthValidator(BOT_TOKEN, objectMapper,
+				new TelegramAuthProperties(), new SimpleMeterRegistry(), Clock.fixed(NOW, ZoneOffset.UTC));
+		interceptor = new TelegramStompAuthInterceptor(validator);
+	}
+
+	@Test
+	@DisplayName("CONNECT with valid initData binds a TelegramPrincipal to the session")
+	void testPreSend_validInitData_shouldSetPrincipal() {
+
+		// arrange
+		String initData = InitDataFixtures.signedInitData(BOT_TOKEN, 42L, "Anna", NOW.getEpochSecond());
+
+		// act
+		Message<?> result = interceptor.preSend(connect(initData), channel);
+
+		// assert
+		StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(result, StompHeaderAccessor.class);
+		TelegramPrincipal principal = (TelegramPrincipal) accessor.getUser();
+		assertEquals(42L, principal.telegramId());
+		assertEquals("42", principal.getName());
+	}
+
+	@Test
+	@DisplayName("CONNECT without initData stays anonymous")
+	void testPreSend_noInitData_shouldStayAnonymous() {
+
+		Message<?> result = interceptor.preSend(connect(null), channel);
+
+		assertNull(MessageHeaderAccessor.getAccessor(result, StompHeaderAccessor.class).getUser());
+	}
+
+	@Test
+	@DisplayName("CONNECT with forged initData is rejected")
+	void testPreSend_invalidInitData_shouldReject() {
+
+		String forged = InitDataFixtures.signedInitData("999:other", 42L, "Anna", NOW.getEpochSecond());
+
+		assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(connect(forged), channel));
+	}
+
+	@Test
+	@DisplayName("Driver frames from an anonymous session are rejected, public frames pass")
+	void testPreSend_anonymousDriverFrame_shouldReject() {
+
+		assertThrows(MessageDeliveryException.class,
+				() -> interceptor.preSend(send("/app/driver/heartbeat", null), channel));
+		assertNotNull(interceptor.preSend(send("/app/orders/ping", null), channel));
+	}
+
+	@Test
+	@DisplayName("Driver frames from an authenticated session pass")
+	void testPreSend_authenticatedDriverFrame_shouldPass() {
+
+		// arrange
+		TelegramUserDTO user = new TelegramUserDTO();
+		user.setId(42L);
+
+		// act
+		Message<?> result = interceptor.preSend(send("/app/driver/heartbeat", new TelegramPrincipal(user)), channel);
+
+		// assert
+		assertNotNull(result);
+	}
+
+	// Helpers
+	private Message<byte[]> send(String destination, TelegramPrincipal principal) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+		accessor.setDestination(destination);
+		accessor.setUser(principal);
+		accessor.setLeaveMutable(true);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
+	private Message<byte[]> connect(String initData) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+		if (initData != null) {
+			accessor.addNativeHeader(TelegramStompAuthInterceptor.INIT_DATA_HEADER, initData);
+		}
+		accessor.setLeaveMutable(true);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+}
@@ -0,0 +1,75 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.TelegramAuthProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.telegram.TelegramUserDTO;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TelegramWebAppAuthValidatorTest {
+
+	private static final String BOT_TOKEN = "12345:test";
+	private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+
+	private TelegramWebAppAuthValidator validator;
+
+	@BeforeEach
+	void setup() {
+		TelegramAuthProperties properties = new TelegramAuthProperties();
+		properties.setInitDataMaxAge(Duration.ofHours(1));
+		ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		validator = new TelegramWebAppAuthValidator(BOT_TOKEN, objectMapper, properties,
+				new SimpleMeterRegistry(), Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	@Test
+	@DisplayName("Correctly signed initData returns the user, repeated calls hit the cache")
+	void testValidate_validInitData_shouldReturnCachedUser() {
+
+		String initData = InitDataFixtures.signedInitData(BOT_TOKEN, 42L, "Anna", NOW.getEpochSecond() - 60);
+
+		TelegramUserDTO first = validator.validate(initData);
+		TelegramUserDTO second = validator.validate(initData);
+
+		assertEquals(42L, first.getId());
+		assertEquals("Anna", first.getFirstName());
+		assertSame(first, second);
+	}
+
+	@Test
+	@DisplayName("Tampered data, foreign token or missing hash are rejected")
+	void testValidate_invalidSignature_shouldThrow() {
+
+		String initData = InitDataFixtures.signedInitData(BOT_TOKEN, 42L, "Anna", NOW.getEpochSecond());
+		String tampered = initData.replace("%22id%22%3A42", "%22id%22%3A43");
+		String foreign = InitDataFixtures.signedInitData("999:other", 42L, "Anna", NOW.getEpochSecond());
+		String unsigned = initData.substring(0, initData.indexOf("&hash="));
+
+		assertThrows(SecurityException.class, () -> validator.validate(tampered));
+		assertThrows(SecurityException.class, () -> validator.validate(foreign));
+		assertThrows(SecurityException.class, () -> validator.validate(unsigned));
+	}
+
+	@Test
+	@DisplayName("initData older than the max age is rejected")
+	void testValidate_expiredInitData_shouldThrow() {
+
+		String initData = InitDataFixtures.signedInitData(BOT_TOKEN, 42L, "Anna", NOW.getEpochSecond() - 3_601);
+
+		assertThrows(SecurityException.class, () -> validator.validate(initData));
+	}
+}
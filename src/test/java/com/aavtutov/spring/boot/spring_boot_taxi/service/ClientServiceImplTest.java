@@ -0,0 +1,133 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.ClientCacheProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.ClientRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.mapper.ClientMapper;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.telegram.TelegramUserDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.exception.ClientNotFoundException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ClientServiceImplTest {
+
+	private static final Long TG_ID = 1_000L;
+
+	private ClientRepository clientRepository;
+	private ClientServiceImpl clientService;
+
+	@BeforeEach
+	void setup() {
+		clientRepository = mock(ClientRepository.class);
+		when(clientRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+		clientService = new ClientServiceImpl(
+				clientRepository,
+				Mappers.getMapper(ClientMapper.class),
+				new SimpleMeterRegistry(),
+				new ClientCacheProperties());
+	}
+
+	@Test
+	@DisplayName("A known client with an unchanged name is read once and never written")
+	void testGetOrCreateClient_unchangedName_shouldServeFromCache() {
+
+		// arrange
+		when(clientRepository.findByTelegramId(TG_ID)).thenReturn(Optional.of(createClient("Anna")));
+
+		// act
+		ClientEntity first = clientService.getOrCreateClient(createTelegramUser("Anna"));
+		ClientEntity second = clientService.getOrCreateClient(createTelegramUser("Anna"));
+
+		// assert
+		assertEquals(TG_ID, second.getTelegramId());
+		assertNotSame(first, second, "Callers should get their own copy");
+		verify(clientRepository, times(1)).findByTelegramId(TG_ID);
+		verify(clientRepository, never()).save(any());
+	}
+
+	@Test
+	@DisplayName("A changed Telegram name bypasses the cache and is written back")
+	void testGetOrCreateClient_changedName_shouldUpdate() {
+
+		// arrange
+		when(clientRepository.findByTelegramId(TG_ID)).thenReturn(Optional.of(createClient("Anna")));
+		clientService.getOrCreateClient(createTelegramUser("Anna"));
+
+		// act
+		ClientEntity renamed = clientService.getOrCreateClient(createTelegramUser("Anya"));
+
+		// assert
+		assertEquals("Anya", renamed.getFullName());
+		verify(clientRepository, times(2)).findByTelegramId(TG_ID);
+		verify(clientRepository, times(1)).save(any());
+	}
+
+	@Test
+	@DisplayName("save() drops the cached copy so the next request reads the stored client")
+	void testSave_shouldInvalidateCache() {
+
+		// arrange
+		when(clientRepository.findByTelegramId(TG_ID)).thenReturn(Optional.of(createClient("Anna")));
+		clientService.getOrCreateClient(createTelegramUser("Anna"));
+
+		// act
+		clientService.save(createClient("Anna"));
+		clientService.getOrCreateClient(createTelegramUser("Anna"));
+
+		// assert
+		verify(clientRepository, times(2)).findByTelegramId(TG_ID);
+	}
+
+	@Test
+	@DisplayName("An unknown client is created on first request, lookups by id still fail")
+	void testGetOrCreateClient_missingClient_shouldCreate() {
+
+		// arrange
+		when(clientRepository.findByTelegramId(TG_ID)).thenReturn(Optional.empty());
+
+		// act
+		ClientEntity created = clientService.getOrCreateClient(createTelegramUser("Anna"));
+
+		// assert
+		assertEquals(TG_ID, created.getTelegramId());
+		assertEquals(String.valueOf(TG_ID), created.getTelegramChatId());
+		assertEquals("Anna", created.getFullName());
+		verify(clientRepository, times(1)).save(any());
+		assertThrows(ClientNotFoundException.class, () -> clientService.findClientByTelegramId(TG_ID));
+	}
+
+	// Helpers
+	private ClientEntity createClient(String fullName) {
+		ClientEntity client = new ClientEntity();
+		client.setId(1L);
+		client.setTelegramId(TG_ID);
+		client.setTelegramChatId(String.valueOf(TG_ID));
+		client.setFullName(fullName);
+		return client;
+	}
+
+	private TelegramUserDTO createTelegramUser(String firstName) {
+		TelegramUserDTO user = new TelegramUserDTO();
+		user.setId(TG_ID);
+		user.setFirstName(firstName);
+		return user;
+	}
+}
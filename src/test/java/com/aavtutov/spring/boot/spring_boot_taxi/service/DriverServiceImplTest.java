@@ -0,0 +1,131 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DispatchProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DriverCacheProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DriverPresenceProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DriverStatusWriteProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.config.WebSocketBrokerProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.DriverRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.DriverSnapshot;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.event.DriverStatusChangedEvent;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.DriverLocationIndex;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.presence.DriverPresenceTracker;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.presence.DriverStatusWriteBehind;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DriverServiceImplTest {
+
+	private static final Long TG_ID = 77L;
+
+	private DriverRepository driverRepository;
+	private JdbcTemplate jdbcTemplate;
+	private DriverServiceImpl driverService;
+
+	@BeforeEach
+	void setup() {
+		driverRepository = mock(DriverRepository.class);
+		jdbcTemplate = mock(JdbcTemplate.class);
+		TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+		when(transactionTemplate.execute(any()))
+				.thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+		driverService = new DriverServiceImpl(
+				driverRepository,
+				mock(OrderRepository.class),
+				mock(ApplicationEventPublisher.class),
+				new DriverLocationIndex(new DispatchProperties()),
+				new DriverPresenceTracker(new DriverPresenceProperties(), meterRegistry),
+				new DriverStatusWriteBehind(jdbcTemplate, transactionTemplate,
+						new DriverStatusWriteProperties(), meterRegistry),
+				meterRegistry,
+				new DriverCacheProperties(),
+				new WebSocketBrokerProperties());
+	}
+
+	@Test
+	@DisplayName("Repeated lookups are served from the cache until a status change event")
+	void testFindSnapshot_shouldHitDatabaseOncePerStatusChange() {
+
+		// arrange
+		DriverEntity driver = createDriver(DriverStatus.ACTIVE);
+		when(driverRepository.findByTelegramId(TG_ID)).thenReturn(Optional.of(driver));
+
+		// act
+		driverService.findSnapshotByTelegramId(TG_ID);
+		DriverSnapshot cached = driverService.findSnapshotByTelegramId(TG_ID);
+
+		driver.setStatus(DriverStatus.BANNED);
+		driverService.evictOnStatusChange(new DriverStatusChangedEvent(driver));
+		DriverSnapshot reloaded = driverService.findSnapshotByTelegramId(TG_ID);
+
+		// assert
+		assertEquals(DriverStatus.ACTIVE, cached.status());
+		assertEquals(DriverStatus.BANNED, reloaded.status());
+		verify(driverRepository, times(2)).findByTelegramId(TG_ID);
+	}
+
+	@Test
+	@DisplayName("Heartbeat activation is visible at once and written by the next flush")
+	void testActivateDriverByHeartbeat_inactiveDriver_shouldWriteBehind() {
+
+		// arrange
+		DriverEntity driver = createDriver(DriverStatus.INACTIVE);
+		when(driverRepository.findByTelegramId(TG_ID)).thenReturn(Optional.of(driver));
+		when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+			driver.setStatus(DriverStatus.ACTIVE);
+			return new int[] {1};
+		});
+
+		// act
+		for (int i = 0; i < 4; i++) {
+			driverService.activateDriverByHeartbeat(driverService.findSnapshotByTelegramId(TG_ID));
+		}
+		DriverSnapshot beforeFlush = driverService.findSnapshotByTelegramId(TG_ID);
+		verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+
+		driverService.flushStatusChanges();
+		driverService.flushStatusChanges();
+		DriverSnapshot afterFlush = driverService.findSnapshotByTelegramId(TG_ID);
+
+		// assert
+		assertEquals(DriverStatus.ACTIVE, beforeFlush.status(), "Buffered status should win over the stored one");
+		assertEquals(DriverStatus.ACTIVE, afterFlush.status());
+		verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+		verify(driverRepository, times(2)).findByTelegramId(TG_ID);
+	}
+
+	// Helpers
+	private DriverEntity createDriver(DriverStatus status) {
+		DriverEntity driver = new DriverEntity();
+		driver.setId(1L);
+		driver.setTelegramId(TG_ID);
+		driver.setTelegramChatId("77");
+		driver.setStatus(status);
+		return driver;
+	}
+}
@@ -0,0 +1,112 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.RouteCacheProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.MapboxRoutingServiceImpl.Route;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+public class MapboxRoutingServiceImplTest {
+
+	private static final String ROUTE_JSON = "{\"routes\":[{\"distance\":4200.0,\"duration\":600.0}]}";
+
+	private final AtomicInteger mapboxCalls = new AtomicInteger();
+	private final AtomicLong nanos = new AtomicLong();
+	private RouteCacheProperties properties;
+
+	@BeforeEach
+	void setup() {
+		properties = new RouteCacheProperties();
+	}
+
+	@Test
+	@DisplayName("A repeated trip, also from a few meters away, is served from the cache")
+	void testGetRoute_repeatedTrip_shouldCallMapboxOnce() {
+
+		// arrange
+		MapboxRoutingServiceImpl routingService = createService();
+
+		// act
+		Route first = routingService.getRoute(bd("13.40000"), bd("52.52000"), bd("13.45000"), bd("52.50000"));
+		Route second = routingService.getRoute(bd("13.40001"), bd("52.52001"), bd("13.45000"), bd("52.50000"));
+
+		// assert
+		assertEquals(4200.0, first.getDistance());
+		assertEquals(first, second);
+		assertEquals(1, mapboxCalls.get());
+	}
+
+	@Test
+	@DisplayName("A cached route expires after the TTL")
+	void testGetRoute_afterTtl_shouldCallMapboxAgain() {
+
+		// arrange
+		properties.setTtl(Duration.ofMinutes(10));
+		MapboxRoutingServiceImpl routingService = createService();
+		routingService.getRoute(bd("13.40"), bd("52.52"), bd("13.45"), bd("52.50"));
+
+		// act
+		nanos.addAndGet(Duration.ofMinutes(9).toNanos());
+		routingService.getRoute(bd("13.40"), bd("52.52"), bd("13.45"), bd("52.50"));
+		int beforeTtl = mapboxCalls.get();
+		nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+		routingService.getRoute(bd("13.40"), bd("52.52"), bd("13.45"), bd("52.50"));
+
+		// assert
+		assertEquals(1, beforeTtl);
+		assertEquals(2, mapboxCalls.get());
+	}
+
+	@Test
+	@DisplayName("The cache holds at most maximumSize routes")
+	void testGetRoute_manyTrips_shouldStayWithinMaximumSize() {
+
+		// arrange
+		properties.setMaximumSize(2);
+		MapboxRoutingServiceImpl routingService = createService();
+
+		// act
+		for (int i = 0; i < 10; i++) {
+			routingService.getRoute(bd("13.40"), bd("52.52"), bd("13." + (50 + i)), bd("52.50"));
+		}
+
+		// assert
+		assertEquals(10, mapboxCalls.get());
+		assertEquals(2, routingService.cachedRoutes());
+	}
+
+	// Helpers
+
+	private MapboxRoutingServiceImpl createService() {
+		WebClient webClient = WebClient.builder()
+				.exchangeFunction(request -> {
+					mapboxCalls.incrementAndGet();
+					return Mono.just(ClientResponse.create(HttpStatus.OK)
+							.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+							.body(ROUTE_JSON)
+							.build());
+				})
+				.build();
+		return new MapboxRoutingServiceImpl(webClient, "pk.test", properties, new SimpleMeterRegistry(), nanos::get);
+	}
+
+	private static BigDecimal bd(String value) {
+		return new BigDecimal(value);
+	}
+}
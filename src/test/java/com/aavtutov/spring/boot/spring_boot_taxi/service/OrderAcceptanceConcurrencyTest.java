@@ -0,0 +1,142 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.ClientRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.DriverRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.exception.OrderStatusConflictException;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+properties = {
+		"spring.autoconfigure.exclude=org.telegram.telegrambots.longpolling.starter.TelegramBotStarterConfiguration",
+		"order.accept.strategy=CONDITIONAL_UPDATE"
+})
+@ActiveProfiles("test")
+public class OrderAcceptanceConcurrencyTest {
+
+	private static final int DRIVERS = 200;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private DriverRepository driverRepository;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@MockitoBean
+	private TelegramBotService telegramBotService;
+
+	@AfterEach
+	void tearDown() {
+		orderRepository.deleteAll();
+		driverRepository.deleteAll();
+		clientRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("Hundreds of simultaneous accepts: exactly one driver wins, the rest get 409")
+	void testAcceptOrder_concurrentDrivers_shouldAssignExactlyOne() throws Exception {
+
+		// arrange
+		ClientEntity client = clientRepository.save(createClient(1_000L));
+		OrderEntity order = orderRepository.save(createOrder(client));
+
+		List<DriverEntity> drivers = new ArrayList<>();
+		for (long tgId = 1; tgId <= DRIVERS; tgId++) {
+			drivers.add(driverRepository.save(createDriver(tgId)));
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(64);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<OrderEntity>> attempts = new ArrayList<>();
+
+		// act
+		for (DriverEntity driver : drivers) {
+			attempts.add(pool.submit(() -> {
+				start.await();
+				return orderService.acceptOrder(order.getId(), driver.getTelegramId());
+			}));
+		}
+		start.countDown();
+
+		int accepted = 0;
+		int conflicts = 0;
+		for (Future<OrderEntity> attempt : attempts) {
+			try {
+				attempt.get(30, TimeUnit.SECONDS);
+				accepted++;
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof OrderStatusConflictException,
+						"Losing drivers should get a conflict, got: " + e.getCause());
+				conflicts++;
+			}
+		}
+		pool.shutdown();
+
+		// assert
+		OrderEntity saved = orderRepository.findByIdWithClientAndDriver(order.getId()).orElseThrow();
+		assertEquals(1, accepted, "Exactly one driver should win the order");
+		assertEquals(DRIVERS - 1, conflicts);
+		assertEquals(OrderStatus.ACCEPTED, saved.getStatus());
+		assertTrue(saved.getAcceptedAt() != null, "Acceptance time should be recorded");
+	}
+
+	// Helpers
+	private ClientEntity createClient(Long tgId) {
+		ClientEntity client = new ClientEntity();
+		client.setTelegramId(tgId);
+		client.setTelegramChatId(String.valueOf(tgId));
+		client.setFullName("Client");
+		return client;
+	}
+
+	private DriverEntity createDriver(Long tgId) {
+		DriverEntity driver = new DriverEntity();
+		driver.setTelegramId(tgId);
+		driver.setTelegramChatId(String.valueOf(tgId));
+		driver.setStatus(DriverStatus.ACTIVE);
+		return driver;
+	}
+
+	private OrderEntity createOrder(ClientEntity client) {
+		OrderEntity order = new OrderEntity();
+		order.setClient(client);
+		order.setStartAddress("A");
+		order.setEndAddress("B");
+		order.setStartLatitude(new BigDecimal("52.52"));
+		order.setStartLongitude(new BigDecimal("13.40"));
+		order.setEndLatitude(new BigDecimal("52.50"));
+		order.setEndLongitude(new BigDecimal("13.45"));
+		return order;
+	}
+}
@@ -0,0 +1,115 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.ClientRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.DriverRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.GeoDistance;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+properties = {
+		"spring.autoconfigure.exclude=org.telegram.telegrambots.longpolling.starter.TelegramBotStarterConfiguration",
+		"fare.calculation.strategy=DISTANCE_AND_TIME"
+})
+@ActiveProfiles("test")
+public class OrderCompletionTest {
+
+	private static final long DRIVER_TG_ID = 1L;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private DriverRepository driverRepository;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@MockitoBean
+	private TelegramBotService telegramBotService;
+
+	@AfterEach
+	void tearDown() {
+		orderRepository.deleteAll();
+		driverRepository.deleteAll();
+		clientRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("A trip without a route estimate completes, priced on the straight-line distance")
+	void testCompleteOrder_withoutEstimate_shouldUseStraightLineDistance() {
+
+		// arrange
+		ClientEntity client = clientRepository.save(createClient(1_000L));
+		DriverEntity driver = driverRepository.save(createDriver(DRIVER_TG_ID));
+		OrderEntity order = orderRepository.save(createStartedOrder(client, driver));
+
+		// act
+		OrderEntity completed = orderService.completeOrder(order.getId(), DRIVER_TG_ID);
+
+		// assert (test fares: base 10, 5 per km, 2 per minute)
+		double km = GeoDistance.haversineMeters(52.52, 13.40, 52.50, 13.45) / 1000;
+		BigDecimal expected = BigDecimal.valueOf(10)
+				.add(BigDecimal.valueOf(km).setScale(3, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(5)))
+				.add(completed.getActualDuration().multiply(BigDecimal.valueOf(2)))
+				.setScale(2, RoundingMode.HALF_UP);
+		assertEquals(OrderStatus.COMPLETED, completed.getStatus());
+		assertEquals(expected, completed.getPrice());
+	}
+
+	// Helpers
+	private ClientEntity createClient(Long tgId) {
+		ClientEntity client = new ClientEntity();
+		client.setTelegramId(tgId);
+		client.setTelegramChatId(String.valueOf(tgId));
+		client.setFullName("Client");
+		return client;
+	}
+
+	private DriverEntity createDriver(Long tgId) {
+		DriverEntity driver = new DriverEntity();
+		driver.setTelegramId(tgId);
+		driver.setTelegramChatId(String.valueOf(tgId));
+		driver.setStatus(DriverStatus.ACTIVE);
+		return driver;
+	}
+
+	// Accepted and started before the route estimate arrived
+	private OrderEntity createStartedOrder(ClientEntity client, DriverEntity driver) {
+		OrderEntity order = new OrderEntity();
+		order.setClient(client);
+		order.setDriver(driver);
+		order.setStatus(OrderStatus.IN_PROGRESS);
+		order.setStartAddress("A");
+		order.setEndAddress("B");
+		order.setStartLatitude(new BigDecimal("52.52"));
+		order.setStartLongitude(new BigDecimal("13.40"));
+		order.setEndLatitude(new BigDecimal("52.50"));
+		order.setEndLongitude(new BigDecimal("13.45"));
+		order.setAcceptedAt(Instant.now().minus(Duration.ofMinutes(15)));
+		order.setStartedAt(Instant.now().minus(Duration.ofMinutes(10)));
+		return order;
+	}
+}
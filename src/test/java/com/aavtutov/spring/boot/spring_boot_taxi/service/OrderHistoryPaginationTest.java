@@ -0,0 +1,128 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.ClientRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderHistoryCursor;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderRow;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+properties = "spring.autoconfigure.exclude=org.telegram.telegrambots.longpolling.starter.TelegramBotStarterConfiguration")
+@ActiveProfiles("test")
+public class OrderHistoryPaginationTest {
+
+	private static final Instant BASE = Instant.parse("2026-10-17T12:00:00Z");
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@MockitoBean
+	private TelegramBotService telegramBotService;
+
+	@AfterEach
+	void tearDown() {
+		orderRepository.deleteAll();
+		clientRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("Walking the pages returns every order once, newest first, ties broken by id")
+	void testFindClientHistory_pages_shouldCoverHistoryInOrder() {
+
+		// arrange (orders 2, 3 and 4 share one creation instant)
+		ClientEntity client = clientRepository.save(createClient(1_000L));
+		ClientEntity otherClient = clientRepository.save(createClient(2_000L));
+		int[] minutesAfterBase = { 0, 1, 5, 5, 5, 7, 9 };
+		List<Long> ids = new ArrayList<>();
+		for (int minutes : minutesAfterBase) {
+			OrderEntity order = orderRepository.save(createOrder(client));
+			setCreatedAt(order.getId(), BASE.plusSeconds(minutes * 60L));
+			ids.add(order.getId());
+		}
+		orderRepository.save(createOrder(otherClient));
+
+		List<Long> expected = List.of(ids.get(6), ids.get(5), ids.get(4), ids.get(3), ids.get(2), ids.get(1), ids.get(0));
+
+		// act
+		List<Long> walked = new ArrayList<>();
+		List<Integer> pageSizes = new ArrayList<>();
+		OrderHistoryCursor cursor = null;
+		while (true) {
+			List<OrderRow> page = orderService.findClientHistory(client.getId(), cursor, 3);
+			if (page.isEmpty()) {
+				break;
+			}
+			page.forEach(order -> walked.add(order.id()));
+			pageSizes.add(page.size());
+			cursor = OrderHistoryCursor.decode(OrderHistoryCursor.of(page.get(page.size() - 1)).encode());
+		}
+
+		// assert
+		assertEquals(expected, walked);
+		assertEquals(List.of(3, 3, 1), pageSizes);
+	}
+
+	@Test
+	@DisplayName("Cursors survive encoding, garbage tokens are rejected as bad input")
+	void testCursor_roundTripAndInvalidToken() {
+
+		OrderHistoryCursor cursor = new OrderHistoryCursor(Instant.parse("2026-10-17T12:00:00.123456Z"), 42L);
+
+		assertEquals(cursor, OrderHistoryCursor.decode(cursor.encode()));
+		assertThrows(IllegalArgumentException.class, () -> OrderHistoryCursor.decode("not a cursor"));
+		assertThrows(IllegalArgumentException.class, () -> OrderHistoryCursor.decode("MTox"));
+	}
+
+	// Helpers
+	private void setCreatedAt(Long orderId, Instant createdAt) {
+		jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?", Timestamp.from(createdAt), orderId);
+	}
+
+	private ClientEntity createClient(Long tgId) {
+		ClientEntity client = new ClientEntity();
+		client.setTelegramId(tgId);
+		client.setTelegramChatId(String.valueOf(tgId));
+		client.setFullName("Client");
+		return client;
+	}
+
+	private OrderEntity createOrder(ClientEntity client) {
+		OrderEntity order = new OrderEntity();
+		order.setClient(client);
+		order.setStartAddress("A");
+		order.setEndAddress("B");
+		order.setStartLatitude(new BigDecimal("52.52"));
+		order.setStartLongitude(new BigDecimal("13.40"));
+		order.setEndLatitude(new BigDecimal("52.50"));
+		order.setEndLongitude(new BigDecimal("13.45"));
+		return order;
+	}
+}
@@ -0,0 +1,148 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.ClientRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderHistoryCursor;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderRow;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.ClientEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.OrderService;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.TelegramBotService;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+properties = {
+		"spring.autoconfigure.exclude=org.telegram.telegrambots.longpolling.starter.TelegramBotStarterConfiguration",
+		"order.archive.olderThan=90d",
+		"order.archive.batchSize=2"
+})
+@ActiveProfiles("test")
+public class OrderArchiverTest {
+
+	@Autowired
+	private OrderArchiver orderArchiver;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@MockitoBean
+	private TelegramBotService telegramBotService;
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.update("DELETE FROM orders_archive");
+		orderRepository.deleteAll();
+		clientRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("Old completed and cancelled orders move to the archive, active and recent ones stay")
+	void testArchive_shouldMoveOnlyOldTerminalOrders() {
+
+		// arrange
+		ClientEntity client = clientRepository.save(createClient(1_000L));
+		Long oldCompleted = saveOrder(client, OrderStatus.COMPLETED, 100);
+		Long oldCanceled = saveOrder(client, OrderStatus.CANCELED, 95);
+		Long oldCompleted2 = saveOrder(client, OrderStatus.COMPLETED, 91);
+		Long oldPending = saveOrder(client, OrderStatus.PENDING, 120);
+		Long recentCompleted = saveOrder(client, OrderStatus.COMPLETED, 10);
+
+		// act (three orders in batches of two)
+		orderArchiver.archive();
+
+		// assert
+		assertEquals(List.of(oldCompleted, oldCanceled, oldCompleted2), idsOf("orders_archive"));
+		assertEquals(List.of(oldPending, recentCompleted), idsOf("orders"));
+		assertEquals(OrderStatus.CANCELED, orderService.findOrderById(oldCanceled).status());
+	}
+
+	@Test
+	@DisplayName("History pages span live and archived orders in one newest-first sequence")
+	void testFindClientHistory_shouldSpanBothTables() {
+
+		// arrange (the pending order is older than the archived ones and stays live)
+		ClientEntity client = clientRepository.save(createClient(1_000L));
+		Long pending = saveOrder(client, OrderStatus.PENDING, 200);
+		Long archived1 = saveOrder(client, OrderStatus.COMPLETED, 150);
+		Long archived2 = saveOrder(client, OrderStatus.CANCELED, 120);
+		Long recent1 = saveOrder(client, OrderStatus.COMPLETED, 30);
+		Long recent2 = saveOrder(client, OrderStatus.COMPLETED, 1);
+		orderArchiver.archive();
+
+		// act
+		List<Long> walked = new ArrayList<>();
+		OrderHistoryCursor cursor = null;
+		while (true) {
+			List<OrderRow> page = orderService.findClientHistory(client.getId(), cursor, 2);
+			if (page.isEmpty()) {
+				break;
+			}
+			page.forEach(order -> walked.add(order.id()));
+			cursor = OrderHistoryCursor.of(page.get(page.size() - 1));
+		}
+
+		// assert
+		assertEquals(List.of(recent2, recent1, archived2, archived1, pending), walked);
+		assertEquals(recent2, orderService.findMostRecentOrderOptional(client.getId()).orElseThrow().id());
+	}
+
+	// Helpers
+
+	private Long saveOrder(ClientEntity client, OrderStatus status, int daysAgo) {
+		Long id = orderRepository.save(createOrder(client)).getId();
+		jdbcTemplate.update("UPDATE orders SET status = ?, created_at = ? WHERE id = ?",
+				status.name(), Timestamp.from(Instant.now().minus(Duration.ofDays(daysAgo))), id);
+		return id;
+	}
+
+	private List<Long> idsOf(String table) {
+		return jdbcTemplate.queryForList("SELECT id FROM " + table + " ORDER BY created_at", Long.class);
+	}
+
+	private ClientEntity createClient(Long tgId) {
+		ClientEntity client = new ClientEntity();
+		client.setTelegramId(tgId);
+		client.setTelegramChatId(String.valueOf(tgId));
+		client.setFullName("Client");
+		return client;
+	}
+
+	private OrderEntity createOrder(ClientEntity client) {
+		OrderEntity order = new OrderEntity();
+		order.setClient(client);
+		order.setStartAddress("A");
+		order.setEndAddress("B");
+		order.setStartLatitude(new BigDecimal("52.52"));
+		order.setStartLongitude(new BigDecimal("13.40"));
+		order.setEndLatitude(new BigDecimal("52.50"));
+		order.setEndLongitude(new BigDecimal("13.45"));
+		return order;
+	}
+}
@@ -0,0 +1,148 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.dispatch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class AssignmentSolverTest {
+
+	private static final long MAX_COST = 5_000;
+
+	@Test
+	@DisplayName("Matches the brute-force optimum on random sparse instances, with and without ties")
+	void testSolve_randomInstances_shouldBeOptimal() {
+
+		Random random = new Random(42);
+		for (int round = 0; round < 500; round++) {
+
+			// arrange
+			int orders = 1 + random.nextInt(7);
+			int drivers = 1 + random.nextInt(7);
+			long[][] costs = randomCosts(random, orders, drivers, round % 2 == 0 ? 3 : MAX_COST);
+
+			// act
+			int[] assignment = AssignmentSolver.solve(toProblem(costs, drivers));
+
+			// assert
+			assertValid(costs, assignment);
+			assertEquals(bruteForceBest(costs, 0, new boolean[drivers]), value(costs, assignment),
+					"Round " + round + " should be optimal");
+		}
+	}
+
+	@Test
+	@DisplayName("Serving more orders wins over a shorter total pickup distance")
+	void testSolve_shouldPreferMoreAssignments() {
+
+		// arrange (order 0 is closest to driver 0, but only order 0 can use driver 1)
+		long[][] costs = {
+				{100, 5_000},
+				{4_000, -1}
+		};
+
+		// act
+		int[] assignment = AssignmentSolver.solve(toProblem(costs, 2));
+
+		// assert
+		assertArrayEquals(new int[] {1, 0}, assignment);
+	}
+
+	@Test
+	@DisplayName("Orders without candidates stay unassigned and a driver is used at most once")
+	void testSolve_contention_shouldLeaveSurplusOrdersUnassigned() {
+
+		// arrange (three orders competing for one driver, one order without candidates)
+		long[][] costs = {
+				{300},
+				{100},
+				{200},
+				{-1}
+		};
+
+		// act
+		int[] assignment = AssignmentSolver.solve(toProblem(costs, 1));
+
+		// assert
+		assertArrayEquals(new int[] {-1, 0, -1, -1}, assignment);
+	}
+
+	// Helpers
+
+	// costs[order][driver], -1 where the driver is not a candidate
+	private static long[][] randomCosts(Random random, int orders, int drivers, long maxCost) {
+		long[][] costs = new long[orders][drivers];
+		for (int order = 0; order < orders; order++) {
+			for (int driver = 0; driver < drivers; driver++) {
+				costs[order][driver] = random.nextInt(3) == 0 ? -1 : random.nextInt((int) maxCost + 1);
+			}
+		}
+		return costs;
+	}
+
+	private static AssignmentSolver.Problem toProblem(long[][] costs, int drivers) {
+		AssignmentSolver.Problem problem = new AssignmentSolver.Problem(drivers, MAX_COST, 1, 1);
+		for (long[] row : costs) {
+			problem.addOrder();
+			for (int driver = 0; driver < row.length; driver++) {
+				if (row[driver] >= 0) {
+					problem.addCandidate(driver, row[driver]);
+				}
+			}
+		}
+		return problem;
+	}
+
+	private static void assertValid(long[][] costs, int[] assignment) {
+		assertEquals(costs.length, assignment.length);
+		Set<Integer> used = new HashSet<>();
+		for (int order = 0; order < assignment.length; order++) {
+			int driver = assignment[order];
+			if (driver >= 0) {
+				assertTrue(costs[order][driver] >= 0, "Only candidates may be assigned");
+				assertTrue(used.add(driver), "Driver " + driver + " assigned twice");
+			}
+		}
+	}
+
+	// Objective the solver minimizes: total cost plus a penalty above any total cost per unassigned order
+	private static long value(long[][] costs, int[] assignment) {
+		long total = 0;
+		for (int order = 0; order < assignment.length; order++) {
+			total += assignment[order] >= 0 ? costs[order][assignment[order]] : penalty(costs);
+		}
+		return total;
+	}
+
+	private static long penalty(long[][] costs) {
+		return MAX_COST * costs.length + 1;
+	}
+
+	private static long bruteForceBest(long[][] costs, int order, boolean[] used) {
+		if (order == costs.length) {
+			return 0;
+		}
+		// Leave this order unassigned
+		long best = penalty(costs) + bruteForceBest(costs, order + 1, used);
+		List<Integer> candidates = new ArrayList<>();
+		for (int driver = 0; driver < used.length; driver++) {
+			if (!used[driver] && costs[order][driver] >= 0) {
+				candidates.add(driver);
+			}
+		}
+		for (int driver : candidates) {
+			used[driver] = true;
+			best = Math.min(best, costs[order][driver] + bruteForceBest(costs, order + 1, used));
+			used[driver] = false;
+		}
+		return best;
+	}
+}
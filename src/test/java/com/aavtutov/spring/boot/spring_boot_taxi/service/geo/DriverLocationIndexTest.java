@@ -0,0 +1,93 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.geo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DispatchProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.DriverLocationIndex.NearbyDriver;
+
+public class DriverLocationIndexTest {
+
+	// Somewhere in central Berlin
+	private static final double LAT = 52.5200;
+	private static final double LNG = 13.4050;
+
+	private DriverLocationIndex index;
+
+	@BeforeEach
+	void setup() {
+		index = new DriverLocationIndex(new DispatchProperties());
+	}
+
+	@Test
+	@DisplayName("Nearest drivers are returned closest first and limited")
+	void testFindNearest_shouldRankByDistance() {
+
+		// arrange
+		index.update(1L, LAT + 0.030, LNG);	// ~3.3 km
+		index.update(2L, LAT + 0.001, LNG);	// ~110 m
+		index.update(3L, LAT, LNG + 0.015);	// ~1 km
+		index.update(4L, LAT + 0.5, LNG);	// ~55 km, outside radius
+
+		// act
+		List<NearbyDriver> nearest = index.findNearest(LAT, LNG, 2, 5_000);
+
+		// assert
+		assertEquals(2, nearest.size());
+		assertEquals(2L, nearest.get(0).driverId());
+		assertEquals(3L, nearest.get(1).driverId());
+	}
+
+	@Test
+	@DisplayName("Radius query ignores drivers outside the radius")
+	void testFindWithinRadius_shouldFilterByDistance() {
+
+		index.update(1L, LAT + 0.030, LNG);
+		index.update(2L, LAT + 0.001, LNG);
+		index.update(4L, LAT + 0.5, LNG);
+
+		List<NearbyDriver> nearby = index.findWithinRadius(LAT, LNG, 5_000);
+
+		assertEquals(List.of(2L, 1L), nearby.stream().map(NearbyDriver::driverId).toList());
+	}
+
+	@Test
+	@DisplayName("Moved and removed drivers are not reported at stale positions")
+	void testUpdateAndRemove_shouldKeepIndexConsistent() {
+
+		index.update(1L, LAT, LNG);
+		index.update(1L, LAT + 1.0, LNG);
+		index.update(2L, LAT, LNG);
+		index.remove(2L);
+
+		assertTrue(index.findWithinRadius(LAT, LNG, 1_000).isEmpty());
+		assertEquals(1, index.findWithinRadius(LAT + 1.0, LNG, 1_000).size());
+		assertFalse(index.contains(2L));
+		assertEquals(1, index.size());
+	}
+
+	@Test
+	@DisplayName("Ring search matches a brute-force scan")
+	void testFindNearest_shouldMatchBruteForce() {
+
+		Random random = new Random(42);
+		for (long id = 1; id <= 2_000; id++) {
+			index.update(id, LAT + (random.nextDouble() - 0.5) * 0.4, LNG + (random.nextDouble() - 0.5) * 0.6);
+		}
+
+		List<NearbyDriver> nearest = index.findNearest(LAT, LNG, 10, 20_000);
+		List<NearbyDriver> expected = index.findWithinRadius(LAT, LNG, 20_000).subList(0, 10);
+
+		assertEquals(
+				expected.stream().map(NearbyDriver::driverId).toList(),
+				nearest.stream().map(NearbyDriver::driverId).toList());
+	}
+}
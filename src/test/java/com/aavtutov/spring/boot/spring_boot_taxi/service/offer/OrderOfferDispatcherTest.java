@@ -0,0 +1,264 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.offer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DispatchProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.DriverRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderOfferDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderOfferType;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderResponseDTO;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.OrderRow;
+import com.aavtutov.spring.boot.spring_boot_taxi.dto.mapper.OrderMapper;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverEntity;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.geo.DriverLocationIndex;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class OrderOfferDispatcherTest {
+
+	private static final Long ORDER_ID = 100L;
+	private static final double PICKUP_LAT = 50.0;
+	private static final double PICKUP_LNG = 14.0;
+
+	private OrderRepository orderRepository;
+	private SimpMessagingTemplate simpMessagingTemplate;
+	private TaskScheduler taskScheduler;
+	private DriverLocationIndex driverLocationIndex;
+	private OrderOfferDispatcher dispatcher;
+	private DispatchProperties properties;
+	private OrderRow order;
+
+	private final Map<Long, DriverEntity> drivers = new HashMap<>();
+
+	@BeforeEach
+	void setup() {
+		orderRepository = mock(OrderRepository.class);
+		DriverRepository driverRepository = mock(DriverRepository.class);
+		OrderMapper orderMapper = mock(OrderMapper.class);
+		simpMessagingTemplate = mock(SimpMessagingTemplate.class);
+		taskScheduler = mock(TaskScheduler.class);
+
+		properties = new DispatchProperties();
+		properties.setOfferBatchSize(2);
+		properties.setOfferTimeout(Duration.ofSeconds(15));
+		properties.setOfferInitialRadiusKm(1.5);
+		properties.setOfferRadiusGrowth(2.0);
+		properties.setSearchRadiusKm(5.0);
+		driverLocationIndex = new DriverLocationIndex(properties);
+
+		order = createOrder(OrderStatus.PENDING);
+		when(orderRepository.findRowById(ORDER_ID)).thenAnswer(invocation -> Optional.of(order));
+		when(orderMapper.toResponseDto(any(OrderRow.class))).thenReturn(new OrderResponseDTO());
+		when(driverRepository.findAllById(anyCollection())).thenAnswer(invocation -> {
+			List<DriverEntity> found = new ArrayList<>();
+			invocation.<Collection<Long>>getArgument(0).forEach(id -> found.add(drivers.get(id)));
+			return found;
+		});
+
+		dispatcher = new OrderOfferDispatcher(orderRepository, driverRepository, driverLocationIndex,
+				orderMapper, simpMessagingTemplate, taskScheduler, properties, new SimpleMeterRegistry());
+	}
+
+	@Test
+	@DisplayName("Each round reaches the nearest drivers not offered yet, the radius widens when offers expire")
+	void testRounds_shouldOfferNearestFirstAndWiden() {
+
+		// arrange (roughly 0.2, 0.4, 0.9, 2.2, 2.8 and 11 km from the pickup)
+		addDriver(1L, 0.002);
+		addDriver(2L, 0.004);
+		addDriver(3L, 0.008);
+		addDriver(4L, 0.020);
+		addDriver(5L, 0.025);
+		addDriver(6L, 0.100);
+
+		// act
+		dispatcher.startOffering(ORDER_ID);
+		List<Long> firstRound = offeredTelegramIds();
+
+		nextRound().run();
+		List<Long> secondRound = offeredTelegramIds();
+
+		// assert
+		assertEquals(List.of(1001L, 1002L), firstRound, "First round: two nearest within 1.5 km");
+		assertEquals(List.of(1001L, 1002L, 1003L, 1004L), secondRound,
+				"Second round: next two within 3 km, the first two are skipped");
+	}
+
+	@Test
+	@DisplayName("Drivers on a trip and inactive drivers are not offered the order")
+	void testRound_shouldSkipBusyAndInactiveDrivers() {
+
+		// arrange
+		addDriver(1L, 0.002);
+		addDriver(2L, 0.004);
+		addDriver(3L, 0.006);
+		drivers.get(2L).setStatus(DriverStatus.INACTIVE);
+		when(orderRepository.findDriverIdsWithOrderStatusIn(anyCollection(), any())).thenReturn(List.of(1L));
+
+		// act
+		dispatcher.startOffering(ORDER_ID);
+
+		// assert
+		assertEquals(List.of(1003L), offeredTelegramIds());
+	}
+
+	@Test
+	@DisplayName("Once the order is taken, the next round withdraws the open offers and stops")
+	void testRound_orderNoLongerPending_shouldWithdraw() {
+
+		// arrange
+		addDriver(1L, 0.002);
+		dispatcher.startOffering(ORDER_ID);
+		Runnable secondRound = nextRound();
+		order = createOrder(OrderStatus.ACCEPTED);
+
+		// act
+		secondRound.run();
+
+		// assert
+		ArgumentCaptor<OrderOfferDTO> offers = ArgumentCaptor.forClass(OrderOfferDTO.class);
+		verify(simpMessagingTemplate, times(2))
+				.convertAndSendToUser(eq("1001"), eq(OrderOfferDispatcher.DESTINATION), offers.capture());
+		assertEquals(OrderOfferType.OFFERED, offers.getAllValues().get(0).getType());
+		assertEquals(OrderOfferType.WITHDRAWN, offers.getAllValues().get(1).getType());
+		verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+	}
+
+	@Test
+	@DisplayName("Repeated PENDING events for the same order do not start a second round")
+	void testStartOffering_twice_shouldSendOneRound() {
+
+		// arrange
+		addDriver(1L, 0.002);
+
+		// act
+		dispatcher.startOffering(ORDER_ID);
+		dispatcher.startOffering(ORDER_ID);
+
+		// assert
+		assertEquals(List.of(1001L), offeredTelegramIds());
+		verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+	}
+
+	@Test
+	@DisplayName("After offerMaxRounds unanswered rounds the offers are withdrawn and no further round is scheduled")
+	void testRounds_maxRoundsReached_shouldStopOffering() {
+
+		// arrange
+		properties.setOfferMaxRounds(4);
+		addDriver(1L, 0.002);
+		dispatcher.startOffering(ORDER_ID);
+
+		// act
+		for (int round = 0; round < 4; round++) {
+			nextRound().run();
+		}
+
+		// assert
+		assertEquals(List.of(1001L, 1001L), offeredTelegramIds(),
+				"The only driver is offered the order again once the widest radius is exhausted");
+		verify(taskScheduler, times(4)).schedule(any(Runnable.class), any(Instant.class));
+		verify(simpMessagingTemplate).convertAndSendToUser(eq("1001"), eq(OrderOfferDispatcher.DESTINATION),
+				argThat(offer -> ((OrderOfferDTO) offer).getType() == OrderOfferType.WITHDRAWN));
+	}
+
+	@Test
+	@DisplayName("On startup the PENDING orders are offered again")
+	void testResumePendingOrders_shouldStartRounds() {
+
+		// arrange
+		addDriver(1L, 0.002);
+		when(orderRepository.findRowsByStatus(OrderStatus.PENDING)).thenReturn(List.of(order));
+
+		// act
+		dispatcher.resumePendingOrders();
+
+		// assert
+		assertEquals(List.of(1001L), offeredTelegramIds());
+	}
+
+	@Test
+	@DisplayName("In BATCH mode nothing is resumed on startup")
+	void testResumePendingOrders_batchMode_shouldDoNothing() {
+
+		// arrange
+		properties.setMode(DispatchProperties.Mode.BATCH);
+
+		// act
+		dispatcher.resumePendingOrders();
+
+		// assert
+		verify(orderRepository, never()).findRowsByStatus(any());
+	}
+
+	// Helpers
+
+	private void addDriver(Long id, double latOffset) {
+		DriverEntity driver = new DriverEntity();
+		driver.setId(id);
+		driver.setTelegramId(1000L + id);
+		driver.setStatus(DriverStatus.ACTIVE);
+		drivers.put(id, driver);
+		driverLocationIndex.update(id, PICKUP_LAT + latOffset, PICKUP_LNG);
+	}
+
+	private OrderRow createOrder(OrderStatus status) {
+		return new OrderRow(ORDER_ID, status, 1L, 1L, "Client", null, null, null, null, null, null,
+				"A", "B", BigDecimal.valueOf(PICKUP_LAT), BigDecimal.valueOf(PICKUP_LNG), null, null,
+				null, null, null, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, null, null,
+				Instant.now(), null, null, null, null);
+	}
+
+	// Telegram ids of all OFFERED messages so far, in send order
+	private List<Long> offeredTelegramIds() {
+		ArgumentCaptor<String> users = ArgumentCaptor.forClass(String.class);
+		ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+		verify(simpMessagingTemplate, atLeast(0))
+				.convertAndSendToUser(users.capture(), eq(OrderOfferDispatcher.DESTINATION), payloads.capture());
+
+		List<Long> telegramIds = new ArrayList<>();
+		for (int i = 0; i < users.getAllValues().size(); i++) {
+			if (((OrderOfferDTO) payloads.getAllValues().get(i)).getType() == OrderOfferType.OFFERED) {
+				telegramIds.add(Long.valueOf(users.getAllValues().get(i)));
+			}
+		}
+		return telegramIds;
+	}
+
+	private Runnable nextRound() {
+		ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+		verify(taskScheduler, atLeastOnce()).schedule(task.capture(), any(Instant.class));
+		return task.getValue();
+	}
+}
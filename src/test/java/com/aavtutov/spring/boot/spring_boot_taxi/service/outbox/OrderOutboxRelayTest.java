@@ -0,0 +1,114 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.dao.OrderOutboxRepository;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.OrderStatus;
+import com.aavtutov.spring.boot.spring_boot_taxi.event.OrderUpdateEvent;
+import com.aavtutov.spring.boot.spring_boot_taxi.service.TelegramBotService;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+properties = "spring.autoconfigure.exclude=org.telegram.telegrambots.longpolling.starter.TelegramBotStarterConfiguration")
+@ActiveProfiles("test")
+public class OrderOutboxRelayTest {
+
+	// Ids no test order uses, the real listeners ignore them
+	private static final long FIRST_ORDER = 900_001L;
+	private static final long SECOND_ORDER = 900_002L;
+
+	@Autowired
+	private OrderOutbox orderOutbox;
+
+	@Autowired
+	private OrderOutboxRepository outboxRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private EventRecorder eventRecorder;
+
+	@MockitoBean
+	private TelegramBotService telegramBotService;
+
+	@Test
+	@DisplayName("Committed entries are delivered once, in order per order, and removed")
+	void testRelay_shouldDeliverInOrderPerOrder() throws Exception {
+
+		// arrange
+		List<OrderStatus> lifecycle = List.of(
+				OrderStatus.PENDING, OrderStatus.ACCEPTED, OrderStatus.IN_PROGRESS, OrderStatus.COMPLETED);
+
+		// act
+		for (OrderStatus status : lifecycle) {
+			transactionTemplate.executeWithoutResult(tx -> {
+				orderOutbox.append(new OrderUpdateEvent(FIRST_ORDER, status, null));
+				orderOutbox.append(new OrderUpdateEvent(SECOND_ORDER, status, null));
+			});
+		}
+		waitUntilDelivered(2 * lifecycle.size());
+
+		// assert
+		assertEquals(lifecycle, eventRecorder.statusesOf(FIRST_ORDER));
+		assertEquals(lifecycle, eventRecorder.statusesOf(SECOND_ORDER));
+		assertTrue(outboxRepository.findAll().stream()
+				.noneMatch(entry -> entry.getOrderId() == FIRST_ORDER || entry.getOrderId() == SECOND_ORDER),
+				"Delivered entries should be removed");
+	}
+
+	// Helpers
+	private void waitUntilDelivered(int expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (eventRecorder.count(FIRST_ORDER, SECOND_ORDER) < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+	}
+
+	@TestConfiguration
+	static class RecorderConfig {
+
+		@Bean
+		EventRecorder eventRecorder() {
+			return new EventRecorder();
+		}
+	}
+
+	static class EventRecorder {
+
+		private final Map<Long, List<OrderStatus>> statuses = new ConcurrentHashMap<>();
+
+		@EventListener
+		public void record(OrderUpdateEvent event) {
+			statuses.computeIfAbsent(event.orderId(), id -> new CopyOnWriteArrayList<>()).add(event.status());
+		}
+
+		List<OrderStatus> statusesOf(Long orderId) {
+			return statuses.getOrDefault(orderId, List.of());
+		}
+
+		int count(Long... orderIds) {
+			int total = 0;
+			for (Long orderId : orderIds) {
+				total += statusesOf(orderId).size();
+			}
+			return total;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.presence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.service.presence.DriverPresenceTracker.ExpiredDriver;
+
+public class DriverPresenceTrackerTest {
+
+	private static final long TIMEOUT_MS = 60_000;
+	private static final long TICK_MS = 1_000;
+	private static final long GRACE_MS = 15_000;
+
+	private final AtomicLong now = new AtomicLong(1_000_000);
+	private DriverPresenceTracker tracker;
+
+	@BeforeEach
+	void setup() {
+		tracker = new DriverPresenceTracker(TIMEOUT_MS, TICK_MS, GRACE_MS, now::get);
+	}
+
+	@Test
+	@DisplayName("A driver whose heartbeats stop expires once, after the timeout")
+	void testSweep_silentDriver_shouldExpireAfterTimeout() {
+
+		// arrange
+		assertTrue(tracker.touch(1L, 10L), "First heartbeat should report an arrival");
+		assertFalse(tracker.touch(1L, 10L));
+
+		// act
+		List<ExpiredDriver> beforeTimeout = advanceAndSweep(TIMEOUT_MS - TICK_MS);
+		List<ExpiredDriver> afterTimeout = advanceAndSweep(2 * TICK_MS);
+		List<ExpiredDriver> later = advanceAndSweep(TIMEOUT_MS);
+
+		// assert
+		assertTrue(beforeTimeout.isEmpty());
+		assertEquals(List.of(new ExpiredDriver(1L, 10L)), afterTimeout);
+		assertTrue(later.isEmpty(), "An expired driver is reported only once");
+		assertFalse(tracker.isOnline(1L));
+	}
+
+	@Test
+	@DisplayName("Regular heartbeats keep drivers online without growing the wheel")
+	void testSweep_heartbeatingDrivers_shouldStayOnline() {
+
+		// arrange
+		for (long id = 1; id <= 1_000; id++) {
+			tracker.touch(id, id);
+		}
+
+		// act
+		List<ExpiredDriver> expired = new ArrayList<>();
+		for (int round = 0; round < 20; round++) {
+			for (long id = 1; id <= 1_000; id++) {
+				tracker.touch(id, id);
+			}
+			expired.addAll(advanceAndSweep(30_000));
+		}
+
+		// assert
+		assertTrue(expired.isEmpty());
+		assertEquals(1_000, tracker.onlineCount());
+	}
+
+	@Test
+	@DisplayName("Removed drivers are not reported as expired")
+	void testRemove_shouldNotExpire() {
+
+		// arrange
+		tracker.touch(1L, 10L);
+
+		// act
+		tracker.remove(1L);
+		List<ExpiredDriver> expired = advanceAndSweep(2 * TIMEOUT_MS);
+
+		// assert
+		assertTrue(expired.isEmpty());
+	}
+
+	@Test
+	@DisplayName("A driver removed and back online keeps a single slot entry and expires once")
+	void testRemoveThenTouch_shouldNotDuplicateSlotEntry() {
+
+		// arrange (reconnect five seconds later, so the new entry lands in another slot)
+		tracker.touch(1L, 10L);
+		tracker.remove(1L);
+		now.addAndGet(5_000);
+		assertTrue(tracker.touch(1L, 10L), "Coming back should report an arrival");
+
+		// act
+		for (int round = 0; round < 6; round++) {
+			tracker.touch(1L, 10L);
+			assertTrue(advanceAndSweep(30_000).isEmpty());
+		}
+		int scheduled = tracker.scheduledCount();
+		List<ExpiredDriver> expired = advanceAndSweep(2 * TIMEOUT_MS);
+
+		// assert
+		assertEquals(1, scheduled, "The entry left behind by remove() should be dropped");
+		assertEquals(List.of(new ExpiredDriver(1L, 10L)), expired);
+		assertEquals(0, tracker.scheduledCount());
+	}
+
+	@Test
+	@DisplayName("A driver whose WebSocket closed expires after the grace period, not the full timeout")
+	void testExpireAfterGrace_shouldExpireAfterGrace() {
+
+		// arrange
+		tracker.touch(1L, 10L);
+
+		// act
+		tracker.expireAfterGrace(1L);
+		List<ExpiredDriver> beforeGrace = advanceAndSweep(GRACE_MS - TICK_MS);
+		List<ExpiredDriver> afterGrace = advanceAndSweep(2 * TICK_MS);
+		List<ExpiredDriver> later = advanceAndSweep(TIMEOUT_MS);
+
+		// assert
+		assertTrue(beforeGrace.isEmpty());
+		assertEquals(List.of(new ExpiredDriver(1L, 10L)), afterGrace);
+		assertTrue(later.isEmpty(), "The entry of the original timeout should be dropped");
+	}
+
+	@Test
+	@DisplayName("A heartbeat within the grace period (reconnect) keeps the driver online")
+	void testExpireAfterGrace_reconnect_shouldStayOnline() {
+
+		// arrange
+		tracker.touch(1L, 10L);
+		tracker.expireAfterGrace(1L);
+
+		// act
+		now.addAndGet(5_000);
+		tracker.touch(1L, 10L);
+		List<ExpiredDriver> afterGrace = advanceAndSweep(GRACE_MS);
+		List<ExpiredDriver> afterTimeout = advanceAndSweep(TIMEOUT_MS);
+
+		// assert
+		assertTrue(afterGrace.isEmpty());
+		assertEquals(List.of(new ExpiredDriver(1L, 10L)), afterTimeout);
+		assertEquals(0, tracker.scheduledCount());
+	}
+
+	// Helpers
+	private List<ExpiredDriver> advanceAndSweep(long millis) {
+		now.addAndGet(millis);
+		return tracker.sweep();
+	}
+}
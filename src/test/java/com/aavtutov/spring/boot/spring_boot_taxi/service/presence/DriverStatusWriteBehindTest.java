@@ -0,0 +1,161 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.presence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.DriverStatusWriteProperties;
+import com.aavtutov.spring.boot.spring_boot_taxi.entity.DriverStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DriverStatusWriteBehindTest {
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final List<List<Object[]>> writtenBatches = new ArrayList<>();
+	private final List<Long> refreshed = new ArrayList<>();
+	private DriverStatusWriteBehind writeBehind;
+
+	@BeforeEach
+	void setup() {
+		writeBehind = new DriverStatusWriteBehind(jdbcTemplate,
+				new TransactionTemplate(mock(PlatformTransactionManager.class)),
+				new DriverStatusWriteProperties(),
+				meterRegistry);
+	}
+
+	@Test
+	@DisplayName("A change that returns to the stored status before the flush writes nothing")
+	void testEnqueue_backAndForth_shouldCollapse() {
+
+		// act
+		writeBehind.enqueue(1L, DriverStatus.ACTIVE, DriverStatus.INACTIVE);
+		writeBehind.enqueue(1L, DriverStatus.INACTIVE, DriverStatus.ACTIVE);
+		writeBehind.flush(refreshed::addAll);
+
+		// assert
+		assertEquals(0, writeBehind.pendingCount());
+		assertEquals(Optional.empty(), writeBehind.pendingStatus(1L));
+		verifyNoInteractions(jdbcTemplate);
+	}
+
+	@Test
+	@DisplayName("Buffered changes are written as one conditional batch and their snapshots refreshed")
+	void testFlush_shouldWriteBatchAndRefresh() {
+
+		// arrange
+		answerBatch(() -> { }, 1, 1);
+		writeBehind.enqueue(1L, DriverStatus.ACTIVE, DriverStatus.INACTIVE);
+		writeBehind.enqueue(2L, DriverStatus.ACTIVE, DriverStatus.INACTIVE);
+
+		// act
+		writeBehind.flush(refreshed::addAll);
+
+		// assert
+		assertEquals(1, writtenBatches.size());
+		assertEquals(2, writtenBatches.get(0).size());
+		assertArrayEquals(new Object[] { "ACTIVE", 1L, "INACTIVE" }, find(writtenBatches.get(0), 1L));
+		assertTrue(refreshed.containsAll(List.of(1L, 2L)));
+		assertEquals(0, writeBehind.pendingCount());
+	}
+
+	@Test
+	@DisplayName("A change that meets another stored status is dropped, the database wins")
+	void testFlush_conflict_shouldDropChange() {
+
+		// arrange
+		answerBatch(() -> { }, 0);
+		writeBehind.enqueue(1L, DriverStatus.ACTIVE, DriverStatus.INACTIVE);
+
+		// act
+		writeBehind.flush(refreshed::addAll);
+
+		// assert
+		assertEquals(0, writeBehind.pendingCount());
+		assertEquals(List.of(1L), refreshed);
+		assertEquals(1.0, meterRegistry.counter("taxi.drivers.status.conflicts").count());
+	}
+
+	@Test
+	@DisplayName("A conflict keeps the change buffered while the batch was being written")
+	void testFlush_conflict_shouldKeepNewerChange() {
+
+		// arrange (the driver goes offline while ACTIVE is being written)
+		answerBatch(() -> writeBehind.enqueue(1L, DriverStatus.INACTIVE, DriverStatus.ACTIVE), 0);
+		writeBehind.enqueue(1L, DriverStatus.ACTIVE, DriverStatus.INACTIVE);
+
+		// act
+		writeBehind.flush(refreshed::addAll);
+
+		// assert
+		assertEquals(Optional.of(DriverStatus.INACTIVE), writeBehind.pendingStatus(1L));
+	}
+
+	@Test
+	@DisplayName("A change buffered during a successful write is rebased on the written status")
+	void testFlush_changeDuringWrite_shouldRebase() {
+
+		// arrange
+		answerBatch(() -> writeBehind.enqueue(1L, DriverStatus.INACTIVE, DriverStatus.ACTIVE), 1);
+		writeBehind.enqueue(1L, DriverStatus.ACTIVE, DriverStatus.INACTIVE);
+		writeBehind.flush(refreshed::addAll);
+		answerBatch(() -> { }, 1);
+
+		// act
+		writeBehind.flush(refreshed::addAll);
+
+		// assert
+		assertEquals(2, writtenBatches.size());
+		assertArrayEquals(new Object[] { "INACTIVE", 1L, "ACTIVE" }, writtenBatches.get(1).get(0));
+		assertEquals(0, writeBehind.pendingCount());
+	}
+
+	@Test
+	@DisplayName("Discarded changes are not written")
+	void testDiscard_shouldForgetChanges() {
+
+		// arrange
+		writeBehind.enqueue(1L, DriverStatus.ACTIVE, DriverStatus.INACTIVE);
+
+		// act
+		writeBehind.discard(List.of(1L));
+		writeBehind.flush(refreshed::addAll);
+
+		// assert
+		assertEquals(0, writeBehind.pendingCount());
+		verifyNoInteractions(jdbcTemplate);
+	}
+
+	// Helpers
+
+	// Records each batch, runs duringWrite as if concurrently with the write and returns the row counts
+	private void answerBatch(Runnable duringWrite, int... updated) {
+		doAnswer(invocation -> {
+			List<Object[]> args = invocation.getArgument(1);
+			writtenBatches.add(args);
+			duringWrite.run();
+			return updated;
+		}).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+	}
+
+	private static Object[] find(List<Object[]> batch, Long telegramId) {
+		return batch.stream().filter(args -> telegramId.equals(args[1])).findFirst().orElseThrow();
+	}
+}
@@ -0,0 +1,257 @@
+package com.aavtutov.spring.boot.spring_boot_taxi.service.telegram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
+
+import com.aavtutov.spring.boot.spring_boot_taxi.config.TelegramOutboundProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs the queue on a manual clock against a stubbed sendMessage call that
+ * answers synchronously, one queued response per call (success when none is queued).
+ */
+public class TelegramOutboundQueueTest {
+
+	private static final InlineKeyboardMarkup KEYBOARD = InlineKeyboardMarkup.builder()
+			.keyboardRow(new InlineKeyboardRow(InlineKeyboardButton.builder().text("Open").callbackData("open").build()))
+			.build();
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final AtomicLong now = new AtomicLong(1_000_000);
+	private final List<Map<String, Object>> sent = new ArrayList<>();
+	private final Deque<Mono<?>> responses = new ArrayDeque<>();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private TelegramOutboundProperties properties;
+
+	@BeforeEach
+	void setup() {
+		properties = new TelegramOutboundProperties();
+	}
+
+	@Test
+	@DisplayName("Plain messages waiting for the same chat are merged into one, keyboard messages are not")
+	void testEnqueue_consecutiveTexts_shouldMerge() {
+
+		// arrange
+		TelegramOutboundQueue queue = createQueue();
+
+		// act
+		queue.enqueue("1", "a", null);
+		queue.enqueue("1", "b", null);
+		queue.enqueue("1", "c", null);
+		queue.enqueue("1", "menu", KEYBOARD);
+		queue.dispatch();
+
+		// assert
+		assertEquals(List.of("a\n\nb\n\nc"), sentTexts());
+		assertEquals(2.0, meterRegistry.counter("taxi.telegram.outbound.merged").count());
+		assertEquals(1.0, meterRegistry.get("taxi.telegram.outbound.queue.depth").gauge().value());
+	}
+
+	@Test
+	@DisplayName("A chat gets at most one message per perChatInterval, other chats are not held up")
+	void testDispatch_shouldSpaceMessagesPerChat() {
+
+		// arrange
+		TelegramOutboundQueue queue = createQueue();
+		queue.enqueue("1", "first", KEYBOARD);
+		queue.enqueue("1", "second", KEYBOARD);
+
+		// act
+		queue.dispatch();
+		queue.enqueue("2", "other chat", null);
+		advanceAndDispatch(queue, 500);
+		List<String> afterHalfSecond = sentTexts();
+		advanceAndDispatch(queue, 500);
+
+		// assert
+		assertEquals(List.of("first", "other chat"), afterHalfSecond);
+		assertEquals(List.of("first", "other chat", "second"), sentTexts());
+	}
+
+	@Test
+	@DisplayName("A message queued after the previous one was delivered still waits for perChatInterval")
+	void testDispatch_messageAfterDelivery_shouldWaitForInterval() {
+
+		// arrange
+		TelegramOutboundQueue queue = createQueue();
+		queue.enqueue("1", "first", null);
+		queue.dispatch();
+
+		// act
+		queue.enqueue("1", "second", null);
+		advanceAndDispatch(queue, 500);
+		List<String> afterHalfSecond = sentTexts();
+		advanceAndDispatch(queue, 500);
+		List<String> afterInterval = sentTexts();
+		advanceAndDispatch(queue, 1_000);
+
+		// assert
+		assertEquals(List.of("first"), afterHalfSecond);
+		assertEquals(List.of("first", "second"), afterInterval);
+		assertEquals(0, queue.trackedChats(), "An idle chat should be forgotten once its interval ended");
+	}
+
+	@Test
+	@DisplayName("The global bucket caps the sends per second across chats")
+	void testDispatch_shouldRespectGlobalRate() {
+
+		// arrange
+		properties.setGlobalPerSecond(2);
+		TelegramOutboundQueue queue = createQueue();
+		for (int chat = 1; chat <= 5; chat++) {
+			queue.enqueue(String.valueOf(chat), "hello " + chat, null);
+		}
+
+		// act
+		queue.dispatch();
+		int burst = sent.size();
+		advanceAndDispatch(queue, 600);
+		int afterOneToken = sent.size();
+		advanceAndDispatch(queue, 1_000);
+
+		// assert
+		assertEquals(2, burst);
+		assertEquals(3, afterOneToken);
+		assertEquals(5, sent.size());
+	}
+
+	@Test
+	@DisplayName("On 429 the message is retried after Telegram's retry_after, not before")
+	void testDispatch_rateLimited_shouldHonourRetryAfter() {
+
+		// arrange
+		responses.add(Mono.error(telegramError(429, "{\"ok\":false,\"parameters\":{\"retry_after\":3}}")));
+		TelegramOutboundQueue queue = createQueue();
+		queue.enqueue("1", "hello", null);
+
+		// act
+		queue.dispatch();
+		advanceAndDispatch(queue, 2_000);
+		int beforeRetryAfter = sent.size();
+		advanceAndDispatch(queue, 1_000);
+
+		// assert
+		assertEquals(1, beforeRetryAfter);
+		assertEquals(List.of("hello", "hello"), sentTexts());
+		assertEquals(1.0, meterRegistry.counter("taxi.telegram.outbound.retries").count());
+	}
+
+	@Test
+	@DisplayName("Rejected messages (4xx) are dropped without retry")
+	void testDispatch_rejected_shouldDrop() {
+
+		// arrange
+		responses.add(Mono.error(telegramError(403, "{\"ok\":false,\"description\":\"bot was blocked\"}")));
+		TelegramOutboundQueue queue = createQueue();
+		queue.enqueue("1", "hello", null);
+
+		// act
+		queue.dispatch();
+		advanceAndDispatch(queue, 60_000);
+
+		// assert
+		assertEquals(1, sent.size());
+		assertEquals(1.0, droppedCount("rejected"));
+	}
+
+	@Test
+	@DisplayName("Server errors are retried with backoff until maxAttempts, then dropped")
+	void testDispatch_serverErrors_shouldDropAfterMaxAttempts() {
+
+		// arrange
+		properties.setMaxAttempts(2);
+		responses.add(Mono.error(telegramError(502, "")));
+		responses.add(Mono.error(telegramError(502, "")));
+		TelegramOutboundQueue queue = createQueue();
+		queue.enqueue("1", "hello", null);
+
+		// act
+		queue.dispatch();
+		advanceAndDispatch(queue, properties.getInitialBackoff().toMillis());
+		advanceAndDispatch(queue, 60_000);
+
+		// assert
+		assertEquals(2, sent.size());
+		assertEquals(1.0, droppedCount("retries_exhausted"));
+		assertEquals(0.0, meterRegistry.get("taxi.telegram.outbound.queue.depth").gauge().value());
+	}
+
+	@Test
+	@DisplayName("Messages beyond maxQueueSize are dropped and counted")
+	void testEnqueue_queueFull_shouldDrop() {
+
+		// arrange
+		properties.setMaxQueueSize(2);
+		TelegramOutboundQueue queue = createQueue();
+
+		// act
+		queue.enqueue("1", "one", KEYBOARD);
+		queue.enqueue("1", "two", KEYBOARD);
+		queue.enqueue("1", "three", KEYBOARD);
+
+		// assert
+		assertEquals(1.0, droppedCount("queue_full"));
+		assertEquals(2.0, meterRegistry.get("taxi.telegram.outbound.queue.depth").gauge().value());
+	}
+
+	// Helpers
+
+	private TelegramOutboundQueue createQueue() {
+		return new TelegramOutboundQueue(body -> {
+			sent.add(body);
+			Mono<?> response = responses.poll();
+			return response != null ? response : Mono.just(ResponseEntity.ok().build());
+		}, properties, meterRegistry, now::get);
+	}
+
+	private void advanceAndDispatch(TelegramOutboundQueue queue, long millis) {
+		now.addAndGet(millis);
+		queue.dispatch();
+	}
+
+	private List<String> sentTexts() {
+		return sent.stream().map(body -> (String) body.get("text")).toList();
+	}
+
+	private double droppedCount(String reason) {
+		return meterRegistry.counter("taxi.telegram.outbound.dropped", "reason", reason).count();
+	}
+
+	// Error as WebClient's retrieve() raises it, with the body readable through getResponseBodyAs
+	private WebClientResponseException telegramError(int status, String json) {
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		WebClientResponseException error = WebClientResponseException.create(
+				status, "Error " + status, HttpHeaders.EMPTY, body, StandardCharsets.UTF_8);
+		error.setBodyDecodeFunction(type -> {
+			try {
+				return objectMapper.readValue(body, objectMapper.constructType(type.getType()));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		return error;
+	}
+}